@@ -0,0 +1,150 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+import com.hsda.models.GameState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Working out a turn with GameStateAnalyzer.notifyStart, over a library of random boards per size:
+// "empty" is no minions and 3 cards in hand, up to "full", seven minions a side and 10 cards in hand.
+// Every operation ends the previous game first, which also empties the analyzer's caches, so each analysis starts
+// cold, then builds the next board through the same GameState calls the log reader makes. setUpOnly does just that
+// part, so the analysis itself costs the difference between the two.
+// Reports throughput and, in sample mode, percentiles. Run with -prof gc for the allocation rate per operation.
+// With -Dhsda.planner=mcts the analyzer searches instead, which makes this measure the greedy first answer.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+    private static final int BOARDS = 48;
+
+    @Param({"empty", "small", "medium", "full"})
+    public String board;
+
+    private GameState state;
+    private GameStateAnalyzer analyzer;
+    private List<Board> boards;
+    private int cursor;
+
+    // One turn start: what is in each zone, the mana we have and how much life the opponent has left.
+    private static final class Board {
+        final List<ZoneEntity> hand = new ArrayList<>();
+        final List<ZoneEntity> friendly = new ArrayList<>();
+        final List<ZoneEntity> opposing = new ArrayList<>();
+        int mana;
+        int opponentDamage;
+    }
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        int handSize;
+        int minions;
+        switch (board) {
+            case "empty":
+                handSize = 3;
+                minions = 0;
+                break;
+            case "small":
+                handSize = 5;
+                minions = 2;
+                break;
+            case "medium":
+                handSize = 7;
+                minions = 4;
+                break;
+            default:
+                handSize = 10;
+                minions = 7;
+                break;
+        }
+
+        state = new GameState(BenchmarkCards.service());
+        analyzer = new GameStateAnalyzer(state);
+
+        Random random = new Random(42);
+        ZoneEntityParser parser = new ZoneEntityParser();
+        boards = new ArrayList<>();
+        for (int b = 0; b < BOARDS; b++) {
+            Board next = new Board();
+            int id = 4;
+            for (int i = 0; i < handSize; i++) {
+                String[] card = SyntheticZoneLog.DECK[random.nextInt(SyntheticZoneLog.DECK.length)];
+                next.hand.add(SyntheticZoneLog.entity(parser, card, id++, "HAND", i + 1, 1, "FRIENDLY HAND"));
+            }
+            for (int i = 0; i < minions; i++) {
+                String[] card = friendlyMinion(random);
+                next.friendly.add(SyntheticZoneLog.entity(parser, card, id++, "PLAY", i + 1, 1, "FRIENDLY PLAY"));
+            }
+            for (int i = 0; i < minions; i++) {
+                // The last of the opponent's cards is Fireball, which never stays on the board.
+                String[] card = SyntheticZoneLog.OPPONENT_CARDS[random.nextInt(SyntheticZoneLog.OPPONENT_CARDS.length - 1)];
+                next.opposing.add(SyntheticZoneLog.entity(parser, card, id++, "PLAY", i + 1, 2, "OPPOSING PLAY"));
+            }
+            next.mana = 1 + random.nextInt(10);
+            next.opponentDamage = random.nextInt(26);
+            boards.add(next);
+        }
+    }
+
+    private static String[] friendlyMinion(Random random) {
+        while (true) {
+            String[] card = SyntheticZoneLog.DECK[random.nextInt(SyntheticZoneLog.DECK.length)];
+            switch (card[1]) {
+                case "Freezing Trap":
+                case "Quick Shot":
+                case "Eaglehorn Bow":
+                case "Kill Command":
+                case "Master's Call":
+                    continue;
+                default:
+                    return card;
+            }
+        }
+    }
+
+    private Board load() {
+        cursor = cursor + 1 == boards.size() ? 0 : cursor + 1;
+        Board next = boards.get(cursor);
+        state.gameEnded();
+        // Two of the three mulligan markers: cards can be put in hand without starting a turn.
+        state.beginMulligan();
+        state.beginMulligan();
+        for (ZoneEntity e : next.hand) {
+            state.addCardToHand(e);
+        }
+        for (ZoneEntity e : next.friendly) {
+            state.addCardToFriendlyBoard(e);
+        }
+        for (ZoneEntity e : next.opposing) {
+            state.addCardToOpposingHand();
+            state.addCardToOpposingBoard(e);
+        }
+        state.damageOpponent(next.opponentDamage);
+        return next;
+    }
+
+    @Benchmark
+    public void setUpOnly(Blackhole blackhole) {
+        blackhole.consume(load());
+    }
+
+    @Benchmark
+    public void notifyStart(Blackhole blackhole) {
+        Board next = load();
+        analyzer.notifyStart(next.mana, false);
+        while (analyzer.hasMessage()) {
+            blackhole.consume(analyzer.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hsda.benchmarks;
+
+import com.hsda.service.CardCatalog;
+import com.hsda.service.CardFetcherService;
+import com.hsda.service.CardStore;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// A card service for benchmarks that need a whole GameState: every card SyntheticZoneLog plays is in its catalog
+// with its real stats, so nothing is ever fetched and every card is resolved the moment it is created.
+final class BenchmarkCards {
+    // cardId, type, cost, attack, health, race, mechanic. The catalog parses these as it does the real collection,
+    // so the bow's attack and durability are dropped just the same.
+    private static final Object[][] CARDS = {
+            {"CFM_315", "MINION", 1, 1, 1, "BEAST", null},
+            {"LOOT_258", "MINION", 1, 1, 3, "BEAST", null},
+            {"OG_179", "MINION", 1, 2, 1, "BEAST", null},
+            {"BAR_031", "MINION", 1, 1, 3, "BEAST", null},
+            {"DS1_175", "MINION", 1, 1, 1, "BEAST", null},
+            {"SCH_133", "MINION", 1, 1, 1, "BEAST", null},
+            {"DRG_071", "MINION", 3, 4, 3, "BEAST", null},
+            {"EX1_611", "SPELL", 2, 0, 0, null, "SECRET"},
+            {"BAR_745", "MINION", 2, 2, 4, "BEAST", null},
+            {"CORE_BRM_013", "SPELL", 2, 0, 0, null, null},
+            {"CORE_EX1_531", "MINION", 2, 2, 2, "BEAST", null},
+            {"CS2_237", "MINION", 2, 2, 1, "BEAST", null},
+            {"EX1_536", "WEAPON", 3, 3, 2, null, null},
+            {"EX1_539", "SPELL", 3, 0, 0, null, null},
+            {"TRL_339", "SPELL", 3, 0, 0, null, null},
+            {"DS1_178", "MINION", 5, 2, 5, "BEAST", null},
+            {"CS2_172", "MINION", 2, 3, 2, "BEAST", null},
+            {"CS2_179", "MINION", 4, 3, 5, null, "TAUNT"},
+            {"EX1_015", "MINION", 2, 1, 1, null, null},
+            {"CS2_182", "MINION", 4, 4, 5, null, null},
+            {"CS2_125", "MINION", 3, 3, 3, "BEAST", "TAUNT"},
+            {"CS2_029", "SPELL", 4, 0, 0, null, null}
+    };
+
+    private BenchmarkCards() {
+    }
+
+    static CardFetcherService service() throws IOException {
+        JSONArray cards = new JSONArray();
+        for (String[][] list : new String[][][]{SyntheticZoneLog.DECK, SyntheticZoneLog.OPPONENT_CARDS}) {
+            for (String[] card : list) {
+                cards.put(json(card[0], card[1]));
+            }
+        }
+        CardCatalog catalog = CardCatalog.load(new StringReader(cards.toString()));
+
+        Path store = Files.createTempFile("cards", ".db");
+        store.toFile().deleteOnExit();
+        return new CardFetcherService(CardStore.open(store), catalog);
+    }
+
+    private static JSONObject json(String cardId, String name) {
+        for (Object[] stats : CARDS) {
+            if (!stats[0].equals(cardId)) {
+                continue;
+            }
+            JSONObject card = new JSONObject();
+            card.put("id", cardId);
+            card.put("name", name);
+            card.put("type", stats[1]);
+            card.put("cost", stats[2]);
+            card.put("attack", stats[3]);
+            card.put("health", stats[4]);
+            if (stats[5] != null) {
+                card.put("race", stats[5]);
+            }
+            if (stats[6] != null) {
+                card.put("mechanics", new JSONArray().put(stats[6]));
+            }
+            return card;
+        }
+        throw new IllegalArgumentException("No stats for " + cardId);
+    }
+}
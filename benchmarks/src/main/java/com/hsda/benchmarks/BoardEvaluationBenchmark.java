@@ -0,0 +1,170 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.BoardSnapshot;
+import com.hsda.models.Card;
+import com.hsda.models.CardDefinition;
+import com.hsda.models.Mechanic;
+import com.hsda.models.Race;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The board evaluations the analyzer runs at the start of a turn (board damage, beast and special minion checks,
+// taunt health, the biggest taunt and a value trade for every friendly minion), done over a
+// BoardSnapshot and over copied List<Card> boards the way GameStateAnalyzer did before the snapshot.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardEvaluationBenchmark {
+    private static final int BOARDS = 256;
+
+    private List<List<Card>> friendlyBoards;
+    private List<List<Card>> enemyBoards;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        friendlyBoards = new ArrayList<>();
+        enemyBoards = new ArrayList<>();
+        int entityId = 4;
+        for (int b = 0; b < BOARDS; b++) {
+            List<Card> friendly = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; i--) {
+                friendly.add(new Card(minion(SyntheticZoneLog.DECK[random.nextInt(SyntheticZoneLog.DECK.length)],
+                        random, false, Race.BEAST.bit()), entityId++));
+            }
+            List<Card> enemy = new ArrayList<>();
+            for (int i = 1 + random.nextInt(7); i > 0; i--) {
+                enemy.add(new Card(minion(SyntheticZoneLog.OPPONENT_CARDS[random.nextInt(SyntheticZoneLog.OPPONENT_CARDS.length)],
+                        random, random.nextInt(4) == 0, 0), entityId++));
+            }
+            friendlyBoards.add(friendly);
+            enemyBoards.add(enemy);
+        }
+        cursor = 0;
+    }
+
+    private static CardDefinition minion(String[] card, Random random, boolean taunt, int races) {
+        long mechanics = taunt ? Mechanic.TAUNT.bit() : 0;
+        return new CardDefinition(card[1], card[0], "Minion", 1 + random.nextInt(6), 1 + random.nextInt(6),
+                1 + random.nextInt(7), mechanics, races);
+    }
+
+    private int next() {
+        int board = cursor;
+        cursor = cursor + 1 == BOARDS ? 0 : cursor + 1;
+        return board;
+    }
+
+    @Benchmark
+    public int snapshot() {
+        int b = next();
+        BoardSnapshot board = BoardSnapshot.of(friendlyBoards.get(b), enemyBoards.get(b));
+        BoardSnapshot.Side friendly = board.friendly();
+        BoardSnapshot.Side enemy = board.enemy();
+
+        int result = friendly.totalAttack();
+        result += friendly.any(BoardSnapshot.BEAST) ? 1 : 0;
+        result += friendly.any(BoardSnapshot.TUNDRA_RHINO) ? 2 : 0;
+        result += friendly.any(BoardSnapshot.TIMBER_WOLF) ? 4 : 0;
+        result += friendly.any(BoardSnapshot.STARVING_BUZZARD) ? 8 : 0;
+        result += enemy.totalHealth(BoardSnapshot.TAUNT);
+        result += enemy.highestHealth(BoardSnapshot.TAUNT);
+        for (int i = 0; i < friendly.size(); i++) {
+            result += enemy.valueTradeTarget(friendly.attack(i), friendly.health(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int objects() {
+        int b = next();
+        List<Card> friendly = new ArrayList<>(friendlyBoards.get(b));
+        List<Card> enemy = new ArrayList<>(enemyBoards.get(b));
+
+        int result = 0;
+        for (Card c : friendly) {
+            result += c.getAttack();
+        }
+        boolean beast = false;
+        for (Card c : friendly) {
+            if (isBeast(c)) {
+                beast = true;
+                break;
+            }
+        }
+        result += beast ? 1 : 0;
+        result += Card.listContainsCard("Tundra Rhino", friendly) ? 2 : 0;
+        result += Card.listContainsCard("Timber Wolf", friendly) ? 4 : 0;
+        result += Card.listContainsCard("Starving Buzzard", friendly) ? 8 : 0;
+
+        List<Card> taunts = new ArrayList<>();
+        for (Card c : enemy) {
+            if (c.hasMechanic(Mechanic.TAUNT)) {
+                taunts.add(c);
+                result += c.getHealth();
+            }
+        }
+        Card highestHp = null;
+        for (Card c : taunts) {
+            if (highestHp == null || c.getHealth() > highestHp.getHealth()) {
+                highestHp = c;
+            }
+        }
+        result += enemy.indexOf(highestHp);
+        for (Card c : friendly) {
+            if (canValueTrade(c, enemy)) {
+                result += enemy.indexOf(getValueTradeTarget(c, enemy));
+            } else {
+                result--;
+            }
+        }
+        return result;
+    }
+
+    // The object based helpers as GameStateAnalyzer had them.
+    private static boolean isBeast(Card c) {
+        return c.getName().equalsIgnoreCase("alleycat")
+                || c.getName().equalsIgnoreCase("tabbycat")
+                || c.getName().equalsIgnoreCase("wolpertinger")
+                || c.getName().equalsIgnoreCase("fiery bat")
+                || c.getName().equalsIgnoreCase("hecklefang hyena")
+                || c.getName().equalsIgnoreCase("starving buzzard")
+                || c.getName().equalsIgnoreCase("sunscale raptor")
+                || c.getName().equalsIgnoreCase("bad luck albatross")
+                || c.getName().equalsIgnoreCase("dire mole")
+                || c.getName().equalsIgnoreCase("timber wolf")
+                || c.getName().equalsIgnoreCase("scavenging hyena")
+                || c.getName().equalsIgnoreCase("tundra rhino");
+    }
+
+    private static boolean canValueTrade(Card friendlyMinion, List<Card> enemyBoard) {
+        for (Card c : enemyBoard) {
+            if (c.getHealth() <= friendlyMinion.getAttack()
+                    && (friendlyMinion.getHealth() > c.getAttack() || friendlyMinion.getAttack() < c.getAttack())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Card getValueTradeTarget(Card friendlyMinion, List<Card> enemyBoard) {
+        Card highestCost = null;
+        for (Card c : enemyBoard) {
+            if (c.getHealth() <= friendlyMinion.getAttack()
+                    && (friendlyMinion.getHealth() > c.getAttack() || friendlyMinion.getAttack() < c.getAttack())) {
+                if (highestCost == null || c.getCost() > highestCost.getCost()) {
+                    highestCost = c;
+                }
+            }
+        }
+        return highestCost;
+    }
+}
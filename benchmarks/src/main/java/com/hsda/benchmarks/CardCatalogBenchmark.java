@@ -0,0 +1,106 @@
+package com.hsda.benchmarks;
+
+import com.hsda.models.CardDefinition;
+import com.hsda.service.CardCatalog;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Importing a full card collection dump, and looking cards up in the resulting catalog.
+// Uses the dump at -Dhsda.bench.cardCatalog=<file> if given, otherwise a generated one in the HearthstoneJSON
+// format with as many cards as the real collection.
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardCatalogBenchmark {
+    private static final int SYNTHETIC_CARDS = 8000;
+
+    private Path dump;
+    private CardCatalog catalog;
+    private String[] cardIds;
+    private String[] names;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        String recorded = System.getProperty("hsda.bench.cardCatalog");
+        if (recorded != null) {
+            dump = Path.of(recorded);
+        } else {
+            dump = Files.createTempFile("cards", ".json");
+            dump.toFile().deleteOnExit();
+            Files.writeString(dump, generate(SYNTHETIC_CARDS), StandardCharsets.UTF_8);
+        }
+        catalog = CardCatalog.load(dump);
+        cardIds = new String[catalog.size()];
+        names = new String[catalog.size()];
+        int i = 0;
+        for (CardDefinition c : catalog.getAll()) {
+            cardIds[i] = c.getCardId();
+            names[i] = c.getName().toUpperCase();
+            i++;
+        }
+    }
+
+    static String generate(int count) {
+        Random random = new Random(42);
+        String[] types = {"MINION", "SPELL", "WEAPON", "HERO", "ENCHANTMENT"};
+        String[] mechanics = {"TAUNT", "CHARGE", "BATTLECRY", "DEATHRATTLE", "DIVINE_SHIELD", "RUSH"};
+        JSONArray cards = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject card = new JSONObject();
+            card.put("id", "SET" + (i % 40) + "_" + i);
+            card.put("dbfId", 40000 + i);
+            card.put("name", "Generated Card " + i);
+            card.put("text", "Deal <b>" + random.nextInt(8) + "</b> damage. Draw a card.");
+            String type = types[random.nextInt(types.length)];
+            card.put("type", type);
+            card.put("cost", random.nextInt(11));
+            card.put("rarity", "COMMON");
+            card.put("set", "SET" + (i % 40));
+            if (type.equals("MINION")) {
+                card.put("attack", random.nextInt(12));
+                card.put("health", 1 + random.nextInt(12));
+                if (random.nextBoolean()) {
+                    card.put("race", "BEAST");
+                }
+                JSONArray cardMechanics = new JSONArray();
+                cardMechanics.put(mechanics[random.nextInt(mechanics.length)]);
+                card.put("mechanics", cardMechanics);
+            }
+            cards.put(card);
+        }
+        return cards.toString();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CardCatalog load() throws IOException {
+        return CardCatalog.load(dump);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CardDefinition lookupByCardId() {
+        cursor = cursor + 1 == cardIds.length ? 0 : cursor + 1;
+        return catalog.getByCardId(cardIds[cursor]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CardDefinition lookupByName() {
+        cursor = cursor + 1 == names.length ? 0 : cursor + 1;
+        return catalog.getByName(names[cursor]);
+    }
+}
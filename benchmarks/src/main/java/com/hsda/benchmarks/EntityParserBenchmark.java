@@ -0,0 +1,69 @@
+package com.hsda.benchmarks;
+
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Entity extraction over the lines GameState handles, comparing the index based parser with the lookbehind
+// regexes GameState used to run. Run with -prof gc to see the allocation rate of each.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityParserBenchmark {
+    private static final Pattern CARD_ID_REGEX = Pattern.compile("(?<=cardId=).*?(?=player=)");
+    private static final Pattern CARD_NAME_REGEX = Pattern.compile("(?<=entityName=).*?(?=id=)");
+
+    private String[] lines;
+    private int cursor;
+    private final ZoneEntityParser parser = new ZoneEntityParser();
+    private final ZoneEntity entity = new ZoneEntity();
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> entityLines = new ArrayList<>();
+        for (String line : SyntheticZoneLog.load(200)) {
+            if (line.contains("TRANSITIONING card") || line.contains("zone from")) {
+                entityLines.add(line);
+            }
+        }
+        lines = entityLines.toArray(new String[0]);
+        cursor = 0;
+    }
+
+    private String nextLine() {
+        String line = lines[cursor];
+        cursor = cursor + 1 == lines.length ? 0 : cursor + 1;
+        return line;
+    }
+
+    @Benchmark
+    public void parser(Blackhole blackhole) {
+        parser.parse(nextLine(), entity);
+        blackhole.consume(entity.getCardId());
+        blackhole.consume(entity.getEntityName());
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        String line = nextLine();
+        Matcher matcher = CARD_ID_REGEX.matcher(line);
+        if (matcher.find()) {
+            blackhole.consume(matcher.group(0).substring(0, matcher.group(0).length() - 1));
+        }
+        matcher = CARD_NAME_REGEX.matcher(line);
+        if (matcher.find()) {
+            blackhole.consume(matcher.group(0).substring(0, matcher.group(0).length() - 1));
+        }
+    }
+}
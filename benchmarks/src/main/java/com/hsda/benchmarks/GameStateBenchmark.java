@@ -0,0 +1,87 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+import com.hsda.models.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// The zone updates GameState makes for each relevant log line, with an analyzer attached so its change listeners
+// run as they would in a game. The state is held in the mulligan, so drawing a card never starts an analysis.
+// Each operation puts a card into a zone and takes it out again, on top of a half full hand and boards, so the
+// state stays the same size from one operation to the next.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameStateBenchmark {
+    private static final int ENTITIES = 64;
+
+    private GameState state;
+    private ZoneEntity[] friendly;
+    private ZoneEntity[] opposing;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        state = new GameState(BenchmarkCards.service());
+        new GameStateAnalyzer(state);
+        state.beginMulligan();
+        state.beginMulligan();
+
+        ZoneEntityParser parser = new ZoneEntityParser();
+        int id = 4;
+        for (int i = 0; i < 5; i++) {
+            state.addCardToHand(SyntheticZoneLog.entity(parser, SyntheticZoneLog.DECK[i], id++, "HAND", i + 1, 1,
+                    "FRIENDLY HAND"));
+        }
+        for (int i = 0; i < 3; i++) {
+            state.addCardToFriendlyBoard(SyntheticZoneLog.entity(parser, SyntheticZoneLog.DECK[i], id++, "PLAY", i + 1,
+                    1, "FRIENDLY PLAY"));
+            state.addCardToOpposingBoard(SyntheticZoneLog.entity(parser, SyntheticZoneLog.OPPONENT_CARDS[i], id++,
+                    "PLAY", i + 1, 2, "OPPOSING PLAY"));
+        }
+
+        // Bows and spells don't stay on the board, so only minions are moved around.
+        friendly = new ZoneEntity[ENTITIES];
+        opposing = new ZoneEntity[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            friendly[i] = SyntheticZoneLog.entity(parser, SyntheticZoneLog.DECK[i % 6], id++, "HAND", 3, 1,
+                    "FRIENDLY HAND");
+            opposing[i] = SyntheticZoneLog.entity(parser, SyntheticZoneLog.OPPONENT_CARDS[i % 5], id++, "PLAY", 2,
+                    2, "OPPOSING PLAY");
+        }
+    }
+
+    private int next() {
+        cursor = cursor + 1 == ENTITIES ? 0 : cursor + 1;
+        return cursor;
+    }
+
+    @Benchmark
+    public void drawAndDiscard() {
+        ZoneEntity entity = friendly[next()];
+        state.addCardToHand(entity);
+        state.cardToFriendlyGraveyard(entity);
+    }
+
+    @Benchmark
+    public void playAndDie() {
+        ZoneEntity entity = friendly[next()];
+        state.addCardToFriendlyBoard(entity);
+        state.cardToFriendlyGraveyard(entity);
+    }
+
+    @Benchmark
+    public void opponentPlaysAndDies() {
+        ZoneEntity entity = opposing[next()];
+        state.addCardToOpposingHand();
+        state.addCardToOpposingBoard(entity);
+        state.cardToOpposingGraveyard(entity);
+    }
+}
@@ -0,0 +1,87 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.ZoneLogDispatcher;
+import com.hsda.models.GameHistory;
+import com.hsda.models.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Brings a state with an analyzer attached back to one of a finished game's decision points, taking each in turn:
+// either from the game's history, as the nearest snapshot and the events since ("rewind"), or by ending the game
+// and dispatching its log again up to the line that led to the decision ("reparse"), analyses included.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({"rewind", "reparse"})
+    public String mode;
+
+    private GameState state;
+    private GameStateAnalyzer analyzer;
+    private ZoneLogDispatcher dispatcher;
+    private List<String> game;
+    private GameHistory history;
+    // For each decision point, its position in the history and the number of lines up to it.
+    private int[] positions;
+    private int[] lineCounts;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        state = new GameState(BenchmarkCards.service());
+        analyzer = new GameStateAnalyzer(state);
+        dispatcher = new ZoneLogDispatcher(state);
+
+        // Record the first game of the log, noting where each decision came.
+        game = new ArrayList<>();
+        List<Integer> decisionPositions = new ArrayList<>();
+        List<Integer> decisionLines = new ArrayList<>();
+        for (String line : SyntheticZoneLog.load(1)) {
+            GameHistory current = state.getHistory();
+            int decisions = current.getDecisionPoints().size();
+            dispatcher.dispatch(line);
+            game.add(line);
+            drain();
+            if (state.getHistory() != current) {
+                break;
+            }
+            List<Integer> now = current.getDecisionPoints();
+            for (int i = decisions; i < now.size(); i++) {
+                decisionPositions.add(now.get(i));
+                decisionLines.add(game.size());
+            }
+        }
+        history = state.getLastGame();
+        positions = decisionPositions.stream().mapToInt(Integer::intValue).toArray();
+        lineCounts = decisionLines.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void drain() {
+        while (analyzer.hasMessage()) {
+            analyzer.getMessage();
+        }
+    }
+
+    @Benchmark
+    public int toDecisionPoint() {
+        cursor = cursor + 1 == positions.length ? 0 : cursor + 1;
+        if (mode.equals("rewind")) {
+            state.rewind(history, positions[cursor]);
+        } else {
+            state.gameEnded();
+            for (int i = 0; i < lineCounts[cursor]; i++) {
+                dispatcher.dispatch(game.get(i));
+            }
+            drain();
+        }
+        return state.getHistory().size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hsda.benchmarks;
+
+import com.hsda.log.LogLineClassifier;
+import com.hsda.log.LogLineType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lines per second through the single-pass classifier, compared with the String.contains chain Main used to run.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineClassifierBenchmark {
+    private String[] lines;
+    private int cursor;
+    private final LogLineClassifier classifier = new LogLineClassifier();
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> log = SyntheticZoneLog.load(200);
+        lines = log.toArray(new String[0]);
+        cursor = 0;
+    }
+
+    private String nextLine() {
+        String line = lines[cursor];
+        cursor = cursor + 1 == lines.length ? 0 : cursor + 1;
+        return line;
+    }
+
+    @Benchmark
+    public LogLineType classifier() {
+        return classifier.classify(nextLine());
+    }
+
+    @Benchmark
+    public int containsChain() {
+        return classifyWithContains(nextLine(), true);
+    }
+
+    // The dispatch chain from Main before the classifier existed, returning a code per branch.
+    static int classifyWithContains(String nextLine, boolean inMulligan) {
+        if (nextLine.contains("BEGIN_MULLIGAN")) {
+            return 1;
+        } else if (inMulligan && nextLine.contains("tag=NUM_CARDS_DRAWN_THIS_TURN value=1")) {
+            return 2;
+        } else if (nextLine.contains("from FRIENDLY DECK -> FRIENDLY GRAVEYARD")) {
+            return 3;
+        } else if (nextLine.contains("from OPPOSING PLAY -> OPPOSING HAND")) {
+            return 4;
+        } else if (nextLine.contains("TRANSITIONING card")) {
+            if (nextLine.contains("to FRIENDLY HAND")) {
+                return 5;
+            } else if (nextLine.contains("to FRIENDLY DECK")
+                    && !nextLine.contains("(Hero)")
+                    && !nextLine.contains("(Hero Power)")) {
+                return 6;
+            } else if (nextLine.contains("to FRIENDLY PLAY")
+                    && !nextLine.contains("(Hero)")
+                    && !nextLine.contains("(Hero Power)")) {
+                return 7;
+            } else if (nextLine.contains("to FRIENDLY GRAVEYARD")
+                    && !nextLine.contains("(Hero)")
+                    && !nextLine.contains("(Hero Power)")) {
+                return 8;
+            } else if (nextLine.contains("to FRIENDLY SECRET")) {
+                return 9;
+            } else if (nextLine.contains("to OPPOSING HAND")) {
+                return 10;
+            } else if (nextLine.contains("to OPPOSING PLAY")
+                    && !nextLine.contains("(Hero)")
+                    && !nextLine.contains("(Hero Power)")) {
+                return 11;
+            } else if (nextLine.contains("to OPPOSING GRAVEYARD")
+                    && !nextLine.contains("(Hero)")
+                    && !nextLine.contains("(Hero Power)")) {
+                return 12;
+            }
+            return 0;
+        } else if (nextLine.contains("(Hero) -> OPPOSING GRAVEYARD")) {
+            return 13;
+        } else if (nextLine.contains("(Hero) -> FRIENDLY GRAVEYARD")) {
+            return 14;
+        }
+        return 0;
+    }
+}
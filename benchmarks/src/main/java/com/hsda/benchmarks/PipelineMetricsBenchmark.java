@@ -0,0 +1,62 @@
+package com.hsda.benchmarks;
+
+import com.hsda.metrics.LatencyHistogram;
+import com.hsda.metrics.PipelineMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// What the instrumentation adds to each stage it times and each event it counts, on one thread and on four
+// sharing the same histograms and counters, as replay threads and sessions do. Run with -Dhsda.metrics=off
+// (-jvmArgs) to see the cost of the calls when they do nothing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineMetricsBenchmark {
+    private final PipelineMetrics metrics = PipelineMetrics.global();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @State(Scope.Thread)
+    public static class Values {
+        long next = 1;
+
+        // Spread over a few hundred buckets, like real stage latencies.
+        long next() {
+            next = next * 6364136223846793005L + 1442695040888963407L;
+            return (next >>> 44) & 0xFFFFF;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void timeStage() {
+        metrics.record(PipelineMetrics.Stage.PARSE, metrics.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void timeStageShared() {
+        metrics.record(PipelineMetrics.Stage.PARSE, metrics.start());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void count() {
+        metrics.increment(PipelineMetrics.Counter.LINES);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordValue(Values values) {
+        histogram.record(values.next());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long percentile() {
+        return histogram.getPercentileNanos(99);
+    }
+}
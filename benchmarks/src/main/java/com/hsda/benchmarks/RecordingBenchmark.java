@@ -0,0 +1,123 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.LogLineClassifier;
+import com.hsda.log.LogLineType;
+import com.hsda.log.RecordingReader;
+import com.hsda.log.RecordingWriter;
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+import com.hsda.log.ZoneLogDispatcher;
+import com.hsda.models.GameState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Twenty games read back from their Zone.log ("text") or from a recording of it ("binary"). ingest only gets the
+// events out, classifying every line and parsing the relevant ones, or decoding the recording; replay also feeds
+// them to a GameState with an analyzer attached, as Replay does. Both read files through the page cache.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordingBenchmark {
+    private static final int GAMES = 20;
+
+    @Param({"text", "binary"})
+    public String source;
+
+    private Path directory;
+    private Path log;
+    private Path recording;
+    private GameState state;
+    private GameStateAnalyzer analyzer;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("hsda-recording-bench");
+        log = directory.resolve("Zone.log");
+        recording = directory.resolve("Zone.hsdr");
+        List<String> lines = SyntheticZoneLog.load(GAMES);
+        Files.write(log, lines, StandardCharsets.UTF_8);
+
+        state = new GameState(BenchmarkCards.service());
+        analyzer = new GameStateAnalyzer(state);
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        try (RecordingWriter recorder = new RecordingWriter(recording)) {
+            dispatcher.setRecorder(recorder);
+            for (String line : lines) {
+                dispatcher.dispatch(line);
+                drain();
+            }
+        }
+        state.gameEnded();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(recording);
+        Files.deleteIfExists(directory);
+    }
+
+    private void drain() {
+        while (analyzer.hasMessage()) {
+            analyzer.getMessage();
+        }
+    }
+
+    @Benchmark
+    public void ingest(Blackhole blackhole) throws IOException {
+        ZoneEntity entity = new ZoneEntity();
+        if (source.equals("text")) {
+            LogLineClassifier classifier = new LogLineClassifier();
+            ZoneEntityParser parser = new ZoneEntityParser();
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                LogLineType type = classifier.classify(line);
+                if (type.hasEntity()) {
+                    parser.parse(line, entity);
+                    blackhole.consume(entity.getId());
+                }
+                blackhole.consume(type);
+            }
+        } else {
+            try (RecordingReader reader = new RecordingReader(recording)) {
+                LogLineType type;
+                while ((type = reader.next(entity)) != null) {
+                    blackhole.consume(entity.getId());
+                    blackhole.consume(type);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        if (source.equals("text")) {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                dispatcher.dispatch(line);
+                drain();
+            }
+        } else {
+            ZoneEntity entity = new ZoneEntity();
+            try (RecordingReader reader = new RecordingReader(recording)) {
+                LogLineType type;
+                while ((type = reader.next(entity)) != null) {
+                    dispatcher.handle(type, entity);
+                    drain();
+                }
+            }
+        }
+        state.gameEnded();
+        return state.getLastGame().size();
+    }
+}
@@ -0,0 +1,132 @@
+package com.hsda.benchmarks;
+
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Produces Zone.log content for the benchmarks.
+// A recorded log can be supplied with -Dhsda.bench.zoneLog=<path>, otherwise a log is generated from the
+// line shapes the client writes, with the same mix of relevant and irrelevant lines as a real game.
+public final class SyntheticZoneLog {
+    static final String[][] DECK = {
+            {"CFM_315", "Alleycat"}, {"LOOT_258", "Dire Mole"}, {"OG_179", "Fiery Bat"},
+            {"BAR_031", "Sunscale Raptor"}, {"DS1_175", "Timber Wolf"}, {"SCH_133", "Wolpertinger"},
+            {"DRG_071", "Bad Luck Albatross"}, {"EX1_611", "Freezing Trap"}, {"BAR_745", "Hecklefang Hyena"},
+            {"CORE_BRM_013", "Quick Shot"}, {"CORE_EX1_531", "Scavenging Hyena"}, {"CS2_237", "Starving Buzzard"},
+            {"EX1_536", "Eaglehorn Bow"}, {"EX1_539", "Kill Command"}, {"TRL_339", "Master's Call"},
+            {"DS1_178", "Tundra Rhino"}
+    };
+
+    static final String[][] OPPONENT_CARDS = {
+            {"CS2_172", "Bloodfen Raptor"}, {"CS2_179", "Sen'jin Shieldmasta"}, {"EX1_015", "Novice Engineer"},
+            {"CS2_182", "Chillwind Yeti"}, {"CS2_125", "Ironfur Grizzly"}, {"CS2_029", "Fireball"}
+    };
+
+    private static final String PREFIX = "D 19:32:11.4525500 ";
+
+    private SyntheticZoneLog() {
+    }
+
+    public static List<String> load(int syntheticGames) throws IOException {
+        String recorded = System.getProperty("hsda.bench.zoneLog");
+        if (recorded != null) {
+            return Files.readAllLines(Paths.get(recorded), StandardCharsets.UTF_8);
+        }
+        return generate(syntheticGames, 42);
+    }
+
+    public static List<String> generate(int games, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        int nextEntity = 4;
+        for (int game = 0; game < games; game++) {
+            for (int i = 0; i < 3; i++) {
+                lines.add(PREFIX + "GameState.DebugPrintPower() - TAG_CHANGE Entity=GameEntity tag=STEP value=BEGIN_MULLIGAN");
+            }
+            List<int[]> friendlyBoard = new ArrayList<>();
+            List<int[]> opposingBoard = new ArrayList<>();
+            for (int turn = 0; turn < 14; turn++) {
+                String[] drawn = DECK[random.nextInt(DECK.length)];
+                int id = nextEntity++;
+                noise(lines, random, 6);
+                lines.add(transition(drawn, id, "HAND", 3, 1, "FRIENDLY HAND"));
+                lines.add(zoneChange(drawn, id, "HAND", 3, 1, "FRIENDLY DECK", "FRIENDLY HAND"));
+                if (turn == 0) {
+                    lines.add(PREFIX + "GameState.DebugPrintPower() - TAG_CHANGE Entity=Player tag=NUM_CARDS_DRAWN_THIS_TURN value=1");
+                }
+                noise(lines, random, 4);
+                lines.add(transition(drawn, id, "PLAY", friendlyBoard.size() + 1, 1, "FRIENDLY PLAY"));
+                friendlyBoard.add(new int[]{id, indexOf(drawn)});
+                if (friendlyBoard.size() > 5) {
+                    int[] dead = friendlyBoard.remove(0);
+                    lines.add(transition(DECK[dead[1]], dead[0], "GRAVEYARD", 0, 1, "FRIENDLY GRAVEYARD"));
+                }
+
+                String[] played = OPPONENT_CARDS[random.nextInt(OPPONENT_CARDS.length)];
+                int opposingId = nextEntity++;
+                lines.add(transition(new String[]{"", "UNKNOWN ENTITY [cardType=INVALID]"}, opposingId, "HAND", 0, 2, "OPPOSING HAND"));
+                noise(lines, random, 6);
+                lines.add(transition(played, opposingId, "PLAY", opposingBoard.size() + 1, 2, "OPPOSING PLAY"));
+                opposingBoard.add(new int[]{opposingId});
+                if (opposingBoard.size() > 4) {
+                    int[] dead = opposingBoard.remove(0);
+                    lines.add(transition(played, dead[0], "GRAVEYARD", 0, 2, "OPPOSING GRAVEYARD"));
+                }
+            }
+            lines.add(PREFIX + "ZoneChangeList.ProcessChanges() - TRANSITIONING card [entityName=Guldan id=66 zone=GRAVEYARD zonePos=0 cardId=HERO_07 player=2] to OPPOSING GRAVEYARD");
+            lines.add(PREFIX + "ZoneChangeList.ProcessChanges() - id=88 local=False [entityName=Guldan id=66 zone=GRAVEYARD zonePos=0 cardId=HERO_07 player=2] zone from OPPOSING PLAY (Hero) -> OPPOSING GRAVEYARD");
+        }
+        return lines;
+    }
+
+    private static int indexOf(String[] card) {
+        for (int i = 0; i < DECK.length; i++) {
+            if (DECK[i] == card) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    static String transition(String[] card, int id, String zone, int zonePos, int player, String to) {
+        return PREFIX + "ZoneChangeList.ProcessChanges() - TRANSITIONING card [entityName=" + card[1] + " id=" + id
+                + " zone=" + zone + " zonePos=" + zonePos + " cardId=" + card[0] + " player=" + player + "] to " + to;
+    }
+
+    // The entity the parser reads from a transition line, for benchmarks that set up zones directly.
+    static ZoneEntity entity(ZoneEntityParser parser, String[] card, int id, String zone, int zonePos, int player,
+                             String to) {
+        ZoneEntity entity = new ZoneEntity();
+        parser.parse(transition(card, id, zone, zonePos, player, to), entity);
+        return entity;
+    }
+
+    static String zoneChange(String[] card, int id, String zone, int zonePos, int player, String from, String to) {
+        return PREFIX + "ZoneChangeList.ProcessChanges() - id=" + id + " local=False [entityName=" + card[1] + " id=" + id
+                + " zone=" + zone + " zonePos=" + zonePos + " cardId=" + card[0] + " player=" + player + "] zone from "
+                + from + " -> " + to;
+    }
+
+    private static void noise(List<String> lines, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    lines.add(PREFIX + "ZoneChangeList.ProcessChanges() - processing index=" + i + " change=powerTask=[power=[type=TAG_CHANGE entity=[id=64 cardId= name=Player] tag=RESOURCES_USED value=2 ] complete=False] entity=[entityName=UNKNOWN ENTITY [cardType=INVALID] id=64 zone=PLAY zonePos=0 cardId= player=2] srcZoneTag=INVALID srcPos= dstZoneTag=INVALID dstPos=");
+                    break;
+                case 1:
+                    lines.add(PREFIX + "ZoneChangeList.ProcessChanges() - START waiting for zone HAND");
+                    break;
+                default:
+                    lines.add(PREFIX + "ZoneMgr.AutoCorrectZonesAfterServerChange() - local zone change list " + random.nextInt(500) + " is complete");
+                    break;
+            }
+        }
+    }
+}
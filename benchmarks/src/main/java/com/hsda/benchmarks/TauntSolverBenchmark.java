@@ -0,0 +1,107 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.BoardSnapshot;
+import com.hsda.analyzer.TauntSolver;
+import com.hsda.models.Card;
+import com.hsda.models.CardDefinition;
+import com.hsda.models.Mechanic;
+import com.hsda.models.Race;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Clearing taunts on full boards: seven friendly minions and a hand of burn against seven taunts.
+// "random" boards have random stats. "tight" boards have exactly as much damage as the taunts have health, so
+// every source has to be used and the search can't stop early.
+// solve searches every time; cached asks a solver that has already seen every board, so it measures hashing the
+// boards and a transposition table hit.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TauntSolverBenchmark {
+    private static final int BOARDS = 64;
+
+    @Param({"random", "tight"})
+    public String boards;
+
+    private List<List<Card>> hands;
+    private List<BoardSnapshot> snapshots;
+    private TauntSolver solver;
+    private TauntSolver cachedSolver;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        hands = new ArrayList<>();
+        snapshots = new ArrayList<>();
+        solver = new TauntSolver(0);
+        cachedSolver = new TauntSolver();
+        int entityId = 4;
+        for (int b = 0; b < BOARDS; b++) {
+            List<Card> friendly = new ArrayList<>();
+            int damage = 0;
+            for (int i = 0; i < 7; i++) {
+                Card c = new Card(minion("Friendly " + i, 1 + random.nextInt(5), 1 + random.nextInt(6), 0, true),
+                        entityId++);
+                friendly.add(c);
+                damage += c.getAttack();
+            }
+            List<Card> hand = new ArrayList<>();
+            hand.add(new Card(spell("CS2_084", "Quick Shot", 2), entityId++));
+            hand.add(new Card(spell("CS2_084", "Quick Shot", 2), entityId++));
+            hand.add(new Card(spell("EX1_539", "Kill Command", 3), entityId++));
+            damage += 11;
+
+            List<Card> enemy = new ArrayList<>();
+            int remaining = damage;
+            for (int i = 0; i < 7; i++) {
+                int health = 1 + random.nextInt(6);
+                if (boards.equals("tight")) {
+                    health = i == 6 ? remaining : damage / 7;
+                    remaining -= health;
+                }
+                enemy.add(new Card(minion("Taunt " + i, 1 + random.nextInt(5), health, Mechanic.TAUNT.bit(), false),
+                        entityId++));
+            }
+            hands.add(hand);
+            snapshots.add(BoardSnapshot.of(friendly, enemy));
+        }
+        for (int b = 0; b < BOARDS; b++) {
+            BoardSnapshot board = snapshots.get(b);
+            cachedSolver.solve(hands.get(b), 10, board.friendly(), board.enemy());
+        }
+        cursor = 0;
+    }
+
+    private static CardDefinition minion(String name, int attack, int health, long mechanics, boolean beast) {
+        return new CardDefinition(name, name, "Minion", attack + health / 2, attack, health, mechanics,
+                beast ? Race.BEAST.bit() : 0);
+    }
+
+    private static CardDefinition spell(String cardId, String name, int cost) {
+        return new CardDefinition(name, cardId, "Spell", cost, 0, 0, 0, 0);
+    }
+
+    @Benchmark
+    public TauntSolver.Plan solve() {
+        int b = cursor;
+        cursor = cursor + 1 == BOARDS ? 0 : cursor + 1;
+        BoardSnapshot board = snapshots.get(b);
+        return solver.solve(hands.get(b), 10, board.friendly(), board.enemy());
+    }
+
+    @Benchmark
+    public TauntSolver.Plan cached() {
+        int b = cursor;
+        cursor = cursor + 1 == BOARDS ? 0 : cursor + 1;
+        BoardSnapshot board = snapshots.get(b);
+        return cachedSolver.solve(hands.get(b), 10, board.friendly(), board.enemy());
+    }
+}
@@ -0,0 +1,170 @@
+package com.hsda.benchmarks;
+
+import com.hsda.analyzer.BoardAggregates;
+import com.hsda.analyzer.BoardSnapshot;
+import com.hsda.log.LogLineClassifier;
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneEntityParser;
+import com.hsda.models.Card;
+import com.hsda.models.CardDefinition;
+import com.hsda.models.CardZone;
+import com.hsda.models.Mechanic;
+import com.hsda.models.Race;
+import com.hsda.models.ZoneStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Replays Zone.log games into a ZoneStore and works out the totals the analyzer starts each turn with, either by
+// copying the hand and boards and going over every card ("recompute", how notifyStart used to) or by reading
+// BoardAggregates kept up to date from the store's change events ("incremental"). Each operation is a whole
+// replay, so the incremental numbers include the cost of handling every event along the way.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TurnStartBenchmark {
+    private static final int GAMES = 20;
+    private static final int HAND = 0;
+    private static final int FRIENDLY_PLAY = 1;
+    private static final int OPPOSING_PLAY = 2;
+    private static final int LEAVE = 3;
+    private static final int GAME_OVER = 4;
+
+    @Param({"recompute", "incremental"})
+    public String mode;
+
+    // One replayed move per entry: what happens, the entity, its card and its zone position.
+    private int[] kinds;
+    private int[] ids;
+    private CardDefinition[] cards;
+    private int[] positions;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, CardDefinition> definitions = new HashMap<>();
+        for (String[] card : SyntheticZoneLog.DECK) {
+            definitions.put(card[0], definition(card[0], card[1], true));
+        }
+        for (String[] card : SyntheticZoneLog.OPPONENT_CARDS) {
+            definitions.put(card[0], definition(card[0], card[1], false));
+        }
+
+        LogLineClassifier classifier = new LogLineClassifier();
+        ZoneEntityParser parser = new ZoneEntityParser();
+        ZoneEntity entity = new ZoneEntity();
+        List<int[]> moves = new ArrayList<>();
+        List<CardDefinition> moveCards = new ArrayList<>();
+        for (String line : SyntheticZoneLog.load(GAMES)) {
+            int kind;
+            switch (classifier.classify(line)) {
+                case TO_FRIENDLY_HAND:
+                    kind = HAND;
+                    break;
+                case TO_FRIENDLY_PLAY:
+                    kind = FRIENDLY_PLAY;
+                    break;
+                case TO_OPPOSING_PLAY:
+                    kind = OPPOSING_PLAY;
+                    break;
+                case TO_FRIENDLY_GRAVEYARD:
+                case TO_OPPOSING_GRAVEYARD:
+                    kind = LEAVE;
+                    break;
+                case VICTORY:
+                case DEFEAT:
+                    kind = GAME_OVER;
+                    break;
+                default:
+                    continue;
+            }
+            parser.parse(line, entity);
+            moves.add(new int[]{kind, entity.getId(), entity.getZonePos()});
+            moveCards.add(definitions.getOrDefault(entity.getCardId(), CardDefinition.placeholder(entity.getCardId())));
+        }
+        kinds = new int[moves.size()];
+        ids = new int[moves.size()];
+        positions = new int[moves.size()];
+        cards = moveCards.toArray(new CardDefinition[0]);
+        for (int i = 0; i < moves.size(); i++) {
+            kinds[i] = moves.get(i)[0];
+            ids[i] = moves.get(i)[1];
+            positions[i] = moves.get(i)[2];
+        }
+    }
+
+    private static CardDefinition definition(String cardId, String name, boolean friendly) {
+        switch (name) {
+            case "Quick Shot":
+            case "Kill Command":
+            case "Freezing Trap":
+            case "Master's Call":
+            case "Fireball":
+                return new CardDefinition(name, cardId, "Spell", 3, 0, 0, 0, 0);
+            case "Eaglehorn Bow":
+                // As CardJson parses it: weapons get no attack or durability.
+                return new CardDefinition(name, cardId, "Weapon", 3, 0, 0, 0, 0);
+            default:
+                int stats = Math.abs(cardId.hashCode());
+                long mechanics = name.equals("Sen'jin Shieldmasta") ? Mechanic.TAUNT.bit() : 0;
+                return new CardDefinition(name, cardId, "Minion", 1 + stats % 6, 1 + stats % 5, 1 + stats % 7,
+                        mechanics, friendly ? Race.BEAST.bit() : 0);
+        }
+    }
+
+    @Benchmark
+    public void replay(Blackhole blackhole) {
+        ZoneStore store = new ZoneStore();
+        BoardAggregates aggregates = null;
+        if (mode.equals("incremental")) {
+            aggregates = new BoardAggregates();
+            store.addListener(aggregates);
+        }
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case HAND:
+                    store.put(new Card(cards[i], ids[i]), CardZone.FRIENDLY_HAND, positions[i]);
+                    // A card drawn outside the mulligan starts our turn.
+                    turnStart(store, aggregates, blackhole);
+                    break;
+                case FRIENDLY_PLAY:
+                    Card played = store.get(ids[i]);
+                    store.put(played != null ? played : new Card(cards[i], ids[i]), CardZone.FRIENDLY_PLAY,
+                            positions[i]);
+                    break;
+                case OPPOSING_PLAY:
+                    store.put(new Card(cards[i], ids[i]), CardZone.OPPOSING_PLAY, positions[i]);
+                    break;
+                case LEAVE:
+                    store.remove(ids[i]);
+                    break;
+                default:
+                    store.clear();
+                    break;
+            }
+        }
+    }
+
+    private static void turnStart(ZoneStore store, BoardAggregates aggregates, Blackhole blackhole) {
+        if (aggregates == null) {
+            aggregates = BoardAggregates.of(new ArrayList<>(store.view(CardZone.FRIENDLY_HAND)),
+                    new ArrayList<>(store.view(CardZone.FRIENDLY_PLAY)),
+                    new ArrayList<>(store.view(CardZone.OPPOSING_PLAY)));
+        } else {
+            aggregates.refresh();
+        }
+        blackhole.consume(aggregates.maxFaceDamage(false, false));
+        blackhole.consume(aggregates.count(CardZone.OPPOSING_PLAY, BoardSnapshot.TAUNT));
+        blackhole.consume(aggregates.health(CardZone.OPPOSING_PLAY, BoardSnapshot.TAUNT));
+        blackhole.consume(aggregates.count(CardZone.FRIENDLY_PLAY, BoardSnapshot.TUNDRA_RHINO));
+        blackhole.consume(aggregates.count(CardZone.FRIENDLY_HAND, BoardAggregates.THE_COIN));
+    }
+}
@@ -0,0 +1,140 @@
+package com.hsda.benchmarks;
+
+import com.hsda.log.LogLineClassifier;
+import com.hsda.log.LogLineType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The classifier must sort every line the way the contains() chain it replaced did.
+public class LogLineClassifierTest {
+    private static final String[] MARKERS = {
+            "BEGIN_MULLIGAN",
+            "tag=NUM_CARDS_DRAWN_THIS_TURN value=1",
+            "from FRIENDLY DECK -> FRIENDLY GRAVEYARD",
+            "from OPPOSING PLAY -> OPPOSING HAND",
+            "TRANSITIONING card",
+            "to FRIENDLY HAND",
+            "to FRIENDLY DECK",
+            "to FRIENDLY PLAY",
+            "to FRIENDLY GRAVEYARD",
+            "to FRIENDLY SECRET",
+            "to OPPOSING HAND",
+            "to OPPOSING PLAY",
+            "to OPPOSING GRAVEYARD",
+            "(Hero) -> OPPOSING GRAVEYARD",
+            "(Hero) -> FRIENDLY GRAVEYARD",
+            "from FRIENDLY HAND -> FRIENDLY DECK"
+    };
+
+    // The codes LineClassifierBenchmark.classifyWithContains returns for each type.
+    private static final Map<LogLineType, Integer> CODES = new EnumMap<>(LogLineType.class);
+
+    static {
+        CODES.put(LogLineType.IGNORED, 0);
+        CODES.put(LogLineType.MULLIGAN_MARKER, 1);
+        CODES.put(LogLineType.FIRST_DRAW_MARKER, 2);
+        CODES.put(LogLineType.CARD_BURNED, 3);
+        CODES.put(LogLineType.OPPONENT_MINION_BOUNCED, 4);
+        CODES.put(LogLineType.TO_FRIENDLY_HAND, 5);
+        CODES.put(LogLineType.TO_FRIENDLY_DECK, 6);
+        CODES.put(LogLineType.TO_FRIENDLY_PLAY, 7);
+        CODES.put(LogLineType.TO_FRIENDLY_GRAVEYARD, 8);
+        CODES.put(LogLineType.TO_FRIENDLY_SECRET, 9);
+        CODES.put(LogLineType.TO_OPPOSING_HAND, 10);
+        CODES.put(LogLineType.TO_OPPOSING_PLAY, 11);
+        CODES.put(LogLineType.TO_OPPOSING_GRAVEYARD, 12);
+        CODES.put(LogLineType.VICTORY, 13);
+        CODES.put(LogLineType.DEFEAT, 14);
+        // Mulligan returns came after the chain, which let them through as nothing.
+        CODES.put(LogLineType.MULLIGAN_RETURN, 0);
+    }
+
+    private final LogLineClassifier classifier = new LogLineClassifier();
+
+    @Test
+    public void matchesTheContainsChainOnTheSyntheticLog() throws IOException {
+        assertMatches(SyntheticZoneLog.load(20));
+    }
+
+    @Test
+    public void matchesTheContainsChainOnNonAsciiNames() {
+        List<String> lines = new ArrayList<>();
+        String[] names = {
+                "Ragnaros, l'Élémentaire de feu",
+                "ラグナロス",
+                "Рагнарос Повелитель огня",
+                // Chars whose low byte is the ASCII letter a marker expects: Ŕ is U+0154 and Ő is U+0150.
+                "ŔRANSITIONING card",
+                "Őlayer to FRIENDLY ŐLAY"
+        };
+        for (String name : names) {
+            for (String to : new String[]{"FRIENDLY HAND", "FRIENDLY PLAY", "OPPOSING PLAY", "OPPOSING GRAVEYARD"}) {
+                lines.add(SyntheticZoneLog.transition(new String[]{"EX1_298", name}, 12, "PLAY", 1, 1, to));
+            }
+            lines.add(SyntheticZoneLog.zoneChange(new String[]{"EX1_298", name}, 12, "PLAY", 1, 2, "OPPOSING PLAY",
+                    "OPPOSING HAND"));
+        }
+        lines.add("D 00:00:00.0000000 ŔRANSITIONING card [entityName=x id=3] to FRIENDLY HAND");
+        lines.add("D 00:00:00.0000000 TRANSITIONING card [entityName=x id=3] to FRIENDLY ŐLAY");
+        lines.add("D 00:00:00.0000000 [entityName=Jaina (Hero) id=64] zone from OPPOSING PLAY -> OPPOSING ĠRAVEYARD");
+        lines.add("D 00:00:00.0000000 ŁEGIN_MULLIGAN");
+        assertMatches(lines);
+    }
+
+    @Test
+    public void matchesTheContainsChainWithMarkersAtTheEdges() {
+        List<String> lines = new ArrayList<>();
+        for (String marker : MARKERS) {
+            lines.add(marker);
+            lines.add(marker + " [entityName=Leper Gnome id=12]");
+            lines.add("[entityName=Leper Gnome id=12] " + marker);
+            // Cut short by a character at either end.
+            lines.add(marker.substring(1));
+            lines.add(marker.substring(0, marker.length() - 1));
+            lines.add("[entityName=Leper Gnome id=12] " + marker.substring(0, marker.length() - 1));
+        }
+        lines.add("");
+        lines.add("T");
+        lines.add("TRANSITIONING car");
+        assertMatches(lines);
+    }
+
+    @Test
+    public void matchesTheContainsChainWithMarkersAtEveryOffset() {
+        // The window jumps along the line, so every marker is tried at each position within two window widths.
+        List<String> lines = new ArrayList<>();
+        StringBuilder padding = new StringBuilder();
+        for (int offset = 0; offset < 2 * "BEGIN_MULLIGAN".length() + 1; offset++) {
+            for (String marker : MARKERS) {
+                lines.add(padding + marker);
+                lines.add(padding + marker + padding);
+                lines.add("TRANSITIONING card" + padding + marker);
+                lines.add("TRANSITIONING card (Hero)" + padding + marker);
+                lines.add("TRANSITIONING card (Hero Power)" + padding + marker);
+            }
+            padding.append(offset % 3 == 0 ? ' ' : (char) ('a' + offset % 26));
+        }
+        // Past the classifier's initial buffer.
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 2000) {
+            longLine.append("entityName=Leper Gnome ");
+        }
+        lines.add(longLine + "TRANSITIONING card to OPPOSING PLAY");
+        lines.add("TRANSITIONING card " + longLine + "to FRIENDLY SECRET");
+        assertMatches(lines);
+    }
+
+    private void assertMatches(List<String> lines) {
+        for (String line : lines) {
+            assertEquals(LineClassifierBenchmark.classifyWithContains(line, true),
+                    (int) CODES.get(classifier.classify(line)), line);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.hsda;
+
+import com.hsda.analyzer.AnalysisMetrics;
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.LogLineClassifier;
+import com.hsda.log.LogLineType;
+import com.hsda.models.GameState;
+import com.hsda.service.CardFetcherService;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Replays many recorded logs on several threads at once. Logs are cut into games after each hero death, and the
+// games are handed out to a pool of replays that each have their own GameState and analyzer, sharing only the card
+// service, whose catalog and store are read-only here. Since a game starts from a state that has just ended one, the
+// recommendations come out as they would from a single Replay, and they are written in the order of the logs.
+// With -Dhsda.planner=mcts the replay threads share one search pool, so use fewer of them.
+public final class BatchReplay {
+    // Games read ahead of the one being written, per thread.
+    private static final int READ_AHEAD = 4;
+
+    private final List<Replay> replays;
+    private final BlockingQueue<Replay> idle;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final PrintStream out;
+    private final Deque<Future<String>> inFlight;
+
+    private long files;
+    private long nanos;
+
+    public BatchReplay(CardFetcherService service, int threads, PrintStream out)
+            throws IOException, InterruptedException {
+        replays = new ArrayList<>(threads);
+        idle = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            GameState state = new GameState(service);
+            Replay replay = new Replay(state, new GameStateAnalyzer(state), out);
+            replays.add(replay);
+            idle.add(replay);
+        }
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maxInFlight = threads * READ_AHEAD;
+        this.out = out;
+        inFlight = new ArrayDeque<>();
+    }
+
+    public void replay(List<Path> paths) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        LogLineClassifier classifier = new LogLineClassifier();
+        try {
+            for (Path path : paths) {
+                String source = path.toString();
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    List<String> game = new ArrayList<>();
+                    long firstLine = 1;
+                    long lineNumber = 0;
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        game.add(line);
+                        LogLineType type = classifier.classify(line);
+                        if (type == LogLineType.VICTORY || type == LogLineType.DEFEAT) {
+                            submit(source, firstLine, game);
+                            game = new ArrayList<>();
+                            firstLine = lineNumber + 1;
+                        }
+                    }
+                    if (!game.isEmpty()) {
+                        submit(source, firstLine, game);
+                    }
+                }
+                files++;
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext();
+            }
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    private void submit(String source, long firstLine, List<String> game) throws IOException, InterruptedException {
+        while (inFlight.size() >= maxInFlight) {
+            writeNext();
+        }
+        inFlight.add(executor.submit(() -> {
+            Replay replay = idle.take();
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                replay.setOutput(new PrintStream(bytes, false, StandardCharsets.UTF_8));
+                replay.replay(source, firstLine, game);
+                return bytes.toString(StandardCharsets.UTF_8);
+            } finally {
+                idle.add(replay);
+            }
+        }));
+    }
+
+    // Waits for the oldest game still being replayed and writes what it produced.
+    private void writeNext() throws IOException, InterruptedException {
+        try {
+            out.print(inFlight.remove().get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Replay failed", e.getCause());
+        }
+    }
+
+    public void printSummary() {
+        long lines = 0;
+        long games = 0;
+        long recommendations = 0;
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        for (Replay replay : replays) {
+            lines += replay.getLines();
+            games += replay.getGames();
+            recommendations += replay.getRecommendations();
+            metrics.add(replay.getMetrics());
+        }
+        Replay.printSummary(out, files, lines, games, recommendations, nanos, metrics);
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
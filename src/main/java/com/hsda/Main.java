@@ -1,99 +1,183 @@
 package com.hsda;
 
 import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.RecordingReader;
+import com.hsda.log.RecordingWriter;
+import com.hsda.log.ZoneLogDispatcher;
+import com.hsda.log.ZoneLogTailer;
+import com.hsda.metrics.PipelineMetrics;
 import com.hsda.models.GameState;
+import com.hsda.server.SessionServer;
 
+import javax.management.JMException;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
-
-import static java.lang.Thread.sleep;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
+    private static final long DEFAULT_METRICS_DUMP_SECONDS = 60;
 
     public static void main(String[] args) throws IOException, InterruptedException {
         System.out.println("Retrieving card data, please wait...");
+        long startupBegin = System.nanoTime();
         GameState state = new GameState();
         GameStateAnalyzer analyzer = new GameStateAnalyzer(state);
+        System.out.println("Card data ready in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupBegin) + " ms.");
+        // Pipeline latencies and counters are under com.hsda in JMX (jconsole, VisualVM), unless -Dhsda.metrics=off.
+        try {
+            PipelineMetrics.global().registerMBeans();
+        } catch (JMException e) {
+            System.out.println("Could not register metrics MBeans: " + e.getMessage());
+        }
+
+        // --server [<directory>...] advises every log streamed to -Dhsda.server.port=<port> (7070 by default, a
+        // negative port for none) or written to one of the directories, until the process is stopped.
+        if (args.length > 0 && args[0].equals("--server")) {
+            startMetricsDump();
+            serve(state, Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // --replay <Zone.log>... goes through recorded logs at full speed and exits, on -Dhsda.replay.threads=<n>
+        // threads (all cores by default). Recordings made with --record or -Dhsda.record are replayed on one.
+        if (args.length > 0 && args[0].equals("--replay")) {
+            replay(state, analyzer, Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // --record <Zone.log> <recording> replays a log once to write down its events, for faster replays.
+        if (args.length == 3 && args[0].equals("--record")) {
+            record(state, analyzer, Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+
         Scanner example = new Scanner(System.in);
 	    System.out.println("Please provide link to Zone.log file: ");
 	    String path = example.nextLine();
-	    File zoneLog = new File(path);
+	    ZoneLogTailer tailer = new ZoneLogTailer(Paths.get(path));
 
-	    if (!zoneLog.exists()) {
+	    if (!Files.exists(tailer.getPath())) {
 	        System.out.println("Waiting for zone log to be generated...");
         }
-	    while(!zoneLog.exists()) {
-	        sleep(1);
+	    tailer.awaitFile();
+
+        startMetricsDump();
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        // -Dhsda.record=<file> records the events of this session as they come.
+        String recording = System.getProperty("hsda.record");
+        if (recording != null) {
+            RecordingWriter recorder = new RecordingWriter(Paths.get(recording));
+            dispatcher.setRecorder(recorder);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    //Exiting anyway.
+                }
+            }));
         }
 
-        BufferedInputStream bis = new BufferedInputStream(new FileInputStream(path));
-        BufferedReader reader = new BufferedReader(new InputStreamReader(bis, StandardCharsets.UTF_8));
+        // Advice is printed as soon as it is ready, since better plans can arrive while we wait for the log.
+        Thread printer = new Thread(() -> {
+            try {
+                while (true) {
+                    System.out.println(analyzer.takeMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "advice-printer");
+        printer.setDaemon(true);
+        printer.start();
 
         while (true) {
-            if (reader.ready()) {
-                String nextLine = reader.readLine();
-                if (nextLine.contains("BEGIN_MULLIGAN")) {
-                    state.beginMulligan();
-                } else if (state.isInMulligan() && nextLine.contains("tag=NUM_CARDS_DRAWN_THIS_TURN value=1")) {
-                    state.beginGame();
-                } else if (nextLine.contains("from FRIENDLY DECK -> FRIENDLY GRAVEYARD")) {
-                    state.burnedCard();
-                } else if (nextLine.contains("from OPPOSING PLAY -> OPPOSING HAND")) {
-                    state.opponentMinionBounced(nextLine);
-                } else if (nextLine.contains("TRANSITIONING card")) {
-                    if (nextLine.contains("to FRIENDLY HAND")) {
-                        state.addCardToHand(nextLine);
-                    } else if (nextLine.contains("to FRIENDLY DECK")
-                            && !nextLine.contains("(Hero)")
-                            && !nextLine.contains("(Hero Power)")) {
-                        nextLine = reader.readLine();
-                        if (nextLine != null) {
-                            if (nextLine.contains("from FRIENDLY HAND -> FRIENDLY DECK")) {
-                                state.mulliganCard(nextLine);
-                            }
-                        }
-                    } else if (nextLine.contains("to FRIENDLY PLAY")
-                            && !nextLine.contains("(Hero)")
-                            && !nextLine.contains("(Hero Power)")) {
-                        state.addCardToFriendlyBoard(nextLine);
-                    } else if (nextLine.contains("to FRIENDLY GRAVEYARD")
-                            && !nextLine.contains("(Hero)")
-                            && !nextLine.contains("(Hero Power)")) {
-                        state.cardToFriendlyGraveyard(nextLine);
-                    } else if (nextLine.contains("to FRIENDLY SECRET")) {
-                        state.addFriendlySecret(nextLine);
-                    } else if (nextLine.contains("to OPPOSING HAND")) {
-                        state.addCardToOpposingHand();
-                    } else if (nextLine.contains("to OPPOSING PLAY")
-                            && !nextLine.contains("(Hero)")
-                            && !nextLine.contains("(Hero Power)")) {
-                        state.addCardToOpposingBoard(nextLine);
-                    } else if (nextLine.contains("to OPPOSING GRAVEYARD")
-                            && !nextLine.contains("(Hero)")
-                            && !nextLine.contains("(Hero Power)")) {
-                        state.cardToOpposingGraveyard(nextLine);
-                    } else {
-                        //Dummy call, we should ignore everything that hits this case
-                        //could make a verbose mode?
-                        //System.out.println(nextLine);
-                    }
-                } else if (nextLine.contains("(Hero) -> OPPOSING GRAVEYARD")) {
-                    System.out.println("Game over, victory!");
-                    state.gameEnded();
-                } else if (nextLine.contains("(Hero) -> FRIENDLY GRAVEYARD")) {
-                    System.out.println("Game over, defeat.");
-                    state.gameEnded();
-                }
-            } else {
-                sleep(10);
+            dispatcher.dispatch(tailer.nextLine());
+        }
+
+    }
+
+    // -Dhsda.metrics.dumpSeconds=<n> prints the pipeline metrics to stderr every n seconds (every minute by default,
+    // 0 for never), away from the advice on stdout.
+    private static void startMetricsDump() {
+        long seconds = Long.getLong("hsda.metrics.dumpSeconds", DEFAULT_METRICS_DUMP_SECONDS);
+        if (seconds > 0) {
+            PipelineMetrics.global().startDumping(System.err, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void serve(GameState state, String[] directories) throws IOException, InterruptedException {
+        SessionServer server = new SessionServer(state.getCardService(), System.out);
+        // Open sessions are reported as often as the metrics are dumped.
+        long reportSeconds = Long.getLong("hsda.metrics.dumpSeconds", DEFAULT_METRICS_DUMP_SECONDS);
+        if (reportSeconds > 0) {
+            server.startReporting(reportSeconds, TimeUnit.SECONDS);
+        }
+        int port = Integer.getInteger("hsda.server.port", 7070);
+        if (port >= 0) {
+            server.listen(port);
+        }
+        for (String directory : directories) {
+            server.watch(Paths.get(directory));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                //Exiting anyway.
             }
+        }));
+        Thread.sleep(Long.MAX_VALUE);
+    }
 
-            // If the analyzer has any messages queued, print them.
-            while(analyzer.hasMessage()) {
-                System.out.println(analyzer.getMessage());
+    private static void replay(GameState state, GameStateAnalyzer analyzer, String[] paths)
+            throws IOException, InterruptedException {
+        // Nobody is watching the output as it's written, so it doesn't need flushing after every line.
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, "UTF-8");
+        System.setOut(out);
+        int threads = Math.max(Integer.getInteger("hsda.replay.threads", Runtime.getRuntime().availableProcessors()), 1);
+        for (String path : paths) {
+            if (RecordingReader.isRecording(Paths.get(path))) {
+                threads = 1;
             }
         }
+        if (threads == 1) {
+            Replay replay = new Replay(state, analyzer, out);
+            for (String path : paths) {
+                replay.replay(Paths.get(path));
+            }
+            replay.printSummary();
+        } else {
+            BatchReplay batch = new BatchReplay(state.getCardService(), threads, out);
+            List<Path> files = new ArrayList<>();
+            for (String path : paths) {
+                files.add(Paths.get(path));
+            }
+            batch.replay(files);
+            batch.printSummary();
+            batch.shutdown();
+        }
+        out.print(PipelineMetrics.global().dump());
+        out.flush();
+    }
 
+    private static void record(GameState state, GameStateAnalyzer analyzer, Path log, Path recording)
+            throws IOException {
+        PrintStream discarded = new PrintStream(OutputStream.nullOutputStream());
+        long start = System.nanoTime();
+        try (RecordingWriter recorder = new RecordingWriter(recording)) {
+            Replay replay = new Replay(state, analyzer, discarded);
+            replay.setRecorder(recorder);
+            replay.replay(log);
+            System.out.println("Recorded " + recorder.getEvents() + " events from " + log + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        }
+        System.out.println(Files.size(log) + " bytes of log, " + Files.size(recording) + " bytes of recording.");
     }
 }
@@ -0,0 +1,163 @@
+package com.hsda;
+
+import com.hsda.analyzer.AnalysisMetrics;
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.LogLineType;
+import com.hsda.log.RecordingReader;
+import com.hsda.log.RecordingWriter;
+import com.hsda.log.ZoneEntity;
+import com.hsda.log.ZoneLogDispatcher;
+import com.hsda.models.GameState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs recorded Zone.log files through the game state and analyzer as fast as they can be read, instead of
+// following a live log. Every recommendation is written as "<file>:<line>: <message>", the line being the one
+// that was dispatched just before it was published, which for a turn's advice is the draw that started the turn.
+// Each file is treated as a separate session: whatever game it ends in the middle of is ended with it.
+// Files written by RecordingWriter are read as the events they hold, which skips classifying and parsing the log
+// they were recorded from, and their line numbers are those of that log.
+public final class Replay {
+    private final GameState state;
+    private final GameStateAnalyzer analyzer;
+    private PrintStream out;
+    // Null unless the events of the logs replayed are being recorded.
+    private RecordingWriter recorder;
+
+    private long lines;
+    private long games;
+    private long recommendations;
+    private long files;
+    private long nanos;
+
+    public Replay(GameState state, GameStateAnalyzer analyzer, PrintStream out) {
+        this.state = state;
+        this.analyzer = analyzer;
+        setOutput(out);
+        // What a replay advises mustn't depend on how fast the card API answers.
+        state.setWaitForFetches(true);
+    }
+
+    // Recommendations and the state's own status lines go here from now on.
+    void setOutput(PrintStream out) {
+        this.out = out;
+        state.setOutput(out);
+    }
+
+    // Records the events of the text logs replayed from now on. Recordings aren't recorded again.
+    public void setRecorder(RecordingWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    public void replay(Path path) throws IOException {
+        long start = System.nanoTime();
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        try {
+            if (RecordingReader.isRecording(path)) {
+                replayRecording(dispatcher, path);
+            } else {
+                dispatcher.setRecorder(recorder);
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    long lineNumber = 0;
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        dispatch(dispatcher, path.toString(), ++lineNumber, line);
+                    }
+                }
+            }
+        } finally {
+            state.gameEnded();
+            files++;
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    // Replays part of a log on its own, starting from a state that has just ended a game: one game of it, or
+    // everything after the last game that finished. The state is left having ended a game again.
+    void replay(String source, long firstLineNumber, List<String> part) {
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        long lineNumber = firstLineNumber;
+        try {
+            for (String line : part) {
+                dispatch(dispatcher, source, lineNumber++, line);
+            }
+        } finally {
+            state.gameEnded();
+        }
+    }
+
+    // Lines count as replayed up to the last one an event came from.
+    private void replayRecording(ZoneLogDispatcher dispatcher, Path path) throws IOException {
+        String source = path.toString();
+        ZoneEntity entity = new ZoneEntity();
+        try (RecordingReader reader = new RecordingReader(path)) {
+            try {
+                LogLineType type;
+                while ((type = reader.next(entity)) != null) {
+                    dispatcher.handle(type, entity);
+                    handled(source, reader.getLineNumber(), type);
+                }
+            } finally {
+                lines += reader.getLineNumber();
+            }
+        }
+    }
+
+    private void dispatch(ZoneLogDispatcher dispatcher, String source, long lineNumber, String line) {
+        lines++;
+        handled(source, lineNumber, dispatcher.dispatch(line));
+    }
+
+    private void handled(String source, long lineNumber, LogLineType type) {
+        if (type == LogLineType.VICTORY || type == LogLineType.DEFEAT) {
+            games++;
+        }
+        // With the tree search planner, the better lines it finds belong to this line too, and the next would
+        // stop it straight away. So each search gets its full time, as it would in a live game.
+        try {
+            analyzer.awaitSearch();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (analyzer.hasMessage()) {
+            out.println(source + ":" + lineNumber + ": " + analyzer.getMessage());
+            recommendations++;
+        }
+    }
+
+    long getLines() {
+        return lines;
+    }
+
+    long getGames() {
+        return games;
+    }
+
+    long getRecommendations() {
+        return recommendations;
+    }
+
+    AnalysisMetrics getMetrics() {
+        return analyzer.getMetrics();
+    }
+
+    public void printSummary() {
+        printSummary(out, files, lines, games, recommendations, nanos, analyzer.getMetrics());
+    }
+
+    static void printSummary(PrintStream out, long files, long lines, long games, long recommendations, long nanos,
+                             AnalysisMetrics metrics) {
+        double seconds = Math.max(nanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("Replayed %d lines from %d files in %d ms: %d games, %d recommendations.%n",
+                lines, files, TimeUnit.NANOSECONDS.toMillis(nanos), games, recommendations);
+        out.printf("%.0f lines/s, %.1f games/s%n", lines / seconds, games / seconds);
+        out.println("Analysis: " + metrics);
+    }
+}
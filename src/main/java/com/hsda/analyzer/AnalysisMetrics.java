@@ -0,0 +1,131 @@
+package com.hsda.analyzer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// How long analyses take and how they end. Updated from the log thread and from search workers.
+// An analysis is the first answer for a turn, which is always published straight away. A search is the background
+// work on a better answer that may follow it, which ends at the deadline, or early when the game moves on.
+public final class AnalysisMetrics {
+    private final LongAdder analyses = new LongAdder();
+    private final LongAdder analysisNanos = new LongAdder();
+    private final AtomicLong maxAnalysisNanos = new AtomicLong();
+    private final LongAdder analysesOverDeadline = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchDeadlineHits = new LongAdder();
+    private final LongAdder rollouts = new LongAdder();
+    private final LongAdder rolloutNanos = new LongAdder();
+    private final LongAdder staleSearches = new LongAdder();
+    private final LongAdder improvements = new LongAdder();
+    private final LongAdder droppedMessages = new LongAdder();
+
+    void analysisFinished(long nanos, long deadlineNanos) {
+        analyses.increment();
+        analysisNanos.add(nanos);
+        maxAnalysisNanos.accumulateAndGet(nanos, Math::max);
+        if (nanos > deadlineNanos) {
+            analysesOverDeadline.increment();
+        }
+    }
+
+    void searchStarted() {
+        searches.increment();
+    }
+
+    void searchHitDeadline(long rollouts, long nanos) {
+        searchDeadlineHits.increment();
+        this.rollouts.add(rollouts);
+        rolloutNanos.add(nanos);
+    }
+
+    void searchWentStale() {
+        staleSearches.increment();
+    }
+
+    void improvementPublished() {
+        improvements.increment();
+    }
+
+    void messagesDropped(int count) {
+        droppedMessages.add(count);
+    }
+
+    // Adds another analyzer's counts to these, for totals over analyzers that ran side by side.
+    public void add(AnalysisMetrics other) {
+        analyses.add(other.analyses.sum());
+        analysisNanos.add(other.analysisNanos.sum());
+        maxAnalysisNanos.accumulateAndGet(other.maxAnalysisNanos.get(), Math::max);
+        analysesOverDeadline.add(other.analysesOverDeadline.sum());
+        searches.add(other.searches.sum());
+        searchDeadlineHits.add(other.searchDeadlineHits.sum());
+        rollouts.add(other.rollouts.sum());
+        rolloutNanos.add(other.rolloutNanos.sum());
+        staleSearches.add(other.staleSearches.sum());
+        improvements.add(other.improvements.sum());
+        droppedMessages.add(other.droppedMessages.sum());
+    }
+
+    public long getAnalyses() {
+        return analyses.sum();
+    }
+
+    public double getMeanAnalysisMillis() {
+        long n = analyses.sum();
+        return n == 0 ? 0 : analysisNanos.sum() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxAnalysisMillis() {
+        return maxAnalysisNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Analyses whose first answer came after the deadline had already passed.
+    public long getAnalysesOverDeadline() {
+        return analysesOverDeadline.sum();
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    // Searches that ran until the deadline stopped them.
+    public long getSearchDeadlineHits() {
+        return searchDeadlineHits.sum();
+    }
+
+    // Playouts done by the searches that ran until the deadline.
+    public long getRollouts() {
+        return rollouts.sum();
+    }
+
+    public long getRolloutsPerSecond() {
+        long nanos = rolloutNanos.sum();
+        return nanos == 0 ? 0 : rollouts.sum() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    // Searches stopped early because the game state changed under them.
+    public long getStaleSearches() {
+        return staleSearches.sum();
+    }
+
+    // Better plans published after the first answer.
+    public long getImprovements() {
+        return improvements.sum();
+    }
+
+    // Messages that never reached the player because too many were waiting to be read.
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d analyses (mean %.2f ms, max %.2f ms, %d over deadline), %d searches "
+                        + "(%d hit the deadline after %d rollouts at %d/s, %d went stale, %d improvements), "
+                        + "%d messages dropped",
+                getAnalyses(), getMeanAnalysisMillis(), getMaxAnalysisMillis(), getAnalysesOverDeadline(),
+                getSearches(), getSearchDeadlineHits(), getRollouts(), getRolloutsPerSecond(), getStaleSearches(),
+                getImprovements(),
+                getDroppedMessages());
+    }
+}
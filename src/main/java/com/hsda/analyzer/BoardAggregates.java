@@ -0,0 +1,212 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.Card;
+import com.hsda.models.CardZone;
+import com.hsda.models.GameStateListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Running totals over our hand, our board and the opponent's board, kept up to date from GameState's change
+// events so the start of a turn doesn't have to go over every card to know what it's working with.
+// For each zone it keeps how many cards there are and their attack and health, in all and per flag: the
+// BoardSnapshot flags plus the ones below for what's in our hand.
+// A card whose data is still being fetched is counted with the placeholder's stats when it arrives, and counted
+// again by refresh() once the data is in, as a card being filled in isn't a change event.
+public final class BoardAggregates implements GameStateListener {
+    public static final int QUICK_SHOT = 1 << 6;
+    public static final int KILL_COMMAND = 1 << 7;
+    public static final int EAGLEHORN_BOW = 1 << 8;
+    public static final int THE_COIN = 1 << 9;
+    // Minions that can go face the turn they are played with a Tundra Rhino out, as BurstDamageSolver counts them.
+    public static final int CHARGER = 1 << 10;
+    private static final int FLAG_BITS = 11;
+
+    private static final int BOW_DAMAGE = 3;
+    private static final int HERO_POWER_DAMAGE = 2;
+    private static final int QUICK_SHOT_DAMAGE = 3;
+    private static final int KILL_COMMAND_BEAST_DAMAGE = 5;
+
+    private final Map<CardZone, Totals> totals;
+    private final Map<Card, Entry> entries;
+    // Cards that were counted before their data arrived.
+    private final List<Card> unresolved;
+
+    public BoardAggregates() {
+        totals = new EnumMap<>(CardZone.class);
+        totals.put(CardZone.FRIENDLY_HAND, new Totals());
+        totals.put(CardZone.FRIENDLY_PLAY, new Totals());
+        totals.put(CardZone.OPPOSING_PLAY, new Totals());
+        entries = new IdentityHashMap<>();
+        unresolved = new ArrayList<>();
+    }
+
+    // Builds the totals for these cards from scratch, the way every turn used to start.
+    public static BoardAggregates of(List<Card> hand, List<Card> friendlyBoard, List<Card> enemyBoard) {
+        BoardAggregates aggregates = new BoardAggregates();
+        for (Card c : hand) {
+            aggregates.cardEntered(c, CardZone.FRIENDLY_HAND);
+        }
+        for (Card c : friendlyBoard) {
+            aggregates.cardEntered(c, CardZone.FRIENDLY_PLAY);
+        }
+        for (Card c : enemyBoard) {
+            aggregates.cardEntered(c, CardZone.OPPOSING_PLAY);
+        }
+        return aggregates;
+    }
+
+    @Override
+    public void cardEntered(Card card, CardZone zone) {
+        Totals t = totals.get(zone);
+        if (t == null) {
+            return;
+        }
+        Entry entry = new Entry(zone, card);
+        entries.put(card, entry);
+        t.add(entry, 1);
+        if (!entry.resolved) {
+            unresolved.add(card);
+        }
+    }
+
+    @Override
+    public void cardLeft(Card card, CardZone zone) {
+        Entry entry = entries.remove(card);
+        if (entry != null) {
+            totals.get(entry.zone).add(entry, -1);
+        }
+    }
+
+    // Recounts the cards whose data has arrived since they were counted. Call before reading the totals.
+    public void refresh() {
+        for (Iterator<Card> it = unresolved.iterator(); it.hasNext(); ) {
+            Card c = it.next();
+            Entry old = entries.get(c);
+            if (old == null) {
+                it.remove();
+            } else if (c.isResolved()) {
+                it.remove();
+                Totals t = totals.get(old.zone);
+                t.add(old, -1);
+                Entry fresh = new Entry(old.zone, c);
+                entries.put(c, fresh);
+                t.add(fresh, 1);
+            }
+        }
+    }
+
+    public int size(CardZone zone) {
+        return totals.get(zone).count;
+    }
+
+    // How many cards in the zone have the flag, which must be a single bit.
+    public int count(CardZone zone, int flag) {
+        return totals.get(zone).countBy[bit(flag)];
+    }
+
+    public int attack(CardZone zone) {
+        return totals.get(zone).attack;
+    }
+
+    public int attack(CardZone zone, int flag) {
+        return totals.get(zone).attackBy[bit(flag)];
+    }
+
+    public int health(CardZone zone, int flag) {
+        return totals.get(zone).healthBy[bit(flag)];
+    }
+
+    // The most damage our hand and board could possibly send at the opponent's face this turn, with unlimited
+    // mana and board space. Never less than what BurstDamageSolver finds, so if this isn't lethal nothing is.
+    public int maxFaceDamage(boolean alreadyAttacked, boolean bowEquipped) {
+        int damage = HERO_POWER_DAMAGE
+                + count(CardZone.FRIENDLY_HAND, QUICK_SHOT) * QUICK_SHOT_DAMAGE
+                + count(CardZone.FRIENDLY_HAND, KILL_COMMAND) * KILL_COMMAND_BEAST_DAMAGE;
+        int wolvesInHand = count(CardZone.FRIENDLY_HAND, BoardSnapshot.TIMBER_WOLF);
+        int wolves = wolvesInHand + count(CardZone.FRIENDLY_PLAY, BoardSnapshot.TIMBER_WOLF);
+        damage += attack(CardZone.FRIENDLY_HAND, CHARGER) + count(CardZone.FRIENDLY_HAND, CHARGER) * wolves;
+        if (!alreadyAttacked) {
+            damage += attack(CardZone.FRIENDLY_PLAY)
+                    + count(CardZone.FRIENDLY_PLAY, BoardSnapshot.BEAST) * wolvesInHand;
+            // A bow's definition has no attack (CardJson reads it for minions only), so count what it hits for.
+            if (bowEquipped || count(CardZone.FRIENDLY_HAND, EAGLEHORN_BOW) > 0) {
+                damage += BOW_DAMAGE;
+            }
+        }
+        return damage;
+    }
+
+    private static int bit(int flag) {
+        return Integer.numberOfTrailingZeros(flag);
+    }
+
+    private static int flagsOf(Card c) {
+        int flags = BoardSnapshot.flagsOf(c);
+        switch (c.getName().toLowerCase(Locale.ROOT)) {
+            case "quick shot":
+                flags |= QUICK_SHOT;
+                break;
+            case "kill command":
+                flags |= KILL_COMMAND;
+                break;
+            case "eaglehorn bow":
+                flags |= EAGLEHORN_BOW;
+                break;
+            case "the coin":
+                flags |= THE_COIN;
+                break;
+            default:
+                break;
+        }
+        if ((flags & BoardSnapshot.MINION) != 0 && (flags & BoardSnapshot.BEAST) != 0
+                || (flags & (BoardSnapshot.TUNDRA_RHINO | BoardSnapshot.TIMBER_WOLF)) != 0) {
+            flags |= CHARGER;
+        }
+        return flags;
+    }
+
+    // What a card added to its zone's totals, so exactly that can be taken off again.
+    private static final class Entry {
+        final CardZone zone;
+        final boolean resolved;
+        final int attack;
+        final int health;
+        final int flags;
+
+        Entry(CardZone zone, Card card) {
+            this.zone = zone;
+            // Read first: a card's stats are written before it reads as resolved.
+            this.resolved = card.isResolved();
+            this.attack = card.getAttack();
+            this.health = card.getHealth();
+            this.flags = flagsOf(card);
+        }
+    }
+
+    private static final class Totals {
+        int count;
+        int attack;
+        int health;
+        final int[] countBy = new int[FLAG_BITS];
+        final int[] attackBy = new int[FLAG_BITS];
+        final int[] healthBy = new int[FLAG_BITS];
+
+        void add(Entry entry, int sign) {
+            count += sign;
+            attack += sign * entry.attack;
+            health += sign * entry.health;
+            for (int flags = entry.flags; flags != 0; flags &= flags - 1) {
+                int b = Integer.numberOfTrailingZeros(flags);
+                countBy[b] += sign;
+                attackBy[b] += sign * entry.attack;
+                healthBy[b] += sign * entry.health;
+            }
+        }
+    }
+}
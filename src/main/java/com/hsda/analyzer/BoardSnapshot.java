@@ -0,0 +1,233 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.Card;
+import com.hsda.models.CardZone;
+import com.hsda.models.Mechanic;
+import com.hsda.models.Race;
+import com.hsda.models.Zobrist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Both boards copied into parallel primitive arrays at the start of an analysis.
+// The turn planner reads minion stats over and over while it works out attacks and trades, so instead of going
+// through Card getters and name comparisons each time, everything it looks at is an int: the minion's stats,
+// cost and a set of flag bits decided once when the snapshot is taken. The Card itself is only needed again
+// to name the minion in a message.
+public final class BoardSnapshot {
+    public static final int MINION = 1;
+    public static final int TAUNT = 1 << 1;
+    public static final int BEAST = 1 << 2;
+    public static final int TUNDRA_RHINO = 1 << 3;
+    public static final int TIMBER_WOLF = 1 << 4;
+    public static final int STARVING_BUZZARD = 1 << 5;
+
+    private final Side friendly;
+    private final Side enemy;
+
+    private BoardSnapshot(Side friendly, Side enemy) {
+        this.friendly = friendly;
+        this.enemy = enemy;
+    }
+
+    public static BoardSnapshot of(List<Card> friendlyBoard, List<Card> enemyBoard) {
+        return new BoardSnapshot(new Side(friendlyBoard), new Side(enemyBoard));
+    }
+
+    public Side friendly() {
+        return friendly;
+    }
+
+    public Side enemy() {
+        return enemy;
+    }
+
+    // Flags only depend on the card's definition, so they are worked out once per card id.
+    private static final Map<String, Integer> FLAGS_BY_CARD_ID = new ConcurrentHashMap<>();
+
+    public static int flagsOf(Card c) {
+        if (!c.isResolved()) {
+            return computeFlags(c);
+        }
+        Integer flags = FLAGS_BY_CARD_ID.get(c.getCardId());
+        if (flags == null) {
+            flags = computeFlags(c);
+            FLAGS_BY_CARD_ID.put(c.getCardId(), flags);
+        }
+        return flags;
+    }
+
+    private static int computeFlags(Card c) {
+        int flags = 0;
+        if (c.getType().equalsIgnoreCase("minion")) {
+            flags |= MINION;
+        }
+        if (c.hasMechanic(Mechanic.TAUNT)) {
+            flags |= TAUNT;
+        }
+        if (c.isRace(Race.BEAST)) {
+            flags |= BEAST;
+        }
+        switch (c.getName().toLowerCase(Locale.ROOT)) {
+            case "tundra rhino":
+                flags |= TUNDRA_RHINO;
+                break;
+            case "timber wolf":
+                flags |= TIMBER_WOLF;
+                break;
+            case "starving buzzard":
+                flags |= STARVING_BUZZARD;
+                break;
+            default:
+                break;
+        }
+        return flags;
+    }
+
+    // One board, in board order. Removing a minion keeps the order of the others.
+    public static final class Side {
+        private final Card[] cards;
+        private final int[] attack;
+        private final int[] health;
+        private final int[] cost;
+        private final int[] card;
+        private final int[] flags;
+        private int size;
+
+        // Cards whose data is still being fetched are left out: with no stats or flags yet, they would pass for
+        // a 0/0 minion that is free to kill and keeps the board from counting as empty.
+        Side(List<Card> board) {
+            List<Card> known = new ArrayList<>(board.size());
+            for (Card c : board) {
+                if (c.isResolved()) {
+                    known.add(c);
+                }
+            }
+            int n = known.size();
+            cards = known.toArray(new Card[n]);
+            attack = new int[n];
+            health = new int[n];
+            cost = new int[n];
+            card = new int[n];
+            flags = new int[n];
+            for (int i = 0; i < n; i++) {
+                Card c = cards[i];
+                attack[i] = c.getAttack();
+                health[i] = c.getHealth();
+                cost[i] = c.getCost();
+                card[i] = i;
+                flags[i] = flagsOf(c);
+            }
+            size = n;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int attack(int i) {
+            return attack[i];
+        }
+
+        public int health(int i) {
+            return health[i];
+        }
+
+        public int cost(int i) {
+            return cost[i];
+        }
+
+        public boolean has(int i, int flag) {
+            return (flags[i] & flag) != 0;
+        }
+
+        public Card card(int i) {
+            return cards[card[i]];
+        }
+
+        public String name(int i) {
+            return cards[card[i]].getName();
+        }
+
+        public void remove(int i) {
+            int tail = size - i - 1;
+            System.arraycopy(attack, i + 1, attack, i, tail);
+            System.arraycopy(health, i + 1, health, i, tail);
+            System.arraycopy(cost, i + 1, cost, i, tail);
+            System.arraycopy(card, i + 1, card, i, tail);
+            System.arraycopy(flags, i + 1, flags, i, tail);
+            size--;
+        }
+
+        // Whether any minion on this side has the flag.
+        public boolean any(int flag) {
+            for (int i = 0; i < size; i++) {
+                if ((flags[i] & flag) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // A Zobrist hash of the minions left on this side and their positions, keyed as if they were in the zone.
+        public long hash(CardZone zone) {
+            long hash = 0;
+            for (int i = 0; i < size; i++) {
+                hash ^= Zobrist.card(zone, i, card(i));
+            }
+            return hash;
+        }
+
+        public int totalAttack() {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                total += attack[i];
+            }
+            return total;
+        }
+
+        public int totalHealth(int flag) {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                if ((flags[i] & flag) != 0) {
+                    total += health[i];
+                }
+            }
+            return total;
+        }
+
+        // The first of the minions with the flag that has the most health, or -1 if there is none.
+        public int highestHealth(int flag) {
+            int best = -1;
+            for (int i = 0; i < size; i++) {
+                if ((flags[i] & flag) != 0 && (best < 0 || health[i] > health[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        // The minion a friendly minion with these stats should attack for a value trade: one it kills and either
+        // survives or trades up into. We'd rather trade into the most expensive one, as that is the
+        // highest-tempo play. Returns -1 if there is no such trade.
+        public int valueTradeTarget(int friendlyAttack, int friendlyHealth) {
+            int best = -1;
+            for (int i = 0; i < size; i++) {
+                if (health[i] <= friendlyAttack
+                        && (friendlyHealth > attack[i] || friendlyAttack < attack[i])) {
+                    if (best < 0 || cost[i] > cost[best]) {
+                        best = i;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.Card;
+import com.hsda.models.CardZone;
+import com.hsda.models.Race;
+import com.hsda.models.Zobrist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Works out the most damage we can put into the opponent's face this turn and which cards to play for it.
+// Every card in hand that can hit face (Quick Shot, Kill Command, Eaglehorn Bow, beasts that can charge thanks to
+// a Tundra Rhino) is an item in a 0/1 knapsack over our mana and free board slots, so the answer is the best
+// possible spend rather than a greedy one. Tundra Rhino and Timber Wolf change what the other cards are worth,
+// so every way of playing them is tried as a knapsack of its own.
+// Plans are kept in a transposition table by the Zobrist hash of the hand, mana and what matters about the board,
+// so asking again for the same hand, board and mana, in this turn or a later one, is a lookup.
+public final class BurstDamageSolver {
+    private static final int BOARD_LIMIT = 7;
+    private static final int HERO_POWER_COST = 2;
+    private static final int HERO_POWER_DAMAGE = 2;
+    private static final int QUICK_SHOT_DAMAGE = 3;
+    private static final int KILL_COMMAND_DAMAGE = 3;
+    private static final int KILL_COMMAND_BEAST_DAMAGE = 5;
+    // CardJson only reads attack for minions, so a bow's definition says 0 whatever its source.
+    private static final int BOW_DAMAGE = 3;
+
+    private static final int CACHE_SIZE = 4096;
+
+    private final TranspositionTable<Plan> plans;
+
+    public BurstDamageSolver() {
+        this(CACHE_SIZE);
+    }
+
+    // cacheSize: how many plans to keep, or 0 to work every one out from scratch.
+    public BurstDamageSolver(int cacheSize) {
+        plans = new TranspositionTable<>(cacheSize);
+    }
+
+    // Forgets every plan worked out so far. Entity ids start over each game, so this is called when one ends.
+    public void reset() {
+        plans.clear();
+    }
+
+    public TranspositionTable<Plan> getCache() {
+        return plans;
+    }
+
+    // boardAttacks: whether our minions and weapon can still attack this turn. If not, only the hand counts.
+    // heroPower: whether the hero power may be used as part of the plan.
+    public Plan solve(List<Card> hand, int mana, BoardSnapshot.Side board, boolean bowEquipped,
+                      boolean boardAttacks, boolean heroPower) {
+        mana = Math.max(mana, 0);
+        int freeSlots = Math.max(BOARD_LIMIT - board.size(), 0);
+
+        List<Card> rhinos = new ArrayList<>();
+        List<Card> wolves = new ArrayList<>();
+        List<Card> beasts = new ArrayList<>();
+        List<Card> spells = new ArrayList<>();
+        List<Card> killCommands = new ArrayList<>();
+        Card bow = null;
+        for (Card c : hand) {
+            if (c.getName().equalsIgnoreCase("tundra rhino")) {
+                rhinos.add(c);
+            } else if (c.getName().equalsIgnoreCase("timber wolf")) {
+                wolves.add(c);
+            } else if (c.getName().equalsIgnoreCase("kill command")) {
+                killCommands.add(c);
+            } else if (c.getName().equalsIgnoreCase("quick shot")) {
+                spells.add(c);
+            } else if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
+                // A second bow would only replace the first.
+                if (bow == null && boardAttacks && !bowEquipped) {
+                    bow = c;
+                }
+            } else if (c.getType().equalsIgnoreCase("minion") && c.isRace(Race.BEAST)) {
+                beasts.add(c);
+            }
+        }
+
+        boolean rhinoOnBoard = board.any(BoardSnapshot.TUNDRA_RHINO);
+        boolean beastOnBoard = board.any(BoardSnapshot.BEAST);
+        int boardWolves = 0;
+        int boardAttack = 0;
+        int boardBeastAttackers = 0;
+        for (int i = 0; i < board.size(); i++) {
+            if (board.has(i, BoardSnapshot.TIMBER_WOLF)) {
+                boardWolves++;
+            }
+            if (boardAttacks) {
+                boardAttack += board.attack(i);
+                if (board.has(i, BoardSnapshot.BEAST)) {
+                    boardBeastAttackers++;
+                }
+            }
+        }
+        if (boardAttacks && bowEquipped) {
+            boardAttack += BOW_DAMAGE;
+        }
+
+        // Only these numbers of the board go into a plan, so boards that agree on them share plans.
+        int summary = freeSlots | boardWolves << 3 | boardBeastAttackers << 6 | (rhinoOnBoard ? 1 << 9 : 0)
+                | (beastOnBoard ? 1 << 10 : 0) | (boardAttacks ? 1 << 11 : 0) | (heroPower ? 1 << 12 : 0)
+                | (bowEquipped ? 1 << 13 : 0) | boardAttack << 14;
+        long key = Zobrist.cards(CardZone.FRIENDLY_HAND, hand) ^ Zobrist.value(Zobrist.TURN_MANA, mana)
+                ^ Zobrist.value(Zobrist.BOARD_SUMMARY, summary);
+        Plan cached = plans.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Plan best = new Plan(boardAttack, 0, Collections.emptyList(), false, false, 0);
+        int maxRhinos = rhinoOnBoard || rhinos.isEmpty() ? 0 : 1;
+        for (int r = 0; r <= maxRhinos; r++) {
+            for (int w = 0; w <= wolves.size(); w++) {
+                Plan plan = solveWith(r, w, rhinos, wolves, beasts, spells, killCommands, bow, mana, freeSlots,
+                        rhinoOnBoard, beastOnBoard, boardWolves, boardAttack, boardBeastAttackers, heroPower);
+                if (plan != null && plan.damage > best.damage) {
+                    best = plan;
+                }
+            }
+        }
+        plans.put(key, best);
+        return best;
+    }
+
+    // The best plan that plays exactly the first r rhinos and w wolves from hand, or null if we can't afford them.
+    private Plan solveWith(int r, int w, List<Card> rhinos, List<Card> wolves, List<Card> beasts, List<Card> spells,
+                           List<Card> killCommands, Card bow, int mana, int freeSlots, boolean rhinoOnBoard,
+                           boolean beastOnBoard, int boardWolves, int boardAttack, int boardBeastAttackers,
+                           boolean heroPower) {
+        List<Card> played = new ArrayList<>();
+        played.addAll(rhinos.subList(0, r));
+        played.addAll(wolves.subList(0, w));
+        int cost = 0;
+        for (Card c : played) {
+            cost += c.getCost();
+        }
+        if (cost > mana || played.size() > freeSlots) {
+            return null;
+        }
+
+        boolean charge = rhinoOnBoard || r > 0;
+        int totalWolves = boardWolves + w;
+        // Wolves buff every other beast, including the ones already on the board.
+        int damage = boardAttack + boardBeastAttackers * w;
+        if (charge) {
+            for (Card c : played) {
+                damage += c.getAttack() + totalWolves - (wolves.contains(c) ? 1 : 0);
+            }
+        }
+        boolean beastPlayed = beastOnBoard || !played.isEmpty();
+
+        // Minions first so a beast is in play before any Kill Command, which goes last.
+        List<Card> items = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (Card c : rhinos.subList(r, rhinos.size())) {
+            items.add(c);
+            values.add(charge ? c.getAttack() + totalWolves : 0);
+        }
+        for (Card c : beasts) {
+            items.add(c);
+            values.add(charge ? c.getAttack() + totalWolves : 0);
+        }
+        if (bow != null) {
+            items.add(bow);
+            values.add(BOW_DAMAGE);
+        }
+        for (Card c : spells) {
+            items.add(c);
+            values.add(QUICK_SHOT_DAMAGE);
+        }
+        if (heroPower) {
+            // The hero power is the one item that isn't a card.
+            items.add(null);
+            values.add(HERO_POWER_DAMAGE);
+        }
+        int minions = rhinos.size() - r + beasts.size();
+        int firstKillCommand = items.size();
+        items.addAll(killCommands);
+        for (int i = 0; i < killCommands.size(); i++) {
+            values.add(0);
+        }
+
+        int mana0 = mana - cost;
+        int slots0 = freeSlots - played.size();
+        Knapsack knapsack = new Knapsack(items, values, minions, firstKillCommand, mana0, slots0);
+        int beast0 = beastPlayed ? 1 : 0;
+        damage += knapsack.best(0, mana0, slots0, beast0);
+
+        boolean usesHeroPower = false;
+        int m = mana0;
+        int s = slots0;
+        int b = beast0;
+        for (int i = 0; i < items.size(); i++) {
+            if (knapsack.takes(i, m, s, b)) {
+                Card c = items.get(i);
+                if (c == null) {
+                    usesHeroPower = true;
+                    m -= HERO_POWER_COST;
+                } else {
+                    played.add(c);
+                    m -= c.getCost();
+                    if (i < minions) {
+                        s--;
+                        b = 1;
+                    }
+                }
+            }
+        }
+        return new Plan(damage, damage - boardAttack, played, charge, usesHeroPower, mana - m);
+    }
+
+    // best[i][m][s][b]: the most damage items i.. can add with m mana, s free slots and b set if a beast is in play.
+    private static final class Knapsack {
+        private final List<Card> items;
+        private final List<Integer> values;
+        private final int minions;
+        private final int firstKillCommand;
+        private final int maxMana;
+        private final int maxSlots;
+        private final int[] memo;
+
+        Knapsack(List<Card> items, List<Integer> values, int minions, int firstKillCommand, int mana, int slots) {
+            this.items = items;
+            this.values = values;
+            this.minions = minions;
+            this.firstKillCommand = firstKillCommand;
+            this.maxMana = mana;
+            this.maxSlots = slots;
+            this.memo = new int[items.size() * (mana + 1) * (slots + 1) * 2];
+            Arrays.fill(memo, -1);
+        }
+
+        int best(int i, int m, int s, int b) {
+            if (i == items.size()) {
+                return 0;
+            }
+            int key = ((i * (maxMana + 1) + m) * (maxSlots + 1) + s) * 2 + b;
+            if (memo[key] >= 0) {
+                return memo[key];
+            }
+            int result = Math.max(best(i + 1, m, s, b), take(i, m, s, b));
+            memo[key] = result;
+            return result;
+        }
+
+        // Taking an item only wins if it is strictly better, so cards that add nothing are left in hand.
+        boolean takes(int i, int m, int s, int b) {
+            return take(i, m, s, b) > best(i + 1, m, s, b);
+        }
+
+        private int take(int i, int m, int s, int b) {
+            Card c = items.get(i);
+            int cost = c == null ? HERO_POWER_COST : c.getCost();
+            boolean minion = i < minions;
+            if (cost > m || (minion && s == 0)) {
+                return -1;
+            }
+            int value = values.get(i);
+            if (i >= firstKillCommand) {
+                value = b == 1 ? KILL_COMMAND_BEAST_DAMAGE : KILL_COMMAND_DAMAGE;
+            }
+            return value + best(i + 1, m - cost, minion ? s - 1 : s, minion ? 1 : b);
+        }
+    }
+
+    public static final class Plan {
+        private final int damage;
+        private final int handDamage;
+        private final List<Card> cards;
+        private final boolean charge;
+        private final boolean heroPower;
+        private final int manaSpent;
+
+        private Plan(int damage, int handDamage, List<Card> cards, boolean charge, boolean heroPower,
+                     int manaSpent) {
+            this.damage = damage;
+            this.handDamage = handDamage;
+            this.cards = Collections.unmodifiableList(cards);
+            this.charge = charge;
+            this.heroPower = heroPower;
+            this.manaSpent = manaSpent;
+        }
+
+        // Everything that goes face, including the minions and weapon already in play if they can attack.
+        public int getDamage() {
+            return damage;
+        }
+
+        // The part of getDamage() that the plan's cards and hero power add.
+        public int getHandDamage() {
+            return handDamage;
+        }
+
+        // The cards to play, in the order to play them.
+        public List<Card> getCards() {
+            return cards;
+        }
+
+        // Whether minions played this turn can attack, because a Tundra Rhino is or will be in play.
+        public boolean hasCharge() {
+            return charge;
+        }
+
+        public boolean usesHeroPower() {
+            return heroPower;
+        }
+
+        public int getManaSpent() {
+            return manaSpent;
+        }
+    }
+}
@@ -1,29 +1,102 @@
 package com.hsda.analyzer;
 
+import com.hsda.metrics.PipelineMetrics;
 import com.hsda.models.Card;
+import com.hsda.models.CardDefinition;
+import com.hsda.models.CardZone;
+import com.hsda.models.Race;
 import com.hsda.models.GameState;
-import com.hsda.service.CardFetcherService;
+import com.hsda.models.GameStateListener;
+import com.hsda.models.Zobrist;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class GameStateAnalyzer {
+    private static final int PLAN_CACHE_SIZE = 1024;
+    private static final long DEFAULT_DEADLINE_MS = 500;
+    // Far more than a reader that keeps up ever has waiting; a whole turn is a few dozen messages.
+    private static final int DEFAULT_MESSAGE_BUFFER = 1024;
+    private static final PipelineMetrics PIPELINE = PipelineMetrics.global();
 
     private GameState state;
     private Map<String, Integer> cardRankings;
-    private Queue<String> messageQueue;
+    // The messages of the analysis in progress, published together when it is done.
+    private List<String> messageQueue;
+    // Messages ready for the player, read by one thread at a time. Only one thread publishes at a time as well: the
+    // log thread while no search is running, and the running search's reporter until it is stopped or finishes.
+    // Stopping a search waits for any report in progress, and a search that finishes clears `search`, so each
+    // hands over to the log thread with everything it published visible.
+    private MessageRing published;
+    private BurstDamageSolver burstSolver;
+    private TauntSolver tauntSolver;
+    // Totals over the hand and both boards, kept up to date as the game state changes.
+    private BoardAggregates aggregates;
+    // Null unless the turn should be planned by tree search rather than by the rules in notifyStart.
+    private MctsPlanner planner;
+    // Turns already planned, by the game state's hash and notifyStart's arguments.
+    private TranspositionTable<TurnPlan> plans;
+    // The plan being worked out, which records the changes made to the game state while it is.
+    private TurnPlan recording;
+    // How long after a turn starts its analysis has to be done, including any search for a better plan.
+    private long deadlineNanos;
+    private AnalysisMetrics metrics;
+    // The search for a better plan than the one published, or null if none is running.
+    private volatile MctsPlanner.Search search;
 
     public GameStateAnalyzer(GameState state) throws IOException, InterruptedException {
         this.state = state;
-        messageQueue = new LinkedList<>();
+        messageQueue = new ArrayList<>();
+        // -Dhsda.analysis.messageBuffer=<n>: how many messages may wait to be read before new ones are dropped.
+        published = new MessageRing(Integer.getInteger("hsda.analysis.messageBuffer", DEFAULT_MESSAGE_BUFFER));
         cardRankings = new HashMap<>();
+        burstSolver = new BurstDamageSolver();
+        tauntSolver = new TauntSolver();
+        aggregates = new BoardAggregates();
+        planner = MctsPlanner.fromSystemProperties();
+        plans = new TranspositionTable<>(PLAN_CACHE_SIZE);
+        // -Dhsda.analysis.deadlineMs=<ms>, by default the search budget if there is a planner.
+        long deadlineMs = Long.getLong("hsda.analysis.deadlineMs",
+                planner != null ? planner.getBudgetMillis() : DEFAULT_DEADLINE_MS);
+        deadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(deadlineMs, 1L));
+        metrics = new AnalysisMetrics();
         state.setAnalyzer(this);
+        state.addListener(aggregates);
+        // Any change to the game state makes a search for a better plan pointless.
+        state.addListener(new GameStateListener() {
+            @Override
+            public void cardEntered(Card card, CardZone zone) {
+                stopSearch();
+            }
+
+            @Override
+            public void cardLeft(Card card, CardZone zone) {
+                stopSearch();
+            }
+
+            @Override
+            public void manaChanged(int mana) {
+                stopSearch();
+            }
+
+            @Override
+            public void bowChanged(boolean equipped) {
+                stopSearch();
+            }
+
+            @Override
+            public void opponentLifeChanged(int lifeTotal) {
+                stopSearch();
+            }
+        });
         initializeCardRankings();
     }
 
     public void initializeCardRankings() throws IOException, InterruptedException {
-        List<Card> cardsInDeck = new CardFetcherService().getDeckCards();
-        for (Card c : cardsInDeck) {
+        List<CardDefinition> cardsInDeck = state.getCardService().getDeckCards();
+        for (CardDefinition c : cardsInDeck) {
             if (c.getName().equalsIgnoreCase("alleycat")
                     || c.getName().equalsIgnoreCase("wolpertinger")
                     || c.getName().equalsIgnoreCase("hecklefang hyena")
@@ -54,6 +127,8 @@ public class GameStateAnalyzer {
     }
 
     public void notifyMulliganBegins() {
+        // The search of a turn from the last game may still be running, and it has to stop publishing first.
+        stopSearch();
         // The mulligan strategy for this deck is relatively simple:
         // Since our default gameplan is aggressive, we'll be looking to play on curve as much as possible.
         // This means we'll be looking to have at least a 1, 2, and 3 cost card in our opening hand.
@@ -112,25 +187,11 @@ public class GameStateAnalyzer {
             }
             messageQueue.add("Mulligan complete.");
         }
+        publish();
     }
 
     private boolean isBeast(Card c) {
-        if (c.getName().equalsIgnoreCase("alleycat")
-                || c.getName().equalsIgnoreCase("tabbycat")
-                || c.getName().equalsIgnoreCase("wolpertinger")
-                || c.getName().equalsIgnoreCase("fiery bat")
-                || c.getName().equalsIgnoreCase("hecklefang hyena")
-                || c.getName().equalsIgnoreCase("starving buzzard")
-                || c.getName().equalsIgnoreCase("sunscale raptor")
-                || c.getName().equalsIgnoreCase("bad luck albatross")
-                || c.getName().equalsIgnoreCase("dire mole")
-                || c.getName().equalsIgnoreCase("sunscale raptor")
-                || c.getName().equalsIgnoreCase("timber wolf")
-                || c.getName().equalsIgnoreCase("scavenging hyena")
-                || c.getName().equalsIgnoreCase("tundra rhino")) {
-            return true;
-        }
-       return false;
+        return c.isRace(Race.BEAST);
     }
 
     private boolean beastInHand(List<Card> hand) {
@@ -142,333 +203,38 @@ public class GameStateAnalyzer {
         return false;
     }
 
-    private boolean beastInPlay(List<Card> friendlyBoard) {
-        for (Card c : friendlyBoard) {
-            if (isBeast(c)) {
-                return true;
-            }
-        }
-        return false;
+    // The most damage our hand can deal this turn without our minions or weapon attacking.
+    private BurstDamageSolver.Plan handBurst(List<Card> friendlyHand, int currentMana, BoardSnapshot.Side friendlyBoard) {
+        return burstSolver.solve(friendlyHand, currentMana, friendlyBoard, state.isBowEquipped(), false, false);
     }
 
-    private int damageFromHandCalculation(List<Card> friendlyHand, int currentMana,  List<Card> friendlyBoard) {
-        int damageFromHand = 0;
-        int mana = currentMana;
-        List<String> damageCards = new ArrayList<>();
-
-        // First, we will determine which direct damage cards we have in hand.
-        for (Card c : friendlyHand) {
-            if (c.getName().equalsIgnoreCase("quick shot")) {
-                damageCards.add("Quick Shot");
-            } else if (c.getName().equalsIgnoreCase("kill command")) {
-                damageCards.add("Kill Command");
-            } /*else if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
-                damageCards.add("Eaglehorn Bow");
-            }*/ else if (c.getName().equalsIgnoreCase("tundra rhino")) {
-                damageCards.add("Tundra Rhino");
-            }
-        }
-
-        //Go through our damage sources from most efficient in terms of cost:damage ratio to least.
-        while (damageCards.size() > 0) {
-            if (damageCards.contains("Kill Command") && currentMana >= 3 && beastInPlay(friendlyBoard)) {
-                damageFromHand += 5;
-                damageCards.remove("Kill Command");
-                currentMana -= 3;
-            } else if (damageCards.contains("Quick Shot") && currentMana >= 2) {
-                damageFromHand += 3;
-                damageCards.remove("Quick Shot");
-                currentMana -= 2;
-            } /*else if (damageCards.contains("Eaglehorn Bow") && currentMana >= 3) {
-                damageFromHand += 3;
-                damageCards.remove("Eaglehorn Bow");
-                currentMana -= 3;
-            }*/ else if (damageCards.contains("Kill Command") && currentMana >= 3 && !beastInPlay(friendlyBoard)) {
-                damageFromHand += 3;
-                damageCards.remove("Kill Command");
-                currentMana -= 3;
-            } else if (damageCards.contains("Tundra Rhino") && currentMana >= 5) {
-                damageFromHand += 2;
-                damageCards.remove("Tundra Rhino");
-                currentMana -= 5;
-            } else {
-                //If none of the cases are met at this point, exit the loop.
-                break;
-            }
-        }
-
-        return damageFromHand;
+    // The most damage we can send at the opponent's face this turn, counting our weapon if we can still attack.
+    private BurstDamageSolver.Plan faceBurst(List<Card> friendlyHand, int currentMana, BoardSnapshot.Side friendlyBoard,
+                                             boolean alreadyAttacked) {
+        return burstSolver.solve(friendlyHand, currentMana, friendlyBoard, state.isBowEquipped(), !alreadyAttacked,
+                false);
     }
 
-    private List<Card> getHighestDamageCombo(List<Card> friendlyHand, int currentMana,  List<Card> friendlyBoard) {
-        List<Card> toReturn = new ArrayList<>();
-
-        List<String> damageCards = new ArrayList<>();
-
-        // First, we will determine which direct damage cards we have in hand.
-        for (Card c : friendlyHand) {
-            if (c.getName().equalsIgnoreCase("quick shot")) {
-                damageCards.add("Quick Shot");
-            } else if (c.getName().equalsIgnoreCase("kill command")) {
-                damageCards.add("Kill Command");
-            } /*else if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
-                damageCards.add("Eaglehorn Bow");
-            }*/ else if (c.getName().equalsIgnoreCase("tundra rhino")) {
-                damageCards.add("Tundra Rhino");
-            }
-        }
-
-        //Go through our damage sources from most efficient in terms of cost:damage ratio to least.
-        while (damageCards.size() > 0) {
-            if (damageCards.contains("Kill Command") && currentMana >= 3 && beastInPlay(friendlyBoard)) {
-                damageCards.remove("Kill Command");
-                currentMana -= 3;
-                for (Card c : friendlyHand) {
-                    if (c.getName().equalsIgnoreCase("Kill Command")) {
-                        toReturn.add(c);
-                    }
-                }
-            } else if (damageCards.contains("Quick Shot") && currentMana >= 2) {
-                damageCards.remove("Quick Shot");
-                currentMana -= 2;
-                for (Card c : friendlyHand) {
-                    if (c.getName().equalsIgnoreCase("Quick Shot")) {
-                        toReturn.add(c);
-                    }
-                }
-            } /*else if (damageCards.contains("Eaglehorn Bow") && currentMana >= 3) {
-                damageCards.remove("Eaglehorn Bow");
-                currentMana -= 3;
-                for (Card c : friendlyHand) {
-                    if (c.getName().equalsIgnoreCase("Eaglehorn Bow")) {
-                        toReturn.add(c);
-                    }
-                }
-            }*/ else if (damageCards.contains("Kill Command") && currentMana >= 3 && !beastInPlay(friendlyBoard)) {
-                damageCards.remove("Kill Command");
-                currentMana -= 3;
-                for (Card c : friendlyHand) {
-                    if (c.getName().equalsIgnoreCase("Kill Command")) {
-                        toReturn.add(c);
-                    }
-                }
-            } else if (damageCards.contains("Tundra Rhino") && currentMana >= 5) {
-                damageCards.remove("Tundra Rhino");
-                currentMana -= 5;
-                for (Card c : friendlyHand) {
-                    if (c.getName().equalsIgnoreCase("Tundra Rhino")) {
-                        toReturn.add(c);
-                    }
+    // Tells the player to play the plan's cards at the opponent's face. Returns the mana that costs.
+    private int playBurst(BurstDamageSolver.Plan plan, List<Card> friendlyHand) {
+        for (Card c : plan.getCards()) {
+            if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
+                messageQueue.add("Equip " + c.getName() + ".");
+                messageQueue.add("Attack the opponent's face with your " + c.getName() + ".");
+            } else if (c.getType().equalsIgnoreCase("minion")) {
+                messageQueue.add("Play " + c.getName() + ".");
+                if (plan.hasCharge()) {
+                    messageQueue.add("Attack the opponent's face with " + c.getName() + ".");
                 }
             } else {
-                //If none of the cases are met at this point, exit the loop.
-                break;
-            }
-        }
-
-        return toReturn;
-    }
-
-    private int damageFromBoardCalculation(List<Card> friendlyBoard) {
-        int damageCalc = 0;
-
-        for (Card c : friendlyBoard) {
-            damageCalc += c.getAttack();
-        }
-
-        if (state.isBowEquipped()) {
-            damageCalc += 3;
-        }
-
-        return damageCalc;
-    }
-
-    private List<Card> killFromHand(List<Card> hand, Card enemyMinion, int currentMana, List<Card> friendlyBoard) {
-        List<Card> friendlyHand = new ArrayList<>(hand);
-        int targetDamage = enemyMinion.getHealth();
-        List<Card> toReturn = new ArrayList<>();
-
-        //We're going to try to find the most efficient set of cards needed to kill the enemy minion.
-        //Generally, this means we want to minimize the amount by which we overkill it.
-        //We're still going to prioritize our most efficient cost/damage spells, but will spend more mana if necessary
-        //to ensure a cleaner kill.
-        int damageCommitted = 0;
-
-        while (damageCommitted < targetDamage && currentMana >= 2) {
-            if (targetDamage < 3) {
-                if (Card.listContainsCard("Tundra Rhino", friendlyHand) && currentMana >= 5) {
-                    toReturn.add(Card.getCardFromListByName("Tundra Rhino", friendlyHand));
-                    currentMana -= 5;
-                    damageCommitted += 2;
-                } else if (Card.listContainsCard("Quick Shot", friendlyHand) && currentMana >= 2) {
-                    toReturn.add(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    currentMana -= 2;
-                    damageCommitted += 2;
-                } else if (Card.listContainsCard("Kill Command", friendlyHand) && currentMana >= 3) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 3;
-                    if (beastInPlay(friendlyBoard)) {
-                        damageCommitted += 5;
-                    } else {
-                        damageCommitted += 3;
-                    }
-                } else {
-                    //If none of the cases are met at this point, put together as much damage as possible and return.
-                    break;
-                }
-            } else if (targetDamage == 3) {
-                if (Card.listContainsCard("Quick Shot", friendlyHand) && currentMana >= 2) {
-                    toReturn.add(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    currentMana -= 2;
-                    damageCommitted += 2;
-                } else if (Card.listContainsCard("Kill Command", friendlyHand) && currentMana >= 3) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 3;
-                    if (beastInPlay(friendlyBoard)) {
-                        damageCommitted += 5;
-                    } else {
-                        damageCommitted += 3;
-                    }
-                } else {
-                    //If none of the cases are met at this point, put together as much damage as possible and return.
-                    break;
-                }
-            } else if (targetDamage <= 5 && targetDamage > 3) {
-                if (Card.listContainsCard("Kill Command", friendlyHand)
-                        && currentMana >= 3 && beastInPlay(friendlyBoard)) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 3;
-                    damageCommitted += 5;
-                } else if (Collections.frequency(friendlyHand, Card.getCardFromListByName("Quick Shot", friendlyHand)) == 2
-                        && currentMana >= 4) {
-                    toReturn.add(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    currentMana -= 4;
-                    damageCommitted += 6;
-                } else if (Card.listContainsCard("Tundra Rhino", friendlyHand)
-                        && Card.listContainsCard("Quick Shot", friendlyHand)
-                        && currentMana >= 7) {
-                    toReturn.add(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    toReturn.add(Card.getCardFromListByName("Tundra Rhino", friendlyHand));
-                    currentMana -= 7;
-                    damageCommitted += 5;
-                } else if (Card.listContainsCard("Tundra Rhino", friendlyHand)
-                        && Card.listContainsCard("Kill Command", friendlyHand)
-                        && currentMana >= 7) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    toReturn.add(Card.getCardFromListByName("Tundra Rhino", friendlyHand));
-                    //We don't need to check if there's a beast in hand- if there was the first case would have triggered.
-                    currentMana -= 7;
-                    damageCommitted += 5;
-                } else if (Collections.frequency(friendlyHand, Card.getCardFromListByName("Quick Shot", friendlyHand)) == 2
-                        && !beastInPlay(friendlyBoard) && currentMana >= 6) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 6;
-                    damageCommitted += 6;
-                } else {
-                    //If none of the cases are met at this point, put together as much damage as possible and return.
-                    break;
-                }
-            } else if (targetDamage > 5) {
-                //If there's no predetermined set of best combos to kill this minion (as its health is over 5)
-                //we will instead iterate through our set of most efficient damage options, and select the best.
-                if (Card.listContainsCard("Kill Command", friendlyHand)
-                        && currentMana >= 3
-                        && beastInPlay(friendlyBoard)) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    friendlyHand.remove(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 3;
-                    damageCommitted += 5;
-                } else if (Card.listContainsCard("Quick Shot", friendlyHand) && currentMana >= 2) {
-                    toReturn.add(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    friendlyHand.remove(Card.getCardFromListByName("Quick Shot", friendlyHand));
-                    currentMana -= 2;
-                    damageCommitted += 3;
-                } else if (Card.listContainsCard("Eaglehorn Bow", friendlyHand) && currentMana >= 3) {
-                    toReturn.add(Card.getCardFromListByName("Eaglehorn Bow", friendlyHand));
-                    friendlyHand.remove(Card.getCardFromListByName("Eaglehorn Bow", friendlyHand));
-                    currentMana -= 2;
-                    damageCommitted += 3;
-                } else if (Card.listContainsCard("Kill Command", friendlyHand)
-                            && currentMana >= 3
-                            && !beastInPlay(friendlyBoard)) {
-                    toReturn.add(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    friendlyHand.remove(Card.getCardFromListByName("Kill Command", friendlyHand));
-                    currentMana -= 3;
-                    damageCommitted += 3;
-                } else if (Card.listContainsCard("Tundra Rhino", friendlyHand)
-                            && currentMana >= 5) {
-                    toReturn.add(Card.getCardFromListByName("Tundra Rhino", friendlyHand));
-                    friendlyHand.remove(Card.getCardFromListByName("Tundra Rhino", friendlyHand));
-                    currentMana -= 5;
-                    damageCommitted += 2;
-                } else {
-                    //If none of the cases are met at this point, put together as much damage as possible and return.
-                    break;
-                }
-            }
-        }
-
-        return toReturn;
-    }
-
-    private boolean canValueTrade(Card friendlyMinion, List<Card> enemyBoard) {
-        for (Card c : enemyBoard) {
-            if ((c.getHealth() <= friendlyMinion.getAttack()
-                && (friendlyMinion.getHealth() > c.getAttack()
-                    || friendlyMinion.getAttack() < c.getAttack()))) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private Card getValueTradeTarget(Card friendlyMinion, List<Card> enemyBoard) {
-        //We'll direct our value trade into the most expensive minion possible.
-        //This ensures that the play is as high-tempo as possible.
-        Card highestCost = null;
-        for (Card c : enemyBoard) {
-            if ((c.getHealth() <= friendlyMinion.getAttack()
-                    && (friendlyMinion.getHealth() > c.getAttack()
-                    || friendlyMinion.getAttack() < c.getAttack()))) {
-                if (highestCost == null) {
-                    highestCost = c;
-                } else if (c.getCost() > highestCost.getCost()) {
-                    highestCost = c;
-                }
-            }
-        }
-        return highestCost;
-    }
-
-    private List<Card> findBestTrades(List<Card> friendlyBoard, int tauntAttack, int tauntHp) {
-        int damageCommitted = 0;
-        List<Card> toReturn = new ArrayList<>();
-        //Try to seek value trades first. If they aren't enough, start regular trades.
-        for (Card c : friendlyBoard) {
-            if (c.getHealth() > tauntAttack) {
-                damageCommitted += c.getAttack();
-                toReturn.add(c);
-                if (damageCommitted >= tauntHp) {
-                    break;
-                }
+                messageQueue.add("Use " + c.getName() + " on the opponent's face.");
             }
+            friendlyHand.remove(c);
         }
-
-
-        if (damageCommitted < tauntHp) {
-            for (Card c : friendlyBoard) {
-                if (!toReturn.contains(c)) {
-                    damageCommitted += c.getAttack();
-                    toReturn.add(c);
-                    if (damageCommitted >= tauntHp) {
-                        break;
-                    }
-                }
-            }
+        if (plan.usesHeroPower()) {
+            messageQueue.add("Use your hero power.");
         }
-
-        return toReturn;
+        return plan.getManaSpent();
     }
 
     private boolean handContainsMinions(List<Card> friendlyHand) {
@@ -480,7 +246,7 @@ public class GameStateAnalyzer {
         return false;
     }
 
-    private boolean buzzardTurnCriteriaMet(List<Card> friendlyHand, List<Card> friendlyBoard, int manaAvailable) {
+    private boolean buzzardTurnCriteriaMet(List<Card> friendlyHand, BoardSnapshot.Side friendlyBoard, int manaAvailable) {
         if (friendlyBoard.size() > 4
                 || manaAvailable < 4
                 || !Card.listContainsCard("Starving Buzzard", friendlyHand)
@@ -500,7 +266,7 @@ public class GameStateAnalyzer {
         }
     }
 
-    private Card getBestBuzzardPlay(List<Card> friendlyHand, List<Card> friendlyBoard) {
+    private Card getBestBuzzardPlay(List<Card> friendlyHand, BoardSnapshot.Side friendlyBoard) {
         Card toReturn = null;
         int lowestCost = Integer.MAX_VALUE;
         for (Card c : friendlyHand) {
@@ -524,67 +290,278 @@ public class GameStateAnalyzer {
         return toReturn;
     }
 
+    // Plans the turn with Monte Carlo tree search. A greedy line is published straight away, and the search then
+    // runs in the background until the deadline, publishing each better line it finds.
+    private void planTurn(int currentManaCount, boolean alreadyAttacked, long start) {
+        List<Card> friendlyHand = new ArrayList<>(state.getFriendlyHand());
+        friendlyHand.removeIf(c -> !c.isResolved());
+        BoardSnapshot board = BoardSnapshot.of(state.getFriendlyBoard(), state.getEnemyBoard());
+        TurnState turn = TurnState.of(friendlyHand, currentManaCount, board.friendly(), board.enemy(),
+                state.getOpponentLifeTotal(), state.isBowEquipped(), alreadyAttacked);
+
+        List<Integer> greedy = MctsPlanner.greedy(turn);
+        TurnState first = describeLine(turn, greedy, messageQueue);
+        // Like the rules, wait for what we draw and plan the rest of the turn then.
+        if (first.getCardsDrawn() > 0) {
+            afterDraws(first.getCardsDrawn(), first.getMana());
+        }
+        // Before the search starts, as from then on only it may publish.
+        publish();
+
+        metrics.searchStarted();
+        search = planner.start(turn, start + deadlineNanos, new MctsPlanner.Progress() {
+            @Override
+            public void improved(MctsPlanner.Plan plan) {
+                List<Integer> line = new ArrayList<>(plan.getActions());
+                line.removeIf(action -> TurnState.typeOf(action) == TurnState.END_TURN);
+                List<String> messages = new ArrayList<>();
+                TurnState end = describeLine(turn, line, messages);
+                // The draws the first answer waits for are already set up, so only lines that agree with it on
+                // them can replace it.
+                if (line.equals(greedy)
+                        || end.getCardsDrawn() != first.getCardsDrawn()
+                        || end.getCardsDrawn() > 0 && end.getMana() != first.getMana()) {
+                    return;
+                }
+                messages.add(0, "Found a better line after " + plan.getRollouts() + " rollouts:");
+                publish(messages);
+                metrics.improvementPublished();
+            }
+
+            @Override
+            public void finished(MctsPlanner.Plan plan) {
+                // How much the search did is for the metrics, not the player.
+                metrics.searchHitDeadline(plan.getRollouts(), plan.getElapsedNanos());
+                PIPELINE.add(PipelineMetrics.Counter.ROLLOUTS, plan.getRollouts());
+                search = null;
+            }
+        });
+    }
+
+    // Adds the messages for playing out a line from the start of the turn, then ending it unless the line draws
+    // cards. The line must not include ending the turn.
+    // Returns the state at the end of the line.
+    private static TurnState describeLine(TurnState start, List<Integer> line, Collection<String> messages) {
+        TurnState turn = start.copy();
+        for (int action : line) {
+            messages.add(turn.describe(action));
+            turn.apply(action);
+        }
+        if (turn.getCardsDrawn() == 0) {
+            messages.add("Pass the turn.");
+        }
+        return turn;
+    }
+
+    // Waits for the search for a better plan, if one is running, to get to its deadline. For callers that want
+    // everything the analysis of a state will publish before moving on to the next, like replays.
+    public void awaitSearch() throws InterruptedException {
+        MctsPlanner.Search running = search;
+        if (running != null) {
+            running.awaitFinished();
+        }
+    }
+
+    private void stopSearch() {
+        MctsPlanner.Search running = search;
+        if (running != null) {
+            search = null;
+            if (running.stop()) {
+                metrics.searchWentStale();
+            }
+        }
+    }
+
+    // Hands the messages of the analysis that just finished to the player.
+    private void publish() {
+        publish(messageQueue);
+        messageQueue.clear();
+    }
+
+    private void publish(List<String> messages) {
+        int dropped = published.offerAll(messages);
+        if (dropped > 0) {
+            metrics.messagesDropped(dropped);
+        }
+        PIPELINE.add(PipelineMetrics.Counter.MESSAGES, messages.size() - dropped);
+        PIPELINE.add(PipelineMetrics.Counter.MESSAGES_DROPPED, dropped);
+    }
+
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
     //This method informs the analyzer that it should pull the current game state and generate messages
     public void notifyStart(int currentManaCount, boolean alreadyAttacked) {
+        // Whatever was being worked out for an earlier state is of no use any more.
+        stopSearch();
+        long start = System.nanoTime();
+        if (planner != null) {
+            planTurn(currentManaCount, alreadyAttacked, start);
+        } else {
+            long key = planKey(currentManaCount, alreadyAttacked);
+            TurnPlan cached = plans.get(key);
+            if (cached != null) {
+                PIPELINE.increment(PipelineMetrics.Counter.PLAN_CACHE_HITS);
+                cached.replay(messageQueue, state);
+            } else {
+                PIPELINE.increment(PipelineMetrics.Counter.PLAN_CACHE_MISSES);
+                recording = new TurnPlan();
+                analyzeTurn(currentManaCount, alreadyAttacked);
+                recording.addMessages(messageQueue);
+                plans.put(key, recording);
+                recording = null;
+            }
+            publish();
+        }
+        long nanos = System.nanoTime() - start;
+        metrics.analysisFinished(nanos, deadlineNanos);
+        PIPELINE.recordNanos(PipelineMetrics.Stage.ANALYSIS, nanos);
+        PIPELINE.increment(PipelineMetrics.Counter.ANALYSES);
+    }
+
+    // The state hash covers everything the analysis reads but whether the cards in it have been fetched yet, as
+    // that can change without the state changing, so those are mixed in here.
+    private long planKey(int currentManaCount, boolean alreadyAttacked) {
+        long key = state.getStateHash() ^ Zobrist.value(Zobrist.TURN_MANA, currentManaCount)
+                ^ Zobrist.value(Zobrist.ALREADY_ATTACKED, alreadyAttacked ? 1 : 0);
+        for (List<Card> cards : Arrays.asList(state.getFriendlyHand(), state.getFriendlyBoard(),
+                state.getEnemyBoard())) {
+            for (Card c : cards) {
+                if (!c.isResolved()) {
+                    key ^= Zobrist.value(Zobrist.UNRESOLVED, c.getEntityId());
+                }
+            }
+        }
+        return key;
+    }
+
+    // Changes to the game state made while planning go through these, so a cached plan can make them again.
+
+    private void afterDraws(int drawCount, int currentMana) {
+        record(s -> s.notifyAfterNDraws(drawCount, currentMana));
+    }
+
+    private void damageOpponent(int damage) {
+        record(s -> s.damageOpponent(damage));
+    }
+
+    private void removeFromHand(Card card) {
+        record(s -> s.removeFromHand(card));
+    }
+
+    private void record(Consumer<GameState> effect) {
+        effect.accept(state);
+        if (recording != null) {
+            recording.addEffect(effect);
+        }
+    }
+
+    // Every plan and solution kept so far is for this game's entity ids, which the next game reuses.
+    public void notifyGameEnded() {
+        plans.clear();
+        burstSolver.reset();
+        tauntSolver.reset();
+    }
+
+    public TranspositionTable<?> getPlanCache() {
+        return plans;
+    }
+
+    public TranspositionTable<BurstDamageSolver.Plan> getBurstCache() {
+        return burstSolver.getCache();
+    }
+
+    public TranspositionTable<TauntSolver.Plan> getTauntCache() {
+        return tauntSolver.getCache();
+    }
+
+    // Messages published and not read yet.
+    public int getWaitingMessages() {
+        return published.size();
+    }
+
+    // How many messages may wait before new ones are dropped.
+    public int getMessageCapacity() {
+        return published.capacity();
+    }
+
+    private void analyzeTurn(int currentManaCount, boolean alreadyAttacked) {
         //TODO: Add special cases for when the player has The Coin
         List<Card> friendlyHand = new ArrayList<>(state.getFriendlyHand());
-        List<Card> friendlyBoard = new ArrayList<>(state.getFriendlyBoard());
-        List<Card> enemyBoard = new ArrayList<>(state.getEnemyBoard());
+        //Cards whose data is still being fetched can't be planned around yet.
+        friendlyHand.removeIf(c -> !c.isResolved());
+        BoardSnapshot board = BoardSnapshot.of(state.getFriendlyBoard(), state.getEnemyBoard());
+        BoardSnapshot.Side friendlyBoard = board.friendly();
+        BoardSnapshot.Side enemyBoard = board.enemy();
+        aggregates.refresh();
 
         // The number of minions on our board. This may fluctuate throughout the turn, so we'll keep track of it here.
         int boardSize = friendlyBoard.size();
 
         // If we have the coin, we want to play it ASAP.
-        if (Card.listContainsCard("The Coin", friendlyHand)) {
+        if (aggregates.count(CardZone.FRIENDLY_HAND, BoardAggregates.THE_COIN) > 0) {
             currentManaCount++;
             messageQueue.add("Play The Coin.");
         }
 
-        // The amount of damage we can produce from our hand.
-        int damageFromHand = damageFromHandCalculation(friendlyHand, currentManaCount, friendlyBoard);
+        // If nothing stands in the way and everything we have going face is enough, that's the whole turn.
+        // The solver only runs if the running totals say lethal is possible at all.
+        if (aggregates.count(CardZone.OPPOSING_PLAY, BoardSnapshot.TAUNT) == 0
+                && aggregates.maxFaceDamage(alreadyAttacked, state.isBowEquipped()) >= state.getOpponentLifeTotal()) {
+            BurstDamageSolver.Plan lethal = burstSolver.solve(friendlyHand, currentManaCount, friendlyBoard,
+                    state.isBowEquipped(), !alreadyAttacked, true);
+            if (lethal.getDamage() >= state.getOpponentLifeTotal()) {
+                messageQueue.add("You have lethal!");
+                playBurst(lethal, friendlyHand);
+                if (!alreadyAttacked) {
+                    for (int i = 0; i < friendlyBoard.size(); i++) {
+                        messageQueue.add("Attack the opponent's face with " + friendlyBoard.name(i) + ".");
+                    }
+                    if (state.isBowEquipped()) {
+                        messageQueue.add("Attack the opponent's face with your Eaglehorn Bow.");
+                    }
+                }
+                return;
+            }
+        }
 
-        // The amount of damage we can produce from our board.
-        int damageFromBoard = damageFromBoardCalculation(friendlyBoard);
+        // The amount of damage we can produce from our hand.
+        int damageFromHand = handBurst(friendlyHand, currentManaCount, friendlyBoard).getDamage();
 
         // Indicates if we have a Tundra Rhino in play, which allows our beasts to attack the turn we play them.
-        boolean rhinoInPlay = Card.listContainsCard("Tundra Rhino", friendlyBoard);
+        boolean rhinoInPlay = aggregates.count(CardZone.FRIENDLY_PLAY, BoardSnapshot.TUNDRA_RHINO) > 0;
 
         // Indicates if we have a timber wolf in play, which buffs the attack of our other beasts by one.
-        boolean timberWolfInPlay = Card.listContainsCard("Timber Wolf", friendlyBoard);
+        boolean timberWolfInPlay = aggregates.count(CardZone.FRIENDLY_PLAY, BoardSnapshot.TIMBER_WOLF) > 0;
 
         // Indicates if we have a starving buzzard in play, which allows us to draw a card whenever we summon a beast.
-        boolean buzzardInPlay = Card.listContainsCard("Starving Buzzard", friendlyBoard);
+        boolean buzzardInPlay = aggregates.count(CardZone.FRIENDLY_PLAY, BoardSnapshot.STARVING_BUZZARD) > 0;
 
         // Indicates if we have an eaglehorn bow equipped.
         boolean bowEquipped = state.isBowEquipped();
 
         boolean heroPowerUsed = false;
 
-        if (enemyBoard.size() == 0) {
+        if (enemyBoard.isEmpty()) {
             //If the opponent has no cards in play, we want to play out the best, highest cost cards from our hand.
             //We also want to send all of our attackers at the opponent's face.
-            List<Card> attackers = new ArrayList<>(friendlyBoard);
+            List<Card> attackers = new ArrayList<>();
+            for (int i = 0; i < friendlyBoard.size(); i++) {
+                attackers.add(friendlyBoard.card(i));
+            }
             while (currentManaCount > 0) {
                 if (!handContainsMinions(friendlyHand)) {
                     if (currentManaCount >= 2 && damageFromHand > 0) {
-                        List<Card> directDamageCards = getHighestDamageCombo(friendlyHand, currentManaCount, friendlyBoard);
-                        for (Card c : directDamageCards) {
-                            if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
-                                messageQueue.add("Equip " + c.getName() + ".");
-                                messageQueue.add("Attack the opponent's face with your " + c.getName() + ".");
-                            } else {
-                                messageQueue.add("Use " + c.getName() + " on the opponent's face.");
-                            }
-                            friendlyHand.remove(c);
-                            currentManaCount -= c.getCost();
-                        }
+                        currentManaCount -= playBurst(
+                                faceBurst(friendlyHand, currentManaCount, friendlyBoard, alreadyAttacked), friendlyHand);
                     }
                 }
 
                 if (buzzardTurnCriteriaMet(friendlyHand, friendlyBoard, currentManaCount)) {
                     if (!alreadyAttacked) {
-                        for (Card c : friendlyBoard) {
-                            messageQueue.add("Attack the opponent's face with " + c.getName() + ".");
+                        for (int i = 0; i < friendlyBoard.size(); i++) {
+                            messageQueue.add("Attack the opponent's face with " + friendlyBoard.name(i) + ".");
                         }
 
                         if (bowEquipped) {
@@ -601,10 +578,10 @@ public class GameStateAnalyzer {
                     currentManaCount -= bestBeast.getCost();
                     if (bestBeast.getName().equalsIgnoreCase("Wolpertinger")
                         || bestBeast.getName().equalsIgnoreCase("Alleycat")) {
-                        state.notifyAfterNDraws(2, currentManaCount);
+                        afterDraws(2, currentManaCount);
                         return;
                     } else {
-                        state.notifyAfterNDraws(1, currentManaCount);
+                        afterDraws(1, currentManaCount);
                         return;
                     }
                 } else if (buzzardInPlay) {
@@ -623,10 +600,10 @@ public class GameStateAnalyzer {
                             if ((bestBeast.getName().equalsIgnoreCase("Wolpertinger")
                                     || bestBeast.getName().equalsIgnoreCase("Alleycat"))
                                     && boardSize <= 5) {
-                                state.notifyAfterNDraws(2, currentManaCount);
+                                afterDraws(2, currentManaCount);
                                 return;
                             } else {
-                                state.notifyAfterNDraws(1, currentManaCount);
+                                afterDraws(1, currentManaCount);
                                 return;
                             }
                         }
@@ -685,7 +662,7 @@ public class GameStateAnalyzer {
                                 boardSize++;
 
                                 if (buzzardInPlay) {
-                                    state.notifyAfterNDraws(1, currentManaCount);
+                                    afterDraws(1, currentManaCount);
                                     return;
                                 }
 
@@ -718,11 +695,11 @@ public class GameStateAnalyzer {
                                 case "Master's Call":
                                     messageQueue.add("Play Master's Call.");
                                     currentManaCount -= toPlay.getCost();
-                                    state.getFriendlyHand().remove(toPlay);
-                                    state.notifyAfterNDraws(3, currentManaCount);
+                                    removeFromHand(toPlay);
+                                    afterDraws(3, currentManaCount);
                                     if (!alreadyAttacked) {
-                                        for (Card c : friendlyBoard) {
-                                            messageQueue.add("Attack the opponent's face with " + c.getName() + ".");
+                                        for (int i = 0; i < friendlyBoard.size(); i++) {
+                                            messageQueue.add("Attack the opponent's face with " + friendlyBoard.name(i) + ".");
                                         }
 
                                         if (bowEquipped) {
@@ -765,137 +742,89 @@ public class GameStateAnalyzer {
             //If the opponent has minions in play, we'll need to do a few things.
             //Firstly, we must check if any of their minions have taunt. If so, we need to remove them
             //if possible.
-            List<Card> enemyTauntMinions = new ArrayList<>();
-            for (Card c : enemyBoard) {
-                if (c.getMechanics().contains("Taunt")) {
-                    enemyTauntMinions.add(c);
-                }
-            }
-            int totalTauntHealth = 0;
-
-            if (enemyTauntMinions.size() > 0) {
-                //When removing the opponent's taunt minions, we would prefer to utilize direct damage from our
-                //hand over our minions when possible, as maintaining control of the board is always our highest
-                //priority.
-                for (Card c : enemyBoard) {
-                    if (c.getMechanics().contains("Taunt")) {
-                        totalTauntHealth += c.getHealth();
-                    }
-                }
-                if (damageFromHand >= totalTauntHealth) {
-                    while (damageFromHand >= totalTauntHealth
-                            && totalTauntHealth > 0
-                            && damageFromHand > 0) {
-                        //Get the combination of cards needed to kill the taunt and tell the player to play them
-                        //We want to prioritize killing the highest health taunts first.
-                        Card highestHp = null;
-                        for (Card c : enemyTauntMinions) {
-                            if (highestHp == null) {
-                                highestHp = c;
-                            } else if (c.getHealth() > highestHp.getHealth()) {
-                                highestHp = c;
-                            }
-                        }
-
-                        List<Card> cardsToKill = killFromHand(friendlyHand, highestHp, currentManaCount, friendlyBoard);
-                        for (Card d : cardsToKill) {
-                            messageQueue.add("Use " + d.getName() + " on the opponent's " + highestHp.getName() + ".");
-                            friendlyHand.remove(d);
-                            currentManaCount -= d.getCost();
-                            if (d.getName().equalsIgnoreCase("Tundra Rhino")) {
+            int totalTauntHealth = enemyBoard.totalHealth(BoardSnapshot.TAUNT);
+
+            if (totalTauntHealth > 0) {
+                //Work out the cheapest way to clear every taunt with the minions on our board and the burn in
+                //our hand. Losing as few minions as possible comes first, as maintaining control of the board is
+                //always our highest priority.
+                TauntSolver.Plan clear = tauntSolver.solve(friendlyHand, currentManaCount, friendlyBoard, enemyBoard);
+                if (clear != null) {
+                    for (TauntSolver.Step step : clear.getSteps()) {
+                        Card c = step.getCard();
+                        String tauntName = enemyBoard.name(step.getTarget());
+                        if (!step.isFromHand()) {
+                            messageQueue.add("Attack the opponent's " + tauntName + " with your " + c.getName() + ".");
+                        } else if (c.getType().equalsIgnoreCase("minion")) {
+                            messageQueue.add("Play " + c.getName() + ".");
+                            messageQueue.add("Attack the opponent's " + tauntName + " with your " + c.getName() + ".");
+                            if (c.getName().equalsIgnoreCase("Tundra Rhino")) {
                                 rhinoInPlay = true;
-                                boardSize++;
                             }
+                            boardSize++;
+                        } else {
+                            messageQueue.add("Use " + c.getName() + " on the opponent's " + tauntName + ".");
                         }
-                        //Update the amount of damage we have available from our hand.
-                        damageFromHand = damageFromHandCalculation(friendlyHand, currentManaCount, friendlyBoard);
-                        totalTauntHealth -= highestHp.getHealth();
-                        enemyBoard.remove(highestHp);
-                    }
-                } else if (damageFromHand + damageFromBoard >= totalTauntHealth) {
-                    //Use all of our hand damage and the most efficient possible trades to kill the taunt
-                    Card highestHp = null;
-                    for (Card c : enemyTauntMinions) {
-                        if (highestHp == null) {
-                            highestHp = c;
-                        } else if (c.getHealth() > highestHp.getHealth()) {
-                            highestHp = c;
+                        if (step.isFromHand()) {
+                            friendlyHand.remove(c);
                         }
                     }
-
-                    List<Card> cardsToKill = killFromHand(friendlyHand, highestHp, currentManaCount, friendlyBoard);
-                    int tauntHp = highestHp.getHealth();
-                    for (Card d : cardsToKill) {
-                        messageQueue.add("Use " + d.getName() + " on the opponent's " + highestHp.getName() + ".");
-                        friendlyHand.remove(d);
-                        currentManaCount -= d.getCost();
-                        switch (d.getName()) {
-                            case "Kill Command":
-                                if (beastInPlay(friendlyBoard)) {
-                                    tauntHp -= 5;
-                                } else {
-                                    tauntHp -= 3;
-                                }
-                                break;
-                            case "Quick Shot":
-                                tauntHp -= 3;
-                            case "Tundra Rhino":
-                                rhinoInPlay = true;
-                                boardSize++;
-                                tauntHp -= 2;
-                            default:
-                                tauntHp -=3;
-                                break;
+                    currentManaCount -= clear.getManaSpent();
+
+                    //Remove from the back so the indices of the remaining minions don't shift.
+                    List<Integer> traded = new ArrayList<>();
+                    List<Integer> killed = new ArrayList<>();
+                    for (TauntSolver.Step step : clear.getSteps()) {
+                        if (!step.isFromHand()) {
+                            traded.add(step.getFriendlyIndex());
                         }
-                    }
-
-                    if (tauntHp > 0) {
-                        //We want to find the most efficient set of minions on our board to throw into the taunt.
-                        List<Card> toTrade = findBestTrades(friendlyBoard, highestHp.getAttack(), tauntHp);
-                        for (Card c : toTrade) {
-                            messageQueue.add("Attack the opponent's "
-                                    + highestHp.getName()
-                                    + " with your "
-                                    + c.getName() + ".");
-                            friendlyBoard.remove(c);
+                        if (!killed.contains(step.getTarget())) {
+                            killed.add(step.getTarget());
                         }
                     }
-                    enemyBoard.remove(highestHp);
+                    traded.sort(Collections.reverseOrder());
+                    killed.sort(Collections.reverseOrder());
+                    for (int i : traded) {
+                        friendlyBoard.remove(i);
+                    }
+                    for (int e : killed) {
+                        enemyBoard.remove(e);
+                    }
+                    totalTauntHealth = 0;
+                    damageFromHand = handBurst(friendlyHand, currentManaCount, friendlyBoard).getDamage();
                 }
             }
             List<Card> faceAttackers = new ArrayList<>();
             if (bowEquipped && !alreadyAttacked) {
                 //If we have a bow equipped, we want to prioritize trading into the highest attack minion
                 //the opponent has in play.
-                Card highestAttack = null;
-                for (Card e : enemyBoard) {
-                    if (highestAttack == null
-                            && e.getHealth() <= 3) {
-                        highestAttack = e;
-                    } else if (e.getHealth() <= 3
-                            && e.getAttack() >= highestAttack.getAttack()) {
+                int highestAttack = -1;
+                for (int e = 0; e < enemyBoard.size(); e++) {
+                    if (enemyBoard.health(e) <= 3
+                            && (highestAttack < 0 || enemyBoard.attack(e) >= enemyBoard.attack(highestAttack))) {
                         highestAttack = e;
                     }
                 }
 
-                if (highestAttack == null) {
+                if (highestAttack < 0) {
                     messageQueue.add("Attack the opponent's face with your Eaglehorn Bow.");
                 } else {
                     messageQueue.add("Attack the opponent's "
-                            + highestAttack.getName()
+                            + enemyBoard.name(highestAttack)
                             + " with your Eaglehorn Bow.");
                     enemyBoard.remove(highestAttack);
                 }
             }
-            for (Card c : friendlyBoard) {
+            for (int i = 0; i < friendlyBoard.size(); i++) {
                 if (!alreadyAttacked) {
-                    if (canValueTrade(c, enemyBoard)) {
+                    int target = enemyBoard.valueTradeTarget(friendlyBoard.attack(i), friendlyBoard.health(i));
+                    if (target >= 0) {
                         messageQueue.add("Attack the opponent's "
-                                + getValueTradeTarget(c, enemyBoard).getName()
-                                + " with your " + c.getName() + ".");
-                        enemyBoard.remove(getValueTradeTarget(c, enemyBoard));
+                                + enemyBoard.name(target)
+                                + " with your " + friendlyBoard.name(i) + ".");
+                        enemyBoard.remove(target);
                     } else {
-                        faceAttackers.add(c);
+                        faceAttackers.add(friendlyBoard.card(i));
                     }
                 }
             }
@@ -903,18 +832,10 @@ public class GameStateAnalyzer {
             while (currentManaCount > 0) {
                 if (!handContainsMinions(friendlyHand)) {
                     if (currentManaCount >= 2 && damageFromHand > 0) {
-                        List<Card> directDamageCards = getHighestDamageCombo(friendlyHand, currentManaCount, friendlyBoard);
-                        state.damageOpponent(damageFromHandCalculation(friendlyHand, currentManaCount, friendlyBoard));
-                        for (Card c : directDamageCards) {
-                            if (c.getName().equalsIgnoreCase("eaglehorn bow")) {
-                                messageQueue.add("Equip " + c.getName() + ".");
-                                messageQueue.add("Attack the opponent's face with your " + c.getName() + ".");
-                            } else {
-                                messageQueue.add("Use " + c.getName() + " on the opponent's face.");
-                            }
-                            friendlyHand.remove(c);
-                            currentManaCount -= c.getCost();
-                        }
+                        BurstDamageSolver.Plan burst = faceBurst(friendlyHand, currentManaCount, friendlyBoard,
+                                alreadyAttacked);
+                        damageOpponent(burst.getHandDamage());
+                        currentManaCount -= playBurst(burst, friendlyHand);
                     }
                 }
 
@@ -935,11 +856,12 @@ public class GameStateAnalyzer {
                     Card bestBeast = getBestBuzzardPlay(friendlyHand, friendlyBoard);
                     messageQueue.add("Play " + bestBeast.getName() + ".");
                     if (rhinoInPlay) {
-                        if (canValueTrade(bestBeast, enemyBoard)) {
+                        int target = enemyBoard.valueTradeTarget(bestBeast.getAttack(), bestBeast.getHealth());
+                        if (target >= 0) {
                             messageQueue.add("Attack the opponent's "
-                                    + getValueTradeTarget(bestBeast, enemyBoard).getName()
+                                    + enemyBoard.name(target)
                                     + " with your " + bestBeast.getName() + ".");
-                            enemyBoard.remove(getValueTradeTarget(bestBeast, enemyBoard));
+                            enemyBoard.remove(target);
                         } else {
                             messageQueue.add("Attack the opponent's face with " + bestBeast.getName() + ".");
                         }
@@ -947,10 +869,10 @@ public class GameStateAnalyzer {
                     currentManaCount -= bestBeast.getCost();
                     if (bestBeast.getName().equalsIgnoreCase("Wolpertinger")
                             || bestBeast.getName().equalsIgnoreCase("Alleycat")) {
-                        state.notifyAfterNDraws(2, currentManaCount);
+                        afterDraws(2, currentManaCount);
                         return;
                     } else {
-                        state.notifyAfterNDraws(1, currentManaCount);
+                        afterDraws(1, currentManaCount);
                         return;
                     }
                 } else if (buzzardInPlay && friendlyBoard.size() < 7) {
@@ -963,11 +885,12 @@ public class GameStateAnalyzer {
                         } else {
                             messageQueue.add("Play " + bestBeast.getName() + ".");
                             if (rhinoInPlay) {
-                                if (canValueTrade(bestBeast, enemyBoard)) {
+                                int target = enemyBoard.valueTradeTarget(bestBeast.getAttack(), bestBeast.getHealth());
+                                if (target >= 0) {
                                     messageQueue.add("Attack the opponent's "
-                                            + getValueTradeTarget(bestBeast, enemyBoard).getName()
+                                            + enemyBoard.name(target)
                                             + " with your " + bestBeast.getName() + ".");
-                                    enemyBoard.remove(getValueTradeTarget(bestBeast, enemyBoard));
+                                    enemyBoard.remove(target);
                                 } else {
                                     messageQueue.add("Attack the opponent's face with " + bestBeast.getName() + ".");
                                 }
@@ -976,10 +899,10 @@ public class GameStateAnalyzer {
                             if ((bestBeast.getName().equalsIgnoreCase("Wolpertinger")
                                     || bestBeast.getName().equalsIgnoreCase("Alleycat"))
                                     && friendlyBoard.size() <= 5) {
-                                state.notifyAfterNDraws(2, currentManaCount);
+                                afterDraws(2, currentManaCount);
                                 return;
                             } else {
-                                state.notifyAfterNDraws(1, currentManaCount);
+                                afterDraws(1, currentManaCount);
                                 return;
                             }
                         }
@@ -1037,7 +960,7 @@ public class GameStateAnalyzer {
                                 boardSize++;
 
                                 if (buzzardInPlay) {
-                                    state.notifyAfterNDraws(1, currentManaCount);
+                                    afterDraws(1, currentManaCount);
                                     return;
                                 }
 
@@ -1054,20 +977,22 @@ public class GameStateAnalyzer {
 
                                 if (rhinoInPlay) {
                                     if (alreadyAttacked) {
-                                        if (canValueTrade(toPlay, enemyBoard)) {
+                                        int target = enemyBoard.valueTradeTarget(toPlay.getAttack(), toPlay.getHealth());
+                                        if (target >= 0) {
                                             messageQueue.add("Attack the opponent's "
-                                                    + getValueTradeTarget(toPlay, enemyBoard).getName()
+                                                    + enemyBoard.name(target)
                                                     + " with your " + toPlay.getName() + ".");
-                                            enemyBoard.remove(getValueTradeTarget(toPlay, enemyBoard));
+                                            enemyBoard.remove(target);
                                         } else {
                                             messageQueue.add("Attack the opponent's face with " + toPlay.getName() + ".");
                                         }
                                     } else {
-                                        if (canValueTrade(toPlay, enemyBoard)) {
+                                        int target = enemyBoard.valueTradeTarget(toPlay.getAttack(), toPlay.getHealth());
+                                        if (target >= 0) {
                                             messageQueue.add("Attack the opponent's "
-                                                    + getValueTradeTarget(toPlay, enemyBoard).getName()
+                                                    + enemyBoard.name(target)
                                                     + " with your " + toPlay.getName() + ".");
-                                            enemyBoard.remove(getValueTradeTarget(toPlay, enemyBoard));
+                                            enemyBoard.remove(target);
                                         } else {
                                             faceAttackers.add(toPlay);
                                         }
@@ -1091,8 +1016,8 @@ public class GameStateAnalyzer {
                                     }
                                     messageQueue.add("Play Master's Call.");
                                     currentManaCount -= toPlay.getCost();
-                                    state.getFriendlyHand().remove(toPlay);
-                                    state.notifyAfterNDraws(3, currentManaCount);
+                                    removeFromHand(toPlay);
+                                    afterDraws(3, currentManaCount);
                                     return;
                                 case "Freezing Trap":
                                     messageQueue.add("Play Freezing Trap.");
@@ -1132,12 +1057,26 @@ public class GameStateAnalyzer {
     }
 
     public boolean hasMessage() {
-        return messageQueue.peek() != null;
+        return !published.isEmpty();
     }
 
     public String getMessage() {
         // This should only be called after the hasMessage() method.
         // As such, we shouldn't need to validate that a message is actually present.
-        return messageQueue.remove();
+        String message = published.poll();
+        if (message == null) {
+            throw new NoSuchElementException();
+        }
+        return message;
+    }
+
+    // Waits for the next message, for readers that print advice as soon as it is ready.
+    public String takeMessage() throws InterruptedException {
+        return published.take();
+    }
+
+    // Like takeMessage(), but gives up after the timeout and returns null.
+    public String pollMessage(long timeout, TimeUnit unit) throws InterruptedException {
+        return published.poll(timeout, unit);
     }
 }
\ No newline at end of file
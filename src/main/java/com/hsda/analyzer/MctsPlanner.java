@@ -0,0 +1,378 @@
+package com.hsda.analyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plans a turn with Monte Carlo tree search over TurnState's actions instead of the analyzer's rules.
+// Every worker on a fork-join pool repeatedly walks one shared tree with UCT, expands a node, plays the rest of the
+// turn out at random and feeds the result back up, until the deadline passes or the search is stopped. Walkers add
+// a virtual loss to every node they pass so that workers spread out over the tree instead of all following the
+// same line. The plan is the most visited line from the root, which is reported whenever it changes so the search
+// can be used as an anytime algorithm.
+public final class MctsPlanner {
+    private static final double EXPLORATION = Math.sqrt(2);
+    // How many points of TurnState.score() move a rollout's reward from 0.5 most of the way to 0 or 1.
+    private static final double SCORE_SCALE = 8.0;
+    // Rollouts end the turn at random with this chance, so they don't always use everything.
+    private static final double ROLLOUT_END_CHANCE = 0.1;
+    // How often a search reports a new best line at most.
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static MctsPlanner shared;
+
+    private final ForkJoinPool pool;
+    private final int threads;
+    private final long budgetNanos;
+
+    public MctsPlanner(int threads, long budgetMillis) {
+        this.threads = threads;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    // The planner to use, if -Dhsda.planner=mcts was given, or null to plan with the analyzer's rules.
+    // -Dhsda.mcts.threads=<n> sets the worker count (all cores by default) and -Dhsda.mcts.budgetMs=<ms> how long
+    // to search each time (500 ms by default) when no deadline is given.
+    // Searches keep nothing in the planner, so every analyzer in the process shares this one and its pool.
+    public static synchronized MctsPlanner fromSystemProperties() {
+        if (!"mcts".equalsIgnoreCase(System.getProperty("hsda.planner"))) {
+            return null;
+        }
+        if (shared == null) {
+            int threads = Integer.getInteger("hsda.mcts.threads", Runtime.getRuntime().availableProcessors());
+            long budget = Long.getLong("hsda.mcts.budgetMs", 500L);
+            shared = new MctsPlanner(Math.max(threads, 1), Math.max(budget, 1L));
+        }
+        return shared;
+    }
+
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    // A quick first answer to show while the search runs: keep taking whichever action raises TurnState.score()
+    // the most, until none does. The line doesn't include ending the turn.
+    public static List<Integer> greedy(TurnState root) {
+        TurnState state = root.copy();
+        int[] actions = new int[root.maxActions()];
+        List<Integer> line = new ArrayList<>();
+        while (!state.isLethal()) {
+            int n = state.legalActions(actions);
+            int best = -1;
+            double bestScore = state.score();
+            // Action 0 is always ending the turn.
+            for (int i = 1; i < n; i++) {
+                TurnState next = state.copy();
+                next.apply(actions[i]);
+                double score = next.isLethal() ? Double.POSITIVE_INFINITY : next.score();
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = actions[i];
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            line.add(best);
+            state.apply(best);
+        }
+        return line;
+    }
+
+    // Starts searching from root in the background until the deadline (a System.nanoTime() value) or until the
+    // search is stopped. Progress hears about every new best line along the way, from one of the workers.
+    public Search start(TurnState root, long deadline, Progress progress) {
+        Search search = new Search(root, deadline, progress);
+        for (int t = 0; t < threads; t++) {
+            long seed = search.start + t;
+            boolean reporter = t == 0;
+            pool.submit(() -> search.work(seed, reporter));
+        }
+        return search;
+    }
+
+    public interface Progress {
+        // The most visited line has changed since it was last reported.
+        void improved(Plan plan);
+
+        // The deadline passed. Not called for searches that were stopped first.
+        void finished(Plan plan);
+    }
+
+    // One search, shared by all the workers.
+    public final class Search {
+        private final Node rootNode;
+        private final int maxActions;
+        private final double baseline;
+        private final AtomicLong rollouts;
+        private final AtomicInteger running;
+        private final long start;
+        private final long deadline;
+        private final Progress progress;
+        private volatile boolean stopped;
+        // Guarded by this, like stopped's changes, so nothing is reported after stop() returns.
+        private boolean finished;
+        private List<Integer> reported;
+
+        private Search(TurnState root, long deadline, Progress progress) {
+            this.rootNode = new Node(null, -1, root.copy(), root.maxActions());
+            this.maxActions = root.maxActions();
+            this.baseline = root.score();
+            this.rollouts = new AtomicLong();
+            this.running = new AtomicInteger(threads);
+            this.start = System.nanoTime();
+            this.deadline = deadline;
+            this.progress = progress;
+        }
+
+        private void work(long seed, boolean reporter) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] actions = new int[maxActions];
+            long nextReport = start + REPORT_INTERVAL_NANOS;
+            try {
+                long now;
+                while (!stopped && (now = System.nanoTime()) < deadline) {
+                    search(rootNode, baseline, random, actions);
+                    rollouts.incrementAndGet();
+                    if (reporter && now >= nextReport) {
+                        report(false);
+                        nextReport = now + REPORT_INTERVAL_NANOS;
+                    }
+                }
+            } finally {
+                if (running.decrementAndGet() == 0) {
+                    report(true);
+                }
+            }
+        }
+
+        private synchronized void report(boolean last) {
+            if (stopped || finished) {
+                return;
+            }
+            Plan plan = currentPlan();
+            if (!plan.getActions().equals(reported)) {
+                reported = plan.getActions();
+                progress.improved(plan);
+            }
+            if (last) {
+                finished = true;
+                progress.finished(plan);
+                notifyAll();
+            }
+        }
+
+        // Waits until the search has reported its last line, or has been stopped.
+        public synchronized void awaitFinished() throws InterruptedException {
+            while (!finished && !stopped) {
+                wait();
+            }
+        }
+
+        // Stops the search early. Nothing more is reported once this returns. Returns false if the search had
+        // already finished.
+        public synchronized boolean stop() {
+            if (finished) {
+                return false;
+            }
+            stopped = true;
+            notifyAll();
+            return true;
+        }
+
+        // The most visited line from the root so far.
+        public Plan currentPlan() {
+            List<Integer> line = new ArrayList<>();
+            Node node = rootNode;
+            while (true) {
+                Node next = node.mostVisited();
+                if (next == null) {
+                    break;
+                }
+                line.add(next.action);
+                if (TurnState.typeOf(next.action) == TurnState.END_TURN) {
+                    break;
+                }
+                node = next;
+            }
+            return new Plan(line, rollouts.get(), System.nanoTime() - start, threads);
+        }
+    }
+
+    private void search(Node root, double baseline, SplittableRandom random, int[] actions) {
+        // Selection and expansion.
+        Node node = root;
+        node.addVirtualLoss();
+        while (!node.terminal) {
+            Node child = node.expand();
+            if (child != null) {
+                node = child;
+                break;
+            }
+            Node next = node.select();
+            if (next == null) {
+                // Another walker took the last action but hasn't added its child yet.
+                break;
+            }
+            node = next;
+            node.addVirtualLoss();
+        }
+
+        // Rollout.
+        double reward;
+        if (node.terminal) {
+            reward = reward(node.state, baseline);
+        } else {
+            TurnState state = node.state.copy();
+            while (true) {
+                int n = state.legalActions(actions);
+                // Action 0 is always ending the turn.
+                if (n == 1 || random.nextDouble() < ROLLOUT_END_CHANCE) {
+                    break;
+                }
+                state.apply(actions[1 + random.nextInt(n - 1)]);
+            }
+            reward = reward(state, baseline);
+        }
+
+        // Backpropagation.
+        for (Node n = node; n != null; n = n.parent) {
+            n.update(reward);
+        }
+    }
+
+    private static double reward(TurnState state, double baseline) {
+        if (state.isLethal()) {
+            return 1.0;
+        }
+        return 1.0 / (1.0 + Math.exp(-(state.score() - baseline) / SCORE_SCALE));
+    }
+
+    private static final class Node {
+        final Node parent;
+        final int action;
+        final TurnState state;
+        final boolean terminal;
+        private final int[] untried;
+        private int untriedCount;
+        private final List<Node> children;
+        // Visits include walkers still on their way back, who count as losses until they get here.
+        private int visits;
+        private double reward;
+
+        Node(Node parent, int action, TurnState state, int maxActions) {
+            this.parent = parent;
+            this.action = action;
+            this.state = state;
+            this.terminal = action >= 0 && TurnState.typeOf(action) == TurnState.END_TURN;
+            this.children = new ArrayList<>();
+            // A new child already carries the visit of the walker that created it.
+            this.visits = parent == null ? 0 : 1;
+            if (terminal) {
+                untried = new int[0];
+            } else {
+                int[] actions = new int[maxActions];
+                untriedCount = state.legalActions(actions);
+                untried = actions;
+            }
+        }
+
+        synchronized void addVirtualLoss() {
+            visits++;
+        }
+
+        synchronized void update(double value) {
+            reward += value;
+        }
+
+        // A new child for one of the actions not tried yet, or null if every action has a child.
+        Node expand() {
+            int next;
+            synchronized (this) {
+                if (untriedCount == 0) {
+                    return null;
+                }
+                next = untried[--untriedCount];
+            }
+            TurnState after = state.copy();
+            after.apply(next);
+            Node child = new Node(this, next, after, untried.length);
+            synchronized (this) {
+                children.add(child);
+            }
+            return child;
+        }
+
+        synchronized Node select() {
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(visits);
+            for (Node child : children) {
+                double value;
+                synchronized (child) {
+                    value = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        synchronized Node mostVisited() {
+            Node best = null;
+            for (Node child : children) {
+                if (best == null || child.visits > best.visits) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    public static final class Plan {
+        private final List<Integer> actions;
+        private final long rollouts;
+        private final long elapsedNanos;
+        private final int threads;
+
+        private Plan(List<Integer> actions, long rollouts, long elapsedNanos, int threads) {
+            this.actions = Collections.unmodifiableList(actions);
+            this.rollouts = rollouts;
+            this.elapsedNanos = elapsedNanos;
+            this.threads = threads;
+        }
+
+        // The actions to take, in order. Usually ends with ending the turn.
+        public List<Integer> getActions() {
+            return actions;
+        }
+
+        public long getRollouts() {
+            return rollouts;
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public long getRolloutsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rollouts * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hsda.analyzer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// A bounded queue of messages from one producer to one consumer, in a ring of slots allocated up front. Neither side
+// locks or allocates: the producer fills the slots from tail on and then moves tail past them, the consumer empties
+// slots up to tail and moves head. A consumer that finds the ring empty parks until the producer wakes it.
+// When the ring is full, new messages are dropped instead of making the producer wait, since the
+// producer is the thread following the game log, and falling behind on that would delay all later advice. Messages
+// are offered a plan at a time and dropped the same way, as half a plan is worse advice than none.
+// Producers may take turns, as long as each one hands over to the next through a happens-before edge.
+final class MessageRing {
+    private final String[] slots;
+    private final int mask;
+    // The next slot to read, only moved by the consumer.
+    private final AtomicLong head;
+    // The next slot to write, only moved by the producer.
+    private final AtomicLong tail;
+    private volatile Thread waiting;
+
+    MessageRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new String[size];
+        mask = size - 1;
+        head = new AtomicLong();
+        tail = new AtomicLong();
+    }
+
+    // Producer side. Adds all of the messages, in order, and makes them visible to the consumer at once, or none of
+    // them if they don't all fit. Returns how many were dropped: none or all.
+    int offerAll(List<String> messages) {
+        int n = messages.size();
+        long t = tail.get();
+        if (n == 0) {
+            return 0;
+        }
+        if (n > slots.length - (t - head.get())) {
+            return n;
+        }
+        for (int i = 0; i < n; i++) {
+            slots[(int) (t + i) & mask] = messages.get(i);
+        }
+        tail.set(t + n);
+        Thread consumer = waiting;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return 0;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    // How many messages are waiting to be read. Exact only on the consumer side, a hint anywhere else.
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    // Consumer side from here on.
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    // The next message, or null if there is none.
+    String poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int slot = (int) h & mask;
+        String message = slots[slot];
+        slots[slot] = null;
+        head.lazySet(h + 1);
+        return message;
+    }
+
+    String take() throws InterruptedException {
+        return await(false, 0);
+    }
+
+    // Waits up to the timeout for a message, and returns null if none came.
+    String poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    private String await(boolean timed, long deadline) throws InterruptedException {
+        String message = poll();
+        if (message != null) {
+            return message;
+        }
+        // Announce the wait before looking again, so a message published in between either shows up in that look
+        // or unparks us.
+        waiting = Thread.currentThread();
+        try {
+            while ((message = poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (timed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            return message;
+        } finally {
+            waiting = null;
+        }
+    }
+}
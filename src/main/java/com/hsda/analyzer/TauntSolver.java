@@ -0,0 +1,369 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.Card;
+import com.hsda.models.CardZone;
+import com.hsda.models.Zobrist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Decides which of our minions and which burn from hand go into each of the opponent's taunts.
+// Every attacker and every burn card we might afford is assigned to one taunt or left alone. Taunts are cleared one
+// at a time, biggest first, searching depth first with branch and bound and remembering the best way to clear the
+// rest from each set of sources left over. Of the assignments that kill every taunt we want the one that, in order:
+// loses the fewest (and cheapest) friendly minions, wastes the least damage on overkill, spends the least mana
+// and uses the fewest minions, so the rest can still go face or trade elsewhere.
+// Sources are tried biggest hit first, a taunt only gets sources until it dies, identical sources are only tried
+// once, and a branch is dropped as soon as it can't beat the best so far or can't deal enough damage.
+// Plans are kept in a transposition table by the Zobrist hash of the hand, mana and both boards.
+public final class TauntSolver {
+    private static final int BOARD_LIMIT = 7;
+    private static final int QUICK_SHOT_DAMAGE = 3;
+    private static final int KILL_COMMAND_DAMAGE = 3;
+    private static final int KILL_COMMAND_BEAST_DAMAGE = 5;
+
+    // Weights for the parts of an assignment's cost, so comparing two costs compares the parts in order.
+    private static final long LOSS = 1_000_000L;
+    private static final long WASTE = 10_000L;
+    private static final long MANA = 100L;
+    private static final long MINION = 1L;
+    private static final long INFEASIBLE = Long.MAX_VALUE;
+    // The search keeps a bit per source, so only the biggest this many are considered.
+    private static final int MAX_SOURCES = 16;
+    private static final int CACHE_SIZE = 4096;
+    // Stands in for "no plan" in the cache, which can't hold nulls.
+    private static final Plan NO_PLAN = new Plan(Collections.emptyList(), 0);
+
+    private final TranspositionTable<Plan> plans;
+
+    // Sources, sorted by damage.
+    private int sources;
+    private Card[] card;
+    private int[] friendlyIndex;
+    private int[] damage;
+    private int[] cost;
+    private int[] health;
+    private int[] value;
+    private boolean[] minion;
+    private boolean[] sameAsPrevious;
+    private int[] damageAfter;
+
+    // Taunts.
+    private int taunts;
+    private int[] tauntIndex;
+    private int[] tauntAttack;
+    private int[] tauntHealth;
+
+    // The cheapest way to clear taunts t.. once the sources in a used mask are taken, and the sources that go into
+    // taunt t for it, by t << sources | used. Entries are only valid if their stamp is the current one, so the
+    // arrays can be kept between calls without clearing them.
+    private long[] memo;
+    private int[] memoCover;
+    private int[] memoStamp;
+    private int stamp;
+    // The best cover found so far for the taunt being cleared at each depth of the search.
+    private long[] bestAt;
+    private int[] coverAt;
+
+    public TauntSolver() {
+        this(CACHE_SIZE);
+    }
+
+    // cacheSize: how many plans to keep, or 0 to work every one out from scratch.
+    public TauntSolver(int cacheSize) {
+        plans = new TranspositionTable<>(cacheSize);
+    }
+
+    // Returns null if there is no way to kill every taunt with what we have.
+    public Plan solve(List<Card> hand, int mana, BoardSnapshot.Side friendlyBoard, BoardSnapshot.Side enemyBoard) {
+        long key = Zobrist.cards(CardZone.FRIENDLY_HAND, hand) ^ Zobrist.value(Zobrist.TURN_MANA, mana)
+                ^ friendlyBoard.hash(CardZone.FRIENDLY_PLAY) ^ enemyBoard.hash(CardZone.OPPOSING_PLAY);
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            plan = search(hand, mana, friendlyBoard, enemyBoard);
+            plans.put(key, plan == null ? NO_PLAN : plan);
+        }
+        return plan == NO_PLAN ? null : plan;
+    }
+
+    // Forgets every plan worked out so far. Entity ids start over each game, so this is called when one ends.
+    public void reset() {
+        plans.clear();
+    }
+
+    public TranspositionTable<Plan> getCache() {
+        return plans;
+    }
+
+    private Plan search(List<Card> hand, int mana, BoardSnapshot.Side friendlyBoard, BoardSnapshot.Side enemyBoard) {
+        List<Integer> tauntList = new ArrayList<>();
+        for (int i = 0; i < enemyBoard.size(); i++) {
+            if (enemyBoard.has(i, BoardSnapshot.TAUNT)) {
+                tauntList.add(i);
+            }
+        }
+        // The biggest taunts are the hardest to kill, so they are assigned first.
+        tauntList.sort((a, b) -> enemyBoard.health(b) - enemyBoard.health(a));
+        taunts = tauntList.size();
+        tauntIndex = new int[taunts];
+        tauntAttack = new int[taunts];
+        tauntHealth = new int[taunts];
+        int totalHealth = 0;
+        for (int t = 0; t < taunts; t++) {
+            int e = tauntList.get(t);
+            tauntIndex[t] = e;
+            tauntAttack[t] = enemyBoard.attack(e);
+            tauntHealth[t] = enemyBoard.health(e);
+            totalHealth += tauntHealth[t];
+        }
+        if (taunts == 0) {
+            return new Plan(Collections.emptyList(), 0);
+        }
+
+        loadSources(hand, mana, friendlyBoard);
+        if (damageAfter[0] < totalHealth) {
+            return null;
+        }
+
+        int states = taunts << sources;
+        if (memo == null || memo.length < states) {
+            memo = new long[states];
+            memoCover = new int[states];
+            memoStamp = new int[states];
+        }
+        stamp++;
+        bestAt = new long[taunts];
+        coverAt = new int[taunts];
+        if (clear(0, 0, mana, damageAfter[0], totalHealth) == INFEASIBLE) {
+            return null;
+        }
+
+        int[] assigned = new int[sources];
+        int used = 0;
+        for (int t = 0; t < taunts; t++) {
+            int cover = memoCover[t << sources | used];
+            for (int s = 0; s < sources; s++) {
+                if ((cover & 1 << s) != 0) {
+                    assigned[s] = t;
+                }
+            }
+            used |= cover;
+        }
+
+        // Cards from hand go first so minions only attack what is left, then the biggest taunt first.
+        List<Step> steps = new ArrayList<>();
+        int manaSpent = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            boolean fromHand = pass == 0;
+            for (int t = 0; t < taunts; t++) {
+                for (int s = 0; s < sources; s++) {
+                    if ((used & 1 << s) != 0 && assigned[s] == t && (friendlyIndex[s] < 0) == fromHand) {
+                        steps.add(new Step(card[s], friendlyIndex[s], tauntIndex[t]));
+                        manaSpent += cost[s];
+                    }
+                }
+            }
+        }
+        return new Plan(steps, manaSpent);
+    }
+
+    private void loadSources(List<Card> hand, int mana, BoardSnapshot.Side friendlyBoard) {
+        List<Card> cards = new ArrayList<>();
+        List<int[]> stats = new ArrayList<>();
+        boolean beastInPlay = friendlyBoard.any(BoardSnapshot.BEAST);
+        for (int i = 0; i < friendlyBoard.size(); i++) {
+            if (friendlyBoard.attack(i) > 0) {
+                cards.add(friendlyBoard.card(i));
+                // friendly index, damage, cost, health, minion
+                stats.add(new int[]{i, friendlyBoard.attack(i), 0, friendlyBoard.health(i), 1});
+            }
+        }
+        boolean rhinoPlayable = friendlyBoard.size() < BOARD_LIMIT;
+        for (Card c : hand) {
+            if (c.getCost() > mana) {
+                continue;
+            }
+            if (c.getName().equalsIgnoreCase("quick shot")) {
+                cards.add(c);
+                stats.add(new int[]{-1, QUICK_SHOT_DAMAGE, c.getCost(), 0, 0});
+            } else if (c.getName().equalsIgnoreCase("kill command")) {
+                cards.add(c);
+                int damage = beastInPlay ? KILL_COMMAND_BEAST_DAMAGE : KILL_COMMAND_DAMAGE;
+                stats.add(new int[]{-1, damage, c.getCost(), 0, 0});
+            } else if (c.getName().equalsIgnoreCase("tundra rhino") && rhinoPlayable) {
+                // Only one, as it takes up the last board slot we might have.
+                cards.add(c);
+                stats.add(new int[]{-1, c.getAttack(), c.getCost(), c.getHealth(), 1});
+                rhinoPlayable = false;
+            }
+        }
+
+        Integer[] order = new Integer[cards.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int[] x = stats.get(a);
+            int[] y = stats.get(b);
+            if (x[1] != y[1]) {
+                return y[1] - x[1];
+            }
+            if (x[4] != y[4]) {
+                return x[4] - y[4];
+            }
+            if (x[2] != y[2]) {
+                return x[2] - y[2];
+            }
+            return x[3] - y[3];
+        });
+
+        sources = Math.min(order.length, MAX_SOURCES);
+        card = new Card[sources];
+        friendlyIndex = new int[sources];
+        damage = new int[sources];
+        cost = new int[sources];
+        health = new int[sources];
+        value = new int[sources];
+        minion = new boolean[sources];
+        sameAsPrevious = new boolean[sources];
+        damageAfter = new int[sources + 1];
+        for (int s = 0; s < sources; s++) {
+            int[] x = stats.get(order[s]);
+            card[s] = cards.get(order[s]);
+            friendlyIndex[s] = x[0];
+            damage[s] = x[1];
+            cost[s] = x[2];
+            health[s] = x[3];
+            minion[s] = x[4] == 1;
+            // What losing this minion costs us. Tokens still count for something.
+            value[s] = card[s].getCost() + 1;
+            sameAsPrevious[s] = s > 0 && damage[s] == damage[s - 1] && cost[s] == cost[s - 1]
+                    && health[s] == health[s - 1] && minion[s] == minion[s - 1]
+                    && (friendlyIndex[s] < 0) == (friendlyIndex[s - 1] < 0) && value[s] == value[s - 1];
+        }
+        for (int s = sources - 1; s >= 0; s--) {
+            damageAfter[s] = damageAfter[s + 1] + damage[s];
+        }
+    }
+
+    // The cheapest way to clear taunt t and every one after it, or INFEASIBLE. An optimal assignment never puts
+    // more into a taunt than it needs, since dropping a source that isn't needed only makes it cheaper, so only
+    // minimal sets of sources are tried for each taunt.
+    private long clear(int t, int used, int mana, int unusedDamage, int remainingHealth) {
+        if (t == taunts) {
+            return 0;
+        }
+        if (unusedDamage < remainingHealth) {
+            return INFEASIBLE;
+        }
+        int key = t << sources | used;
+        if (memoStamp[key] == stamp) {
+            return memo[key];
+        }
+        bestAt[t] = INFEASIBLE;
+        coverAt[t] = 0;
+        pick(t, 0, tauntHealth[t], used, 0, mana, unusedDamage, remainingHealth, 0);
+        memo[key] = bestAt[t];
+        memoCover[key] = coverAt[t];
+        memoStamp[key] = stamp;
+        return bestAt[t];
+    }
+
+    // Adds sources from s on to taunt t until it has taken hp more damage. Sources are sorted by damage, so
+    // stopping as soon as the taunt dies means every set tried is minimal. A set is dropped as soon as it costs
+    // more than the best way found so far to clear the same taunts.
+    private void pick(int t, int from, int hp, int used, int cover, int mana, int unusedDamage, int remainingHealth,
+                      long coverCost) {
+        for (int s = from; s < sources && damageAfter[s] >= hp; s++) {
+            int bit = 1 << s;
+            if ((used & bit) != 0 || cost[s] > mana) {
+                continue;
+            }
+            // Of identical sources, only the first one still free is tried at this point.
+            if (s > from && sameAsPrevious[s] && (used & bit >>> 1) == 0) {
+                continue;
+            }
+            long c = coverCost + stepCost(s, t);
+            if (damage[s] >= hp) {
+                c += (damage[s] - hp) * WASTE;
+            }
+            if (c >= bestAt[t]) {
+                continue;
+            }
+            if (damage[s] >= hp) {
+                long rest = clear(t + 1, used | bit, mana - cost[s], unusedDamage - damage[s],
+                        remainingHealth - tauntHealth[t]);
+                if (rest != INFEASIBLE && c + rest < bestAt[t]) {
+                    bestAt[t] = c + rest;
+                    coverAt[t] = cover | bit;
+                }
+            } else {
+                pick(t, s + 1, hp - damage[s], used | bit, cover | bit, mana - cost[s], unusedDamage - damage[s],
+                        remainingHealth, c);
+            }
+        }
+    }
+
+    private long stepCost(int s, int t) {
+        long stepCost = cost[s] * MANA;
+        if (minion[s]) {
+            stepCost += MINION;
+            if (health[s] <= tauntAttack[t]) {
+                stepCost += value[s] * LOSS;
+            }
+        }
+        return stepCost;
+    }
+
+    public static final class Plan {
+        private final List<Step> steps;
+        private final int manaSpent;
+
+        private Plan(List<Step> steps, int manaSpent) {
+            this.steps = Collections.unmodifiableList(steps);
+            this.manaSpent = manaSpent;
+        }
+
+        // Cards from hand first, then attacks from the board.
+        public List<Step> getSteps() {
+            return steps;
+        }
+
+        public int getManaSpent() {
+            return manaSpent;
+        }
+    }
+
+    // One card or minion going into one taunt.
+    public static final class Step {
+        private final Card card;
+        private final int friendlyIndex;
+        private final int target;
+
+        private Step(Card card, int friendlyIndex, int target) {
+            this.card = card;
+            this.friendlyIndex = friendlyIndex;
+            this.target = target;
+        }
+
+        public Card getCard() {
+            return card;
+        }
+
+        // The attacker's index on the friendly board, or -1 if the card is played from hand.
+        public int getFriendlyIndex() {
+            return friendlyIndex;
+        }
+
+        public boolean isFromHand() {
+            return friendlyIndex < 0;
+        }
+
+        // The taunt's index on the enemy board.
+        public int getTarget() {
+            return target;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.hsda.analyzer;
+
+import java.util.Arrays;
+
+// A fixed-size cache of results by the Zobrist hash of what they were worked out from.
+// The low bits of a hash pick a bucket of two slots. A new result goes into a free slot of its bucket, or else
+// pushes the older of the two out, so the table never grows and a lookup is at most two array reads. The full hash
+// is kept with each result, so a result is only ever returned for the hash it was stored under.
+public final class TranspositionTable<V> {
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    // capacity is rounded up to a power of two. A capacity of 0 makes a table that never holds anything.
+    public TranspositionTable(int capacity) {
+        int size = capacity <= 0 ? 0 : Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        keys = new long[size];
+        values = new Object[size];
+        mask = size - 1;
+    }
+
+    // The result stored under this hash, or null.
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (values.length == 0) {
+            misses++;
+            return null;
+        }
+        int slot = (int) key & mask & ~1;
+        for (int i = slot; i <= (slot | 1); i++) {
+            if (values[i] != null && keys[i] == key) {
+                hits++;
+                return (V) values[i];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void put(long key, V value) {
+        if (values.length == 0) {
+            return;
+        }
+        // The first slot of a bucket holds the newer result.
+        int slot = (int) key & mask & ~1;
+        if (values[slot] == null || keys[slot] != key) {
+            keys[slot + 1] = keys[slot];
+            values[slot + 1] = values[slot];
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    // How many results the table holds, by going over every slot.
+    public int size() {
+        int size = 0;
+        for (Object value : values) {
+            if (value != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate)", hits, misses, getHitRate() * 100);
+    }
+}
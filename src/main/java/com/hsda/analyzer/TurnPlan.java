@@ -0,0 +1,35 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.GameState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// What the analyzer worked out for one state: the messages it queued and the changes it made to the game state on
+// the way, in order, so meeting the same state again can be answered by replaying them.
+final class TurnPlan {
+    private final List<String> messages;
+    private final List<Consumer<GameState>> effects;
+
+    TurnPlan() {
+        messages = new ArrayList<>();
+        effects = new ArrayList<>();
+    }
+
+    void addMessages(Collection<String> queued) {
+        messages.addAll(queued);
+    }
+
+    void addEffect(Consumer<GameState> effect) {
+        effects.add(effect);
+    }
+
+    void replay(Collection<String> messageQueue, GameState state) {
+        messageQueue.addAll(messages);
+        for (Consumer<GameState> effect : effects) {
+            effect.accept(state);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.hsda.analyzer;
+
+import com.hsda.models.Card;
+
+import java.util.List;
+import java.util.Locale;
+
+// A small, copyable model of our turn for the Monte Carlo planner: our hand and mana, both boards, our weapon and
+// hero power, and the opponent's life. Actions are plain ints so the planner can keep thousands of them cheaply.
+// The model knows what the cards in our deck do (Tundra Rhino's charge, Timber Wolf's aura, Starving Buzzard's
+// draws, Alleycat and Wolpertinger's extra beast, Kill Command's beast bonus) and ignores everything else.
+public final class TurnState {
+    public static final int END_TURN = 0;
+    public static final int PLAY = 1;
+    public static final int ATTACK = 2;
+    public static final int HERO_ATTACK = 3;
+    public static final int HERO_POWER = 4;
+
+    // Target 0 is the opponent's face, n + 1 is the opponent's nth minion.
+    public static final int FACE = 0;
+
+    private static final int BOARD_LIMIT = 7;
+    private static final int HERO_POWER_COST = 2;
+    private static final int HERO_POWER_DAMAGE = 2;
+    private static final int BOW_DURABILITY = 2;
+
+    private static final int MINION = 0;
+    private static final int QUICK_SHOT = 1;
+    private static final int KILL_COMMAND = 2;
+    private static final int BOW = 3;
+    private static final int COIN = 4;
+    private static final int MASTERS_CALL = 5;
+    private static final int OTHER_SPELL = 6;
+
+    private int mana;
+    private int opponentLife;
+    private int damageDealt;
+    private int cardsDrawn;
+    private int secretsPlayed;
+    private boolean heroPowerUsed;
+    private boolean heroAttacked;
+    private int bowAttack;
+    private int bowDurability;
+
+    private int handSize;
+    private Card[] hand;
+    private int[] handKind;
+
+    private int friendlySize;
+    private String[] friendlyName;
+    private int[] friendlyAttack;
+    private int[] friendlyHealth;
+    private int[] friendlyFlags;
+    private boolean[] summoned;
+    private boolean[] attacked;
+
+    private int enemySize;
+    private String[] enemyName;
+    private int[] enemyAttack;
+    private int[] enemyHealth;
+    private boolean[] enemyTaunt;
+
+    private TurnState() {
+    }
+
+    // alreadyAttacked: whether the minions and weapon we have in play already attacked this turn.
+    public static TurnState of(List<Card> hand, int mana, BoardSnapshot.Side friendlyBoard,
+                               BoardSnapshot.Side enemyBoard, int opponentLife, boolean bowEquipped,
+                               boolean alreadyAttacked) {
+        TurnState s = new TurnState();
+        s.mana = mana;
+        s.opponentLife = opponentLife;
+        s.bowAttack = bowEquipped ? 3 : 0;
+        s.bowDurability = bowEquipped ? 1 : 0;
+        s.heroAttacked = alreadyAttacked;
+
+        s.handSize = hand.size();
+        s.hand = hand.toArray(new Card[0]);
+        s.handKind = new int[s.handSize];
+        for (int i = 0; i < s.handSize; i++) {
+            s.handKind[i] = kindOf(s.hand[i]);
+        }
+
+        s.friendlyName = new String[BOARD_LIMIT];
+        s.friendlyAttack = new int[BOARD_LIMIT];
+        s.friendlyHealth = new int[BOARD_LIMIT];
+        s.friendlyFlags = new int[BOARD_LIMIT];
+        s.summoned = new boolean[BOARD_LIMIT];
+        s.attacked = new boolean[BOARD_LIMIT];
+        for (int i = 0; i < friendlyBoard.size() && i < BOARD_LIMIT; i++) {
+            s.friendlyName[i] = friendlyBoard.name(i);
+            s.friendlyAttack[i] = friendlyBoard.attack(i);
+            s.friendlyHealth[i] = friendlyBoard.health(i);
+            s.friendlyFlags[i] = BoardSnapshot.flagsOf(friendlyBoard.card(i));
+            s.attacked[i] = alreadyAttacked;
+            s.friendlySize++;
+        }
+
+        int enemies = enemyBoard.size();
+        s.enemyName = new String[enemies];
+        s.enemyAttack = new int[enemies];
+        s.enemyHealth = new int[enemies];
+        s.enemyTaunt = new boolean[enemies];
+        for (int i = 0; i < enemies; i++) {
+            s.enemyName[i] = enemyBoard.name(i);
+            s.enemyAttack[i] = enemyBoard.attack(i);
+            s.enemyHealth[i] = enemyBoard.health(i);
+            s.enemyTaunt[i] = enemyBoard.has(i, BoardSnapshot.TAUNT);
+        }
+        s.enemySize = enemies;
+        return s;
+    }
+
+    private static int kindOf(Card c) {
+        switch (c.getName().toLowerCase(Locale.ROOT)) {
+            case "quick shot":
+                return QUICK_SHOT;
+            case "kill command":
+                return KILL_COMMAND;
+            case "eaglehorn bow":
+                return BOW;
+            case "the coin":
+                return COIN;
+            case "master's call":
+                return MASTERS_CALL;
+            default:
+                return c.getType().equalsIgnoreCase("minion") ? MINION : OTHER_SPELL;
+        }
+    }
+
+    public TurnState copy() {
+        TurnState s = new TurnState();
+        s.mana = mana;
+        s.opponentLife = opponentLife;
+        s.damageDealt = damageDealt;
+        s.cardsDrawn = cardsDrawn;
+        s.secretsPlayed = secretsPlayed;
+        s.heroPowerUsed = heroPowerUsed;
+        s.heroAttacked = heroAttacked;
+        s.bowAttack = bowAttack;
+        s.bowDurability = bowDurability;
+        s.handSize = handSize;
+        s.hand = hand.clone();
+        s.handKind = handKind.clone();
+        s.friendlySize = friendlySize;
+        s.friendlyName = friendlyName.clone();
+        s.friendlyAttack = friendlyAttack.clone();
+        s.friendlyHealth = friendlyHealth.clone();
+        s.friendlyFlags = friendlyFlags.clone();
+        s.summoned = summoned.clone();
+        s.attacked = attacked.clone();
+        s.enemySize = enemySize;
+        s.enemyName = enemyName.clone();
+        s.enemyAttack = enemyAttack.clone();
+        s.enemyHealth = enemyHealth.clone();
+        s.enemyTaunt = enemyTaunt.clone();
+        return s;
+    }
+
+    public static int action(int type, int source, int target) {
+        return type | source << 4 | target << 12;
+    }
+
+    public static int typeOf(int action) {
+        return action & 0xF;
+    }
+
+    private static int sourceOf(int action) {
+        return action >>> 4 & 0xFF;
+    }
+
+    private static int targetOf(int action) {
+        return action >>> 12;
+    }
+
+    public boolean isLethal() {
+        return opponentLife <= 0;
+    }
+
+    // Writes every legal action into actions and returns how many there are. Ending the turn is always first.
+    // Copies of the same card in hand are only offered once.
+    public int legalActions(int[] actions) {
+        int n = 0;
+        actions[n++] = action(END_TURN, 0, 0);
+        if (isLethal()) {
+            return n;
+        }
+        boolean taunt = hasTaunt();
+        for (int i = 0; i < handSize; i++) {
+            Card c = hand[i];
+            if (c.getCost() > mana || seenEarlier(i)) {
+                continue;
+            }
+            switch (handKind[i]) {
+                case MINION:
+                    if (friendlySize < BOARD_LIMIT) {
+                        actions[n++] = action(PLAY, i, 0);
+                    }
+                    break;
+                case QUICK_SHOT:
+                case KILL_COMMAND:
+                    // Spells ignore taunt.
+                    actions[n++] = action(PLAY, i, FACE);
+                    for (int e = 0; e < enemySize; e++) {
+                        actions[n++] = action(PLAY, i, e + 1);
+                    }
+                    break;
+                default:
+                    actions[n++] = action(PLAY, i, 0);
+                    break;
+            }
+        }
+        for (int i = 0; i < friendlySize; i++) {
+            if (canAttack(i)) {
+                n = addTargets(actions, n, ATTACK, i, taunt);
+            }
+        }
+        if (bowAttack > 0 && !heroAttacked) {
+            n = addTargets(actions, n, HERO_ATTACK, 0, taunt);
+        }
+        if (!heroPowerUsed && mana >= HERO_POWER_COST) {
+            actions[n++] = action(HERO_POWER, 0, FACE);
+        }
+        return n;
+    }
+
+    // The most actions legalActions can return for this state or any state after it.
+    public int maxActions() {
+        return 2 + (handSize + BOARD_LIMIT + 1) * (enemySize + 1);
+    }
+
+    private int addTargets(int[] actions, int n, int type, int source, boolean taunt) {
+        if (!taunt) {
+            actions[n++] = action(type, source, FACE);
+        }
+        for (int e = 0; e < enemySize; e++) {
+            if (!taunt || enemyTaunt[e]) {
+                actions[n++] = action(type, source, e + 1);
+            }
+        }
+        return n;
+    }
+
+    private boolean seenEarlier(int i) {
+        for (int j = 0; j < i; j++) {
+            if (hand[j].getCardId().equals(hand[i].getCardId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasTaunt() {
+        for (int e = 0; e < enemySize; e++) {
+            if (enemyTaunt[e]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean anyFriendly(int flag) {
+        for (int i = 0; i < friendlySize; i++) {
+            if ((friendlyFlags[i] & flag) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countFriendly(int flag) {
+        int count = 0;
+        for (int i = 0; i < friendlySize; i++) {
+            if ((friendlyFlags[i] & flag) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean canAttack(int i) {
+        if (attacked[i] || attackOf(i) <= 0) {
+            return false;
+        }
+        return !summoned[i] || ((friendlyFlags[i] & BoardSnapshot.BEAST) != 0 && anyFriendly(BoardSnapshot.TUNDRA_RHINO));
+    }
+
+    // Timber Wolf gives our other beasts +1 attack.
+    private int attackOf(int i) {
+        int attack = friendlyAttack[i];
+        if ((friendlyFlags[i] & BoardSnapshot.BEAST) != 0) {
+            attack += countFriendly(BoardSnapshot.TIMBER_WOLF);
+            if ((friendlyFlags[i] & BoardSnapshot.TIMBER_WOLF) != 0) {
+                attack--;
+            }
+        }
+        return attack;
+    }
+
+    public void apply(int action) {
+        int source = sourceOf(action);
+        int target = targetOf(action);
+        switch (typeOf(action)) {
+            case PLAY:
+                play(source, target);
+                break;
+            case ATTACK: {
+                int damage = attackOf(source);
+                attacked[source] = true;
+                if (target == FACE) {
+                    hitFace(damage);
+                } else {
+                    friendlyHealth[source] -= enemyAttack[target - 1];
+                    hitMinion(target - 1, damage);
+                    if (friendlyHealth[source] <= 0) {
+                        removeFriendly(source);
+                    }
+                }
+                break;
+            }
+            case HERO_ATTACK:
+                heroAttacked = true;
+                if (target == FACE) {
+                    hitFace(bowAttack);
+                } else {
+                    hitMinion(target - 1, bowAttack);
+                }
+                if (--bowDurability == 0) {
+                    bowAttack = 0;
+                }
+                break;
+            case HERO_POWER:
+                heroPowerUsed = true;
+                mana -= HERO_POWER_COST;
+                hitFace(HERO_POWER_DAMAGE);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void play(int i, int target) {
+        Card c = hand[i];
+        int kind = handKind[i];
+        mana -= c.getCost();
+        System.arraycopy(hand, i + 1, hand, i, handSize - i - 1);
+        System.arraycopy(handKind, i + 1, handKind, i, handSize - i - 1);
+        handSize--;
+        switch (kind) {
+            case MINION:
+                summon(c.getName(), c.getAttack(), c.getHealth(), BoardSnapshot.flagsOf(c));
+                if (c.getName().equalsIgnoreCase("alleycat")) {
+                    summon("Tabbycat", 1, 1, BoardSnapshot.MINION | BoardSnapshot.BEAST);
+                } else if (c.getName().equalsIgnoreCase("wolpertinger")) {
+                    summon("Wolpertinger", 1, 1, BoardSnapshot.MINION | BoardSnapshot.BEAST);
+                }
+                break;
+            case QUICK_SHOT:
+            case KILL_COMMAND: {
+                int damage = kind == QUICK_SHOT ? 3 : anyFriendly(BoardSnapshot.BEAST) ? 5 : 3;
+                if (target == FACE) {
+                    hitFace(damage);
+                } else {
+                    hitMinion(target - 1, damage);
+                }
+                break;
+            }
+            case BOW:
+                bowAttack = c.getAttack() > 0 ? c.getAttack() : 3;
+                bowDurability = BOW_DURABILITY;
+                break;
+            case COIN:
+                mana++;
+                break;
+            case MASTERS_CALL:
+                cardsDrawn += 3;
+                break;
+            default:
+                secretsPlayed++;
+                break;
+        }
+    }
+
+    private void summon(String name, int attack, int health, int flags) {
+        if (friendlySize == BOARD_LIMIT) {
+            return;
+        }
+        if ((flags & BoardSnapshot.BEAST) != 0) {
+            cardsDrawn += countFriendly(BoardSnapshot.STARVING_BUZZARD);
+        }
+        int i = friendlySize++;
+        friendlyName[i] = name;
+        friendlyAttack[i] = attack;
+        friendlyHealth[i] = health;
+        friendlyFlags[i] = flags;
+        summoned[i] = true;
+        attacked[i] = false;
+    }
+
+    private void hitFace(int damage) {
+        opponentLife -= damage;
+        damageDealt += damage;
+    }
+
+    private void hitMinion(int e, int damage) {
+        enemyHealth[e] -= damage;
+        if (enemyHealth[e] <= 0) {
+            int tail = enemySize - e - 1;
+            System.arraycopy(enemyName, e + 1, enemyName, e, tail);
+            System.arraycopy(enemyAttack, e + 1, enemyAttack, e, tail);
+            System.arraycopy(enemyHealth, e + 1, enemyHealth, e, tail);
+            System.arraycopy(enemyTaunt, e + 1, enemyTaunt, e, tail);
+            enemySize--;
+        }
+    }
+
+    private void removeFriendly(int i) {
+        int tail = friendlySize - i - 1;
+        System.arraycopy(friendlyName, i + 1, friendlyName, i, tail);
+        System.arraycopy(friendlyAttack, i + 1, friendlyAttack, i, tail);
+        System.arraycopy(friendlyHealth, i + 1, friendlyHealth, i, tail);
+        System.arraycopy(friendlyFlags, i + 1, friendlyFlags, i, tail);
+        System.arraycopy(summoned, i + 1, summoned, i, tail);
+        System.arraycopy(attacked, i + 1, attacked, i, tail);
+        friendlySize--;
+    }
+
+    // How good the position is for us, in roughly points of damage. Only differences between states matter.
+    public double score() {
+        double score = damageDealt;
+        for (int i = 0; i < friendlySize; i++) {
+            score += 0.5 * (attackOf(i) + friendlyHealth[i]);
+        }
+        for (int e = 0; e < enemySize; e++) {
+            score -= 0.6 * (enemyAttack[e] + enemyHealth[e]);
+        }
+        score += 0.8 * handSize + cardsDrawn + 1.5 * secretsPlayed + 0.5 * bowAttack * bowDurability;
+        return score;
+    }
+
+    // What the player should be told to do for the action, in the analyzer's usual words. Call before apply.
+    public String describe(int action) {
+        int source = sourceOf(action);
+        int target = targetOf(action);
+        String at = target == FACE ? "the opponent's face" : "the opponent's " + enemyName[target - 1];
+        switch (typeOf(action)) {
+            case PLAY: {
+                Card c = hand[source];
+                switch (handKind[source]) {
+                    case QUICK_SHOT:
+                    case KILL_COMMAND:
+                        return "Use " + c.getName() + " on " + at + ".";
+                    case BOW:
+                        return "Equip " + c.getName() + ".";
+                    default:
+                        return "Play " + c.getName() + ".";
+                }
+            }
+            case ATTACK:
+                return target == FACE
+                        ? "Attack the opponent's face with " + friendlyName[source] + "."
+                        : "Attack " + at + " with your " + friendlyName[source] + ".";
+            case HERO_ATTACK:
+                return "Attack " + at + " with your Eaglehorn Bow.";
+            case HERO_POWER:
+                return "Use your hero power.";
+            default:
+                return "Pass the turn.";
+        }
+    }
+
+    public int getMana() {
+        return mana;
+    }
+
+    public int getCardsDrawn() {
+        return cardsDrawn;
+    }
+}
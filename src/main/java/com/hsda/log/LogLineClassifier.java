@@ -0,0 +1,173 @@
+package com.hsda.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Classifies Zone.log lines in a single pass.
+// All of the marker strings we care about are compiled into one Wu-Manber matcher: a window as long as the
+// shortest marker slides over the line, and the two characters at its end decide how far it can jump. Most of
+// a line is skipped without being looked at, and markers are only compared in full where one could end.
+// The scan produces a bitmask of the markers found, and the line type is then decided from that mask with the
+// same precedence the original contains() chain in Main used.
+// Not thread safe, each dispatcher owns its own classifier.
+public class LogLineClassifier {
+    private static final String[] MARKERS = {
+            "BEGIN_MULLIGAN",
+            "tag=NUM_CARDS_DRAWN_THIS_TURN value=1",
+            "from FRIENDLY DECK -> FRIENDLY GRAVEYARD",
+            "from OPPOSING PLAY -> OPPOSING HAND",
+            "TRANSITIONING card",
+            "to FRIENDLY HAND",
+            "to FRIENDLY DECK",
+            "to FRIENDLY PLAY",
+            "to FRIENDLY GRAVEYARD",
+            "to FRIENDLY SECRET",
+            "to OPPOSING HAND",
+            "to OPPOSING PLAY",
+            "to OPPOSING GRAVEYARD",
+            "(Hero) -> OPPOSING GRAVEYARD",
+            "(Hero) -> FRIENDLY GRAVEYARD",
+            "from FRIENDLY HAND -> FRIENDLY DECK"
+    };
+
+    private static final int BEGIN_MULLIGAN = 1;
+    private static final int FIRST_DRAW = 1 << 1;
+    private static final int BURN = 1 << 2;
+    private static final int BOUNCE = 1 << 3;
+    private static final int TRANSITIONING = 1 << 4;
+    private static final int TO_FRIENDLY_HAND = 1 << 5;
+    private static final int TO_FRIENDLY_DECK = 1 << 6;
+    private static final int TO_FRIENDLY_PLAY = 1 << 7;
+    private static final int TO_FRIENDLY_GRAVEYARD = 1 << 8;
+    private static final int TO_FRIENDLY_SECRET = 1 << 9;
+    private static final int TO_OPPOSING_HAND = 1 << 10;
+    private static final int TO_OPPOSING_PLAY = 1 << 11;
+    private static final int TO_OPPOSING_GRAVEYARD = 1 << 12;
+    private static final int HERO_TO_OPPOSING_GRAVEYARD = 1 << 13;
+    private static final int HERO_TO_FRIENDLY_GRAVEYARD = 1 << 14;
+    private static final int HAND_TO_DECK = 1 << 15;
+
+    // "(Hero)" and "(Hero Power)" only matter on the rare transition lines, and being far shorter than every other
+    // marker they would cap how far the window can jump. They are checked separately on those lines instead.
+    private static final String HERO_MARKER = "(Hero)";
+    private static final String HERO_POWER_MARKER = "(Hero Power)";
+
+    private static final byte[][] MARKER_BYTES = new byte[MARKERS.length][];
+    // Length of the shortest marker, which is the width of the search window.
+    private static final int WINDOW;
+    // SHIFT[bigram] is how far the window may move when its last two characters are that bigram.
+    // Zero means a marker may end here, and ENDING[bigram] holds the markers whose window ends with that bigram.
+    private static final byte[] SHIFT = new byte[1 << 14];
+    private static final int[] ENDING = new int[1 << 14];
+
+    static {
+        int window = Integer.MAX_VALUE;
+        for (int m = 0; m < MARKERS.length; m++) {
+            MARKER_BYTES[m] = MARKERS[m].getBytes(StandardCharsets.US_ASCII);
+            window = Math.min(window, MARKER_BYTES[m].length);
+        }
+        WINDOW = window;
+
+        Arrays.fill(SHIFT, (byte) (WINDOW - 1));
+        for (int m = 0; m < MARKERS.length; m++) {
+            byte[] marker = MARKER_BYTES[m];
+            for (int end = 1; end < WINDOW; end++) {
+                int bigram = bigram(marker[end - 1], marker[end]);
+                int shift = WINDOW - 1 - end;
+                if (shift < SHIFT[bigram]) {
+                    SHIFT[bigram] = (byte) shift;
+                }
+                if (shift == 0) {
+                    ENDING[bigram] |= 1 << m;
+                }
+            }
+        }
+    }
+
+    private static int bigram(byte first, byte second) {
+        return ((first & 127) << 7) | (second & 127);
+    }
+
+    private byte[] buffer = new byte[512];
+
+    // Returns the set of markers contained in the line.
+    @SuppressWarnings("deprecation")
+    int scan(String line) {
+        int length = line.length();
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        //Copies the low byte of each char, which is all the window looks at. A non-ASCII char can fold onto an ASCII
+        //byte, so the markers are compared in full against the line itself.
+        line.getBytes(0, length, buffer, 0);
+        byte[] bytes = buffer;
+
+        int found = 0;
+        int end = WINDOW - 1;
+        while (end < length) {
+            int bigram = bigram(bytes[end - 1], bytes[end]);
+            int shift = SHIFT[bigram];
+            if (shift > 0) {
+                end += shift;
+                continue;
+            }
+            int start = end - WINDOW + 1;
+            for (int candidates = ENDING[bigram]; candidates != 0; candidates &= candidates - 1) {
+                int m = Integer.numberOfTrailingZeros(candidates);
+                if (line.regionMatches(start, MARKERS[m], 0, MARKERS[m].length())) {
+                    found |= 1 << m;
+                }
+            }
+            end++;
+        }
+        return found;
+    }
+
+    public LogLineType classify(String line) {
+        int found = scan(line);
+        if (found == 0) {
+            return LogLineType.IGNORED;
+        }
+
+        if ((found & BEGIN_MULLIGAN) != 0) {
+            return LogLineType.MULLIGAN_MARKER;
+        } else if ((found & FIRST_DRAW) != 0) {
+            return LogLineType.FIRST_DRAW_MARKER;
+        } else if ((found & BURN) != 0) {
+            return LogLineType.CARD_BURNED;
+        } else if ((found & BOUNCE) != 0) {
+            return LogLineType.OPPONENT_MINION_BOUNCED;
+        } else if ((found & TRANSITIONING) != 0) {
+            if ((found & TO_FRIENDLY_HAND) != 0) {
+                return LogLineType.TO_FRIENDLY_HAND;
+            } else if ((found & TO_FRIENDLY_DECK) != 0 && !isHero(line)) {
+                return LogLineType.TO_FRIENDLY_DECK;
+            } else if ((found & TO_FRIENDLY_PLAY) != 0 && !isHero(line)) {
+                return LogLineType.TO_FRIENDLY_PLAY;
+            } else if ((found & TO_FRIENDLY_GRAVEYARD) != 0 && !isHero(line)) {
+                return LogLineType.TO_FRIENDLY_GRAVEYARD;
+            } else if ((found & TO_FRIENDLY_SECRET) != 0) {
+                return LogLineType.TO_FRIENDLY_SECRET;
+            } else if ((found & TO_OPPOSING_HAND) != 0) {
+                return LogLineType.TO_OPPOSING_HAND;
+            } else if ((found & TO_OPPOSING_PLAY) != 0 && !isHero(line)) {
+                return LogLineType.TO_OPPOSING_PLAY;
+            } else if ((found & TO_OPPOSING_GRAVEYARD) != 0 && !isHero(line)) {
+                return LogLineType.TO_OPPOSING_GRAVEYARD;
+            }
+            return LogLineType.IGNORED;
+        } else if ((found & HERO_TO_OPPOSING_GRAVEYARD) != 0) {
+            return LogLineType.VICTORY;
+        } else if ((found & HERO_TO_FRIENDLY_GRAVEYARD) != 0) {
+            return LogLineType.DEFEAT;
+        } else if ((found & HAND_TO_DECK) != 0) {
+            return LogLineType.MULLIGAN_RETURN;
+        }
+        return LogLineType.IGNORED;
+    }
+
+    // Only asked once a zone has matched, so most transition lines never look.
+    private static boolean isHero(String line) {
+        return line.contains(HERO_MARKER) || line.contains(HERO_POWER_MARKER);
+    }
+}
@@ -0,0 +1,32 @@
+package com.hsda.log;
+
+// The kinds of Zone.log lines the assistant reacts to.
+public enum LogLineType {
+    MULLIGAN_MARKER(false),
+    FIRST_DRAW_MARKER(false),
+    CARD_BURNED(false),
+    OPPONENT_MINION_BOUNCED(true),
+    TO_FRIENDLY_HAND(true),
+    TO_FRIENDLY_DECK(false),
+    TO_FRIENDLY_PLAY(true),
+    TO_FRIENDLY_GRAVEYARD(true),
+    TO_FRIENDLY_SECRET(true),
+    TO_OPPOSING_HAND(false),
+    TO_OPPOSING_PLAY(true),
+    TO_OPPOSING_GRAVEYARD(true),
+    MULLIGAN_RETURN(true),
+    VICTORY(false),
+    DEFEAT(false),
+    IGNORED(false);
+
+    private final boolean entity;
+
+    LogLineType(boolean entity) {
+        this.entity = entity;
+    }
+
+    // Whether GameState needs the line's entity block, which is then parsed (and recorded) along with it.
+    public boolean hasEntity() {
+        return entity;
+    }
+}
@@ -0,0 +1,127 @@
+package com.hsda.log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads back a file written by RecordingWriter, one event at a time, from a memory mapping of the whole file.
+// Decoding an event is a handful of varints and table lookups; only the strings in the table are ever allocated,
+// once each. Events go straight to ZoneLogDispatcher.handle().
+public final class RecordingReader implements Closeable {
+    private static final LogLineType[] TYPES = LogLineType.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final List<String> strings;
+    private long lineNumber;
+
+    public RecordingReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Recording too large to map: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] header = new byte[RecordingWriter.MAGIC.length + 1];
+            if (size < header.length) {
+                throw new IOException("Not a recording: " + path);
+            }
+            buffer.get(header);
+            if (!hasHeader(header)) {
+                throw new IOException("Not a recording: " + path);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        strings = new ArrayList<>();
+    }
+
+    // Whether the file starts like a recording of this version.
+    public static boolean isRecording(Path path) throws IOException {
+        byte[] header = new byte[RecordingWriter.MAGIC.length + 1];
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(header, 0, header.length) == header.length && hasHeader(header);
+        }
+    }
+
+    private static boolean hasHeader(byte[] header) {
+        return Arrays.equals(header, 0, RecordingWriter.MAGIC.length, RecordingWriter.MAGIC, 0,
+                RecordingWriter.MAGIC.length) && header[RecordingWriter.MAGIC.length] == RecordingWriter.VERSION;
+    }
+
+    // Reads the next event, filling in the entity for types that have one, or returns null at the end.
+    public LogLineType next(ZoneEntity entity) throws IOException {
+        try {
+            while (buffer.hasRemaining()) {
+                long head = readVarLong();
+                int code = (int) (head & RecordingWriter.STRING_ENTRY);
+                if (code == RecordingWriter.STRING_ENTRY) {
+                    byte[] bytes = new byte[(int) readVarLong()];
+                    buffer.get(bytes);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (code >= TYPES.length) {
+                    throw new IOException("Unknown event type " + code + " at byte " + buffer.position());
+                }
+                lineNumber += head >>> RecordingWriter.TYPE_BITS;
+                LogLineType type = TYPES[code];
+                if (type.hasEntity()) {
+                    int id = (int) readVarLong();
+                    int zonePos = (int) readVarLong();
+                    int player = (int) readVarLong();
+                    String name = string();
+                    String zone = string();
+                    String cardId = string();
+                    entity.set(name, id, zone, zonePos, cardId, player);
+                } else {
+                    entity.clear();
+                }
+                return type;
+            }
+            return null;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new EOFException("Recording ends in the middle of an event");
+        }
+    }
+
+    // The line of the log the last event came from.
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private String string() {
+        int ref = (int) readVarLong();
+        return ref == 0 ? null : strings.get(ref - 1);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.hsda.log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+// Writes the events ZoneLogDispatcher hands to GameState to a compact binary file, so a recorded game can be
+// replayed without classifying and parsing its log again (see RecordingReader).
+// The file is MAGIC and VERSION, then one entry per event:
+//   varint (lines since the last event's line << TYPE_BITS | LogLineType ordinal)
+//   and for types with an entity: varint id, zonePos and player, then entityName, zone and cardId as varint
+//   indexes into the string table plus one, zero standing for null.
+// The string table is built as the file is written: a string is added just before the first event that uses it,
+//   varint STRING_ENTRY, varint length, that many bytes of UTF-8,
+// and gets the next index. So a recording cut short is readable up to where it stops.
+public final class RecordingWriter implements Closeable {
+    static final byte[] MAGIC = {'H', 'S', 'D', 'R'};
+    static final int VERSION = 1;
+    static final int TYPE_BITS = 5;
+    static final int STRING_ENTRY = (1 << TYPE_BITS) - 1;
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings;
+    private long lastLineNumber;
+    private long events;
+
+    public RecordingWriter(Path path) throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+        strings = new HashMap<>();
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    // Records an event from the given line of the log. Lines must come in order. What's recorded is written out at
+    // the end of every game, so a session that dies loses at most the game it was in.
+    public void record(long lineNumber, LogLineType type, ZoneEntity entity) throws IOException {
+        if (lineNumber < lastLineNumber) {
+            throw new IOException("Line " + lineNumber + " recorded after line " + lastLineNumber);
+        }
+        int name = 0;
+        int zone = 0;
+        int cardId = 0;
+        if (type.hasEntity()) {
+            name = stringRef(entity.getEntityName());
+            zone = stringRef(entity.getZone());
+            cardId = stringRef(entity.getCardId());
+        }
+        writeVarLong((lineNumber - lastLineNumber) << TYPE_BITS | type.ordinal());
+        lastLineNumber = lineNumber;
+        if (type.hasEntity()) {
+            writeVarLong(entity.getId());
+            writeVarLong(entity.getZonePos());
+            writeVarLong(entity.getPlayer());
+            writeVarLong(name);
+            writeVarLong(zone);
+            writeVarLong(cardId);
+        }
+        events++;
+        if (type == LogLineType.VICTORY || type == LogLineType.DEFEAT) {
+            out.flush();
+        }
+    }
+
+    // The string's index in the table plus one, adding it to the table first if it's new.
+    private int stringRef(String value) throws IOException {
+        if (value == null) {
+            return 0;
+        }
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(STRING_ENTRY);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+        return index + 1;
+    }
+
+    // Seven bits at a time, lowest first, with the top bit set on every byte but the last.
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,32 @@
+package com.hsda.log;
+
+// Interns substrings of log lines without creating them.
+// The same card ids, names and zones show up in every game, so after the first sighting a region of a line is
+// looked up by hashing its characters in place and comparing against the cached String. Only a miss allocates.
+// Direct mapped: a colliding entry is simply replaced. Not thread safe.
+class StringCache {
+    private final String[] entries;
+    private final int mask;
+
+    StringCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        entries = new String[size];
+        mask = size - 1;
+    }
+
+    String get(String line, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = entries[slot];
+        int length = end - start;
+        if (cached != null && cached.length() == length && line.regionMatches(start, cached, 0, length)) {
+            return cached;
+        }
+        String value = line.substring(start, end);
+        entries[slot] = value;
+        return value;
+    }
+}
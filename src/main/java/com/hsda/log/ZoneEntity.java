@@ -0,0 +1,87 @@
+package com.hsda.log;
+
+import java.util.Objects;
+
+// The entity block of a Zone.log line, e.g.
+// [entityName=Quick Shot id=36 zone=HAND zonePos=4 cardId=BRM_013 player=1]
+// Instances are reused from line to line by the parser, so handlers must copy out anything they want to keep.
+public class ZoneEntity {
+    private String entityName;
+    private int id;
+    private String zone;
+    private int zonePos;
+    private String cardId;
+    private int player;
+
+    public ZoneEntity() {
+        clear();
+    }
+
+    void clear() {
+        entityName = null;
+        id = 0;
+        zone = null;
+        zonePos = 0;
+        cardId = null;
+        player = 0;
+    }
+
+    void set(String entityName, int id, String zone, int zonePos, String cardId, int player) {
+        this.entityName = entityName;
+        this.id = id;
+        this.zone = zone;
+        this.zonePos = zonePos;
+        this.cardId = cardId;
+        this.player = player;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public int getZonePos() {
+        return zonePos;
+    }
+
+    // Null when the line didn't reveal the card, e.g. for cards in the opponent's hand.
+    public String getCardId() {
+        return cardId;
+    }
+
+    public int getPlayer() {
+        return player;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ZoneEntity)) {
+            return false;
+        }
+        ZoneEntity other = (ZoneEntity) o;
+        return id == other.id && zonePos == other.zonePos && player == other.player
+                && Objects.equals(entityName, other.entityName) && Objects.equals(zone, other.zone)
+                && Objects.equals(cardId, other.cardId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityName, id, zone, zonePos, cardId, player);
+    }
+
+    @Override
+    public String toString() {
+        return "[entityName=" + entityName + " id=" + id + " zone=" + zone + " zonePos=" + zonePos
+                + " cardId=" + (cardId == null ? "" : cardId) + " player=" + player + "]";
+    }
+}
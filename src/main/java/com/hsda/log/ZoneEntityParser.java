@@ -0,0 +1,100 @@
+package com.hsda.log;
+
+// Pulls the entity block out of a Zone.log line in a single left to right scan.
+// Replaces the lookbehind regexes GameState used: numbers are parsed in place and strings come from a cache
+// keyed on the line's characters, so parsing a line about a card we've seen before allocates nothing.
+// Not thread safe, each dispatcher owns its own parser.
+public class ZoneEntityParser {
+    private static final String ENTITY_NAME = "[entityName=";
+    private static final String ID = " id=";
+    private static final String ZONE = " zone=";
+    private static final String ZONE_POS = " zonePos=";
+    private static final String CARD_ID = " cardId=";
+    private static final String PLAYER = " player=";
+
+    private final StringCache strings;
+
+    public ZoneEntityParser() {
+        strings = new StringCache(4096);
+    }
+
+    // Fills in the given entity from the line. Returns false, leaving the entity cleared, if the line has no
+    // entity block.
+    public boolean parse(String line, ZoneEntity entity) {
+        entity.clear();
+        int nameStart = line.indexOf(ENTITY_NAME);
+        if (nameStart < 0) {
+            return false;
+        }
+        nameStart += ENTITY_NAME.length();
+
+        //Names can contain spaces (and brackets, for unknown entities), so the name runs up to the id field.
+        int nameEnd = line.indexOf(ID, nameStart);
+        if (nameEnd < 0) {
+            return false;
+        }
+        int position = nameEnd + ID.length();
+        int idEnd = digitsEnd(line, position);
+        int id = parseInt(line, position, idEnd);
+
+        position = idEnd;
+        String zone = null;
+        if (line.startsWith(ZONE, position)) {
+            position += ZONE.length();
+            int zoneEnd = tokenEnd(line, position);
+            zone = strings.get(line, position, zoneEnd);
+            position = zoneEnd;
+        }
+
+        int zonePos = 0;
+        if (line.startsWith(ZONE_POS, position)) {
+            position += ZONE_POS.length();
+            int zonePosEnd = digitsEnd(line, position);
+            zonePos = parseInt(line, position, zonePosEnd);
+            position = zonePosEnd;
+        }
+
+        String cardId = null;
+        if (line.startsWith(CARD_ID, position)) {
+            position += CARD_ID.length();
+            int cardIdEnd = tokenEnd(line, position);
+            if (cardIdEnd > position) {
+                cardId = strings.get(line, position, cardIdEnd);
+            }
+            position = cardIdEnd;
+        }
+
+        int player = 0;
+        if (line.startsWith(PLAYER, position)) {
+            position += PLAYER.length();
+            player = parseInt(line, position, digitsEnd(line, position));
+        }
+
+        entity.set(strings.get(line, nameStart, nameEnd), id, zone, zonePos, cardId, player);
+        return true;
+    }
+
+    private static int digitsEnd(String line, int position) {
+        int length = line.length();
+        while (position < length && line.charAt(position) >= '0' && line.charAt(position) <= '9') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int tokenEnd(String line, int position) {
+        int length = line.length();
+        while (position < length && line.charAt(position) != ' ' && line.charAt(position) != ']') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int parseInt(String line, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (line.charAt(i) - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,148 @@
+package com.hsda.log;
+
+import com.hsda.metrics.PipelineMetrics;
+import com.hsda.models.GameState;
+
+import java.io.IOException;
+
+// Routes classified Zone.log lines to the matching GameState handler.
+public class ZoneLogDispatcher {
+    private static final PipelineMetrics METRICS = PipelineMetrics.global();
+
+    private final GameState state;
+    private final LogLineClassifier classifier;
+    private final ZoneEntityParser parser;
+    private final ZoneEntity entity;
+
+    // Set after a card transitions to our deck. The client logs the zone change on the following line, which
+    // tells us whether the card was sent back during the mulligan.
+    private boolean awaitingMulliganReturn;
+    private long lineNumber;
+    // Null unless the events are being recorded.
+    private RecordingWriter recorder;
+
+    public ZoneLogDispatcher(GameState state) {
+        this.state = state;
+        this.classifier = new LogLineClassifier();
+        this.parser = new ZoneEntityParser();
+        this.entity = new ZoneEntity();
+        this.awaitingMulliganReturn = false;
+    }
+
+    // Every event handed to the state from now on is also written to the recorder, with the number of the line it
+    // came from, counting the lines this dispatcher has been given.
+    public void setRecorder(RecordingWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    // Returns what kind of line it was, for callers that keep count.
+    public LogLineType dispatch(String line) {
+        long start = METRICS.start();
+        LogLineType type = classifier.classify(line);
+        lineNumber++;
+        boolean relevant = parse(type, line);
+        METRICS.record(PipelineMetrics.Stage.PARSE, start);
+        METRICS.increment(PipelineMetrics.Counter.LINES);
+        if (relevant) {
+            handleAndRecord(type);
+        }
+        return type;
+    }
+
+    // Parses the entity of a line that goes on to the state, and returns whether it does.
+    private boolean parse(LogLineType type, String line) {
+        if (awaitingMulliganReturn) {
+            awaitingMulliganReturn = false;
+            if (type != LogLineType.MULLIGAN_RETURN) {
+                return false;
+            }
+            parser.parse(line, entity);
+            return true;
+        }
+        if (type == LogLineType.TO_FRIENDLY_DECK) {
+            awaitingMulliganReturn = true;
+            return false;
+        }
+        //A zone change only means a mulligan right after a card went to our deck.
+        if (type == LogLineType.MULLIGAN_RETURN || type == LogLineType.IGNORED) {
+            return false;
+        }
+
+        if (type.hasEntity()) {
+            parser.parse(line, entity);
+        }
+        return true;
+    }
+
+    private void handleAndRecord(LogLineType type) {
+        if (recorder != null) {
+            try {
+                recorder.record(lineNumber, type, entity);
+            } catch (IOException e) {
+                state.getOutput().println("Error while recording, recording stopped: " + e.getMessage());
+                recorder = null;
+            }
+        }
+        handle(type, entity);
+    }
+
+    // Applies one event to the state, with its entity already parsed for the types that have one. Lines from the
+    // log end up here, as do events read back from a recording. A MULLIGAN_RETURN here is always a card sent back.
+    public void handle(LogLineType type, ZoneEntity entity) {
+        long start = METRICS.start();
+        state.applyFetchedCards();
+        switch (type) {
+            case MULLIGAN_MARKER:
+                state.beginMulligan();
+                break;
+            case FIRST_DRAW_MARKER:
+                if (state.isInMulligan()) {
+                    state.beginGame();
+                }
+                break;
+            case CARD_BURNED:
+                state.burnedCard();
+                break;
+            case OPPONENT_MINION_BOUNCED:
+                state.opponentMinionBounced(entity);
+                break;
+            case TO_FRIENDLY_HAND:
+                state.addCardToHand(entity);
+                break;
+            case TO_FRIENDLY_PLAY:
+                state.addCardToFriendlyBoard(entity);
+                break;
+            case TO_FRIENDLY_GRAVEYARD:
+                state.cardToFriendlyGraveyard(entity);
+                break;
+            case TO_FRIENDLY_SECRET:
+                state.addFriendlySecret(entity);
+                break;
+            case TO_OPPOSING_HAND:
+                state.addCardToOpposingHand();
+                break;
+            case TO_OPPOSING_PLAY:
+                state.addCardToOpposingBoard(entity);
+                break;
+            case TO_OPPOSING_GRAVEYARD:
+                state.cardToOpposingGraveyard(entity);
+                break;
+            case MULLIGAN_RETURN:
+                state.mulliganCard(entity);
+                break;
+            case VICTORY:
+                state.getOutput().println("Game over, victory!");
+                state.gameEnded();
+                break;
+            case DEFEAT:
+                state.getOutput().println("Game over, defeat.");
+                state.gameEnded();
+                break;
+            default:
+                //Everything else in the log is irrelevant to us.
+                break;
+        }
+        METRICS.record(PipelineMetrics.Stage.STATE, start);
+        METRICS.increment(PipelineMetrics.Counter.EVENTS);
+    }
+}
@@ -0,0 +1,229 @@
+package com.hsda.log;
+
+import com.hsda.metrics.PipelineMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+// Follows a Zone.log file as the game client appends to it.
+// Instead of polling the file, the tailer sleeps on a WatchService registered on the log directory and only
+// wakes up when the log is created, modified or deleted. Each wake-up reads just the bytes appended since the
+// last read, and a shrinking or replaced file (the client starting a new session) restarts reading from the top.
+public class ZoneLogTailer implements Closeable {
+    // Upper bound on how long we block without an event. Some platforms (macOS) only have a polling WatchService
+    // with a coarse interval, so we re-check the file ourselves at this rate. Idle cost is a single stat call.
+    private static final long MAX_WAIT_MS = 500;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final PipelineMetrics METRICS = PipelineMetrics.global();
+
+    private final Path path;
+    private final Path fileName;
+    private final WatchService watchService;
+
+    private FileChannel channel;
+    private Object fileKey;
+    private FileTime creationTime;
+    private long position;
+
+    private final ByteBuffer readBuffer;
+    private byte[] lineBuffer;
+    private int lineLength;
+
+    public ZoneLogTailer(Path path) throws IOException {
+        this(path, true);
+    }
+
+    // Without a watch service of its own, nextLine() checks the file every MAX_WAIT_MS. For callers following many
+    // logs, who watch their directories once and only call readLine() when told something changed.
+    public ZoneLogTailer(Path path, boolean watch) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.fileName = this.path.getFileName();
+        this.watchService = watch ? this.path.getFileSystem().newWatchService() : null;
+        Path directory = this.path.getParent();
+        if (watch && directory != null && Files.isDirectory(directory)) {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        }
+
+        readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        readBuffer.flip();
+        lineBuffer = new byte[512];
+        lineLength = 0;
+        position = 0;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Blocks until the log file exists.
+    public void awaitFile() throws IOException, InterruptedException {
+        while (!Files.exists(path)) {
+            awaitChange();
+        }
+    }
+
+    // Blocks until a complete line has been appended to the log, and returns it without its line terminator.
+    public String nextLine() throws IOException, InterruptedException {
+        while (true) {
+            String line = readLine();
+            if (line != null) {
+                return line;
+            }
+            awaitChange();
+        }
+    }
+
+    // Returns the next complete line if one has already been written, or null if the reader has caught up.
+    // A trailing partial line is kept until the client finishes writing it.
+    public String readLine() throws IOException {
+        long start = METRICS.start();
+        while (true) {
+            while (readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    String line = takeLine();
+                    METRICS.record(PipelineMetrics.Stage.TAIL, start);
+                    return line;
+                }
+                appendToLine(b);
+            }
+            if (!fillBuffer()) {
+                return null;
+            }
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (!checkFile()) {
+            return false;
+        }
+        readBuffer.clear();
+        int read = channel.read(readBuffer, position);
+        readBuffer.flip();
+        if (read <= 0) {
+            return false;
+        }
+        position += read;
+        return true;
+    }
+
+    // Makes sure the channel points at the current log file, and handles the client truncating or replacing it.
+    // Returns false if there is no file to read from yet.
+    private boolean checkFile() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            //The log was removed, we'll pick up the new one once the client creates it.
+            closeChannel();
+            return false;
+        }
+
+        if (channel != null && !isSameFile(attributes)) {
+            //The log was rotated: anything we have not read from the old file belongs to the previous session.
+            closeChannel();
+        }
+
+        if (channel == null) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            fileKey = attributes.fileKey();
+            creationTime = attributes.creationTime();
+            resetPosition();
+        } else if (attributes.size() < position) {
+            //The log was truncated in place, so start over from the beginning of the file.
+            resetPosition();
+        }
+        return true;
+    }
+
+    private boolean isSameFile(BasicFileAttributes attributes) {
+        if (fileKey != null || attributes.fileKey() != null) {
+            return Objects.equals(fileKey, attributes.fileKey());
+        }
+        //Some file systems (e.g. on Windows) don't expose a file key, in which case the creation time has to do.
+        return Objects.equals(creationTime, attributes.creationTime());
+    }
+
+    private void resetPosition() {
+        position = 0;
+        lineLength = 0;
+        readBuffer.clear();
+        readBuffer.flip();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        resetPosition();
+    }
+
+    // Waits for the watch service to report a change to the log file, or for MAX_WAIT_MS to pass.
+    private void awaitChange() throws InterruptedException {
+        if (watchService == null) {
+            Thread.sleep(MAX_WAIT_MS);
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS);
+        long remaining = MAX_WAIT_MS;
+        while (remaining > 0) {
+            WatchKey key = watchService.poll(remaining, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                return;
+            }
+            boolean relevant = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                    relevant = true;
+                }
+            }
+            key.reset();
+            if (relevant) {
+                return;
+            }
+            //Other logs in the same directory changed, keep waiting for ours.
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+    }
+
+    private void appendToLine(byte b) {
+        if (lineLength == lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+        }
+        lineBuffer[lineLength++] = b;
+    }
+
+    private String takeLine() {
+        int length = lineLength;
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        lineLength = 0;
+        return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeChannel();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
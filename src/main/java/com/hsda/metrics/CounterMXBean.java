@@ -0,0 +1,6 @@
+package com.hsda.metrics;
+
+// One pipeline counter, as com.hsda:type=Counter,name=<counter> in JMX.
+public interface CounterMXBean {
+    long getValue();
+}
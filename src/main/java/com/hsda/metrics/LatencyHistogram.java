@@ -0,0 +1,111 @@
+package com.hsda.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts latencies in buckets laid out like an HdrHistogram's: below 2^SUB_BITS ns every nanosecond has its own
+// bucket, and above that every power of two is split into 2^SUB_BITS equal buckets, so any recorded value is known
+// to within 1 / 2^SUB_BITS (under 2%) from 1 ns up to MAX_EXPONENT (about 18 minutes), in a fixed 17 KB.
+// Recording is a few bit operations and an atomic increment, safe from any number of threads without locking.
+// Reads see a moment-in-time view only approximately, which is all a dump or a monitoring console needs.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        totalNanos.add(value);
+        // Most values are below the max, and reading it first keeps them from writing to a shared line.
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int top = (int) (value >>> (exponent - SUB_BITS));
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + top - SUB_BUCKETS;
+    }
+
+    // The highest value that falls into the bucket.
+    static long highestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / (double) n;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // The value at or below which the given percentage of the recorded values fall, to the bucket's precision.
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestIn(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d, mean %s, p50 %s, p99 %s, p99.9 %s, max %s", getCount(),
+                format((long) getMeanNanos()), format(getPercentileNanos(50)), format(getPercentileNanos(99)),
+                format(getPercentileNanos(99.9)), format(getMaxNanos()));
+    }
+
+    static String format(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(10)) {
+            return nanos + " ns";
+        } else if (nanos < TimeUnit.MILLISECONDS.toNanos(10)) {
+            return nanos / 1000 + " us";
+        } else if (nanos < TimeUnit.SECONDS.toNanos(10)) {
+            return nanos / 1_000_000 + " ms";
+        }
+        return nanos / 1_000_000_000 + " s";
+    }
+}
@@ -0,0 +1,233 @@
+package com.hsda.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Where the time goes from a Zone.log line to the advice it leads to, for the whole process: a LatencyHistogram
+// per stage and a counter per event worth counting, shared by every session, replay thread and card fetch.
+// On by default, as timing a stage costs two System.nanoTime() calls and an atomic increment; -Dhsda.metrics=off
+// turns every call here into a no-op. Readable over JMX once registerMBeans() is called, and as text from dump().
+public final class PipelineMetrics {
+    public enum Stage {
+        // Reading a line from a followed log, once it has been written.
+        TAIL,
+        // Classifying a line, and parsing its entity if it goes on to the state.
+        PARSE,
+        // Applying an event to GameState, including any analysis it sets off.
+        STATE,
+        // Fetching a card the catalog and store don't have from the card API.
+        FETCH,
+        // GameStateAnalyzer.notifyStart(), the first answer for a turn.
+        ANALYSIS
+    }
+
+    public enum Counter {
+        LINES,
+        EVENTS,
+        // Card definitions GameState already had, and the ones it had to look up or fetch.
+        CARD_CACHE_HITS,
+        CARD_CACHE_MISSES,
+        FETCHES,
+        FETCH_FAILURES,
+        // Turns the analyzer had already planned for the same state, and those it planned anew.
+        PLAN_CACHE_HITS,
+        PLAN_CACHE_MISSES,
+        ANALYSES,
+        // Playouts the background searches got through before their deadlines.
+        ROLLOUTS,
+        MESSAGES,
+        MESSAGES_DROPPED
+    }
+
+    private static final PipelineMetrics GLOBAL =
+            new PipelineMetrics(!"off".equalsIgnoreCase(System.getProperty("hsda.metrics")));
+
+    private final boolean enabled;
+    private final Map<Stage, LatencyHistogram> stages;
+    private final Map<Counter, LongAdder> counters;
+    private boolean registered;
+    private ScheduledExecutorService dumper;
+
+    PipelineMetrics(boolean enabled) {
+        this.enabled = enabled;
+        stages = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+        counters = new EnumMap<>(Counter.class);
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    public static PipelineMetrics global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The start of a stage, to hand to record() at its end.
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void record(Stage stage, long start) {
+        if (enabled) {
+            stages.get(stage).record(System.nanoTime() - start);
+        }
+    }
+
+    // For stages timed by the caller anyway.
+    public void recordNanos(Stage stage, long nanos) {
+        if (enabled) {
+            stages.get(stage).record(nanos);
+        }
+    }
+
+    public void increment(Counter counter) {
+        if (enabled) {
+            counters.get(counter).increment();
+        }
+    }
+
+    public void add(Counter counter, long amount) {
+        if (enabled && amount != 0) {
+            counters.get(counter).add(amount);
+        }
+    }
+
+    public LatencyHistogram getStage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    // Registers an MBean per stage and per counter with the platform MBean server. Does nothing after the first
+    // call, or if another copy of the classes registered them already.
+    public synchronized void registerMBeans() throws JMException {
+        if (registered || !enabled) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Stage stage : Stage.values()) {
+                server.registerMBean(new StageBean(stages.get(stage)), objectName("Stage", stage));
+            }
+            for (Counter counter : Counter.values()) {
+                server.registerMBean(new CounterBean(counters.get(counter)), objectName("Counter", counter));
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            //Registered under the same names already, which is as good.
+        }
+        registered = true;
+    }
+
+    private static ObjectName objectName(String type, Enum<?> name) throws JMException {
+        return new ObjectName("com.hsda:type=" + type + ",name=" + name.name().toLowerCase(Locale.ROOT));
+    }
+
+    // Prints dump() every period on a daemon thread, until the process exits.
+    public synchronized void startDumping(PrintStream out, long period, TimeUnit unit) {
+        if (dumper != null || !enabled) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), period, period, unit);
+    }
+
+    // One line per stage and one for the counters.
+    public String dump() {
+        if (!enabled) {
+            return String.format("Pipeline metrics are off.%n");
+        }
+        StringBuilder text = new StringBuilder(String.format("Pipeline latencies:%n"));
+        for (Stage stage : Stage.values()) {
+            text.append(String.format("  %-8s %s%n", stage.name().toLowerCase(Locale.ROOT), stages.get(stage)));
+        }
+        text.append("Pipeline counters:");
+        for (Counter counter : Counter.values()) {
+            text.append(' ').append(counter.name().toLowerCase(Locale.ROOT)).append('=')
+                    .append(counters.get(counter).sum());
+        }
+        return text.append(String.format("%n")).toString();
+    }
+
+    private static final class CounterBean implements CounterMXBean {
+        private final LongAdder value;
+
+        CounterBean(LongAdder value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getValue() {
+            return value.sum();
+        }
+    }
+
+    private static final class StageBean implements StageMXBean {
+        private final LatencyHistogram histogram;
+
+        StageBean(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        private static double micros(double nanos) {
+            return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return micros(histogram.getMeanNanos());
+        }
+
+        @Override
+        public double getP50Micros() {
+            return micros(histogram.getPercentileNanos(50));
+        }
+
+        @Override
+        public double getP90Micros() {
+            return micros(histogram.getPercentileNanos(90));
+        }
+
+        @Override
+        public double getP99Micros() {
+            return micros(histogram.getPercentileNanos(99));
+        }
+
+        @Override
+        public double getP999Micros() {
+            return micros(histogram.getPercentileNanos(99.9));
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return micros(histogram.getMaxNanos());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.hsda.metrics;
+
+// One pipeline stage's latencies, as com.hsda:type=Stage,name=<stage> in JMX.
+public interface StageMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
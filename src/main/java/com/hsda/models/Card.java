@@ -2,33 +2,41 @@ package com.hsda.models;
 
 import java.util.List;
 
+// One card in the game, identified by its Zone.log entity id. The card's static data lives in a shared
+// CardDefinition, this only holds what can differ between copies of the same card: its current stats and zone.
+// Two copies of the same card are never equal to each other.
 public class Card {
-    private String name;
-    private String cardId;
-    private String type;
-    private int cost;
+    // Swapped for the real definition when a placeholder gets resolved.
+    private CardDefinition definition;
+    private final int entityId;
     private int attack;
     private int health;
-    private List<String> mechanics;
-
-    public Card(Card other) {
-        this.name = other.getName();
-        this.cardId = other.getCardId();
-        this.type = other.getType();
-        this.cost = other.getCost();
-        this.attack = other.getAttack();
-        this.health = other.getHealth();
-        this.mechanics = other.getMechanics();
-    }
-
-    public Card(String name, String cardId, String type, int cost, int attack, int health, List<String> mechanics) {
-        this.name = name;
-        this.cardId = cardId;
-        this.type = type;
-        this.cost = cost;
-        this.attack = attack;
-        this.health = health;
-        this.mechanics = mechanics;
+    // Where the card is in GameState's ZoneStore, which keeps these up to date. Null and -1 while not stored.
+    private CardZone zone;
+    private int slot;
+
+    public Card(CardDefinition definition, int entityId) {
+        this.definition = definition;
+        this.entityId = entityId;
+        this.attack = definition.getAttack();
+        this.health = definition.getHealth();
+        this.zone = null;
+        this.slot = -1;
+    }
+
+    // Fills in a card that was created from a placeholder definition, keeping any change made to its stats since.
+    // Only called by GameState, on the thread feeding it, like every other change to a card.
+    public void resolveFrom(CardDefinition fetched) {
+        if (definition.isPlaceholder()) {
+            this.attack += fetched.getAttack() - definition.getAttack();
+            this.health += fetched.getHealth() - definition.getHealth();
+            this.definition = fetched;
+        }
+    }
+
+    // False while the card's data is still being fetched.
+    public boolean isResolved() {
+        return !definition.isPlaceholder();
     }
 
     public static boolean listContainsCard(String cardName, List<Card> list) {
@@ -49,36 +57,38 @@ public class Card {
         return null;
     }
 
-    public String getName() {
-        return name;
+    public static int countCardsInList(String cardName, List<Card> list) {
+        int count = 0;
+        for (Card c : list) {
+            if (c.getName().equalsIgnoreCase(cardName)) {
+                count++;
+            }
+        }
+        return count;
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public CardDefinition getDefinition() {
+        return definition;
     }
 
-    public String getCardId() {
-        return cardId;
+    public int getEntityId() {
+        return entityId;
     }
 
-    public void setCardId(String cardId) {
-        this.cardId = cardId;
+    public String getName() {
+        return definition.getName();
     }
 
-    public String getType() {
-        return type;
+    public String getCardId() {
+        return definition.getCardId();
     }
 
-    public void setType(String type) {
-        this.type = type;
+    public String getType() {
+        return definition.getType();
     }
 
     public int getCost() {
-        return cost;
-    }
-
-    public void setCost(int cost) {
-        this.cost = cost;
+        return definition.getCost();
     }
 
     public int getAttack() {
@@ -97,26 +107,32 @@ public class Card {
         this.health = health;
     }
 
-    public List<String> getMechanics() {
-        return mechanics;
+    public boolean hasMechanic(Mechanic mechanic) {
+        return definition.hasMechanic(mechanic);
     }
 
-    public void setMechanics(List<String> mechanics) {
-        this.mechanics = mechanics;
+    public boolean isRace(Race race) {
+        return definition.isRace(race);
     }
 
-    @Override
-    public String toString() {
-        return "Card: " + name + ", Type: " + type + ", Cost: " + cost
-                + ", Attack: " + attack + ", Health: " + health + ", Mechanics: " + mechanics.toString();
+    public CardZone getZone() {
+        return zone;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (o instanceof Card) {
-            return cardId.equals(((Card) o).getCardId());
-        }
+    int getSlot() {
+        return slot;
+    }
 
-        return false;
+    void moveTo(CardZone zone, int slot) {
+        this.zone = zone;
+        this.slot = slot;
+    }
+
+    @Override
+    public String toString() {
+        CardDefinition d = definition;
+        return "Card: " + d.getName() + ", Type: " + d.getType() + ", Cost: " + d.getCost()
+                + ", Attack: " + attack + ", Health: " + health + ", Mechanics: " + Mechanic.namesOf(d.getMechanics())
+                + ", Races: " + Race.namesOf(d.getRaces());
     }
 }
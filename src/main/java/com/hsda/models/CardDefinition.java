@@ -0,0 +1,104 @@
+package com.hsda.models;
+
+// Everything about a card that is the same for every copy of it: name, type, base stats, mechanics and races.
+// Mechanics and races are bitmasks of the Mechanic and Race enums, so checking one is a single bit test.
+// Definitions are immutable and there is one per card id, shared by every Card instance in the game.
+public final class CardDefinition {
+    private final String name;
+    private final String cardId;
+    private final String type;
+    private final int cost;
+    private final int attack;
+    private final int health;
+    private final long mechanics;
+    private final int races;
+    private final boolean placeholder;
+
+    public CardDefinition(String name, String cardId, String type, int cost, int attack, int health,
+                          long mechanics, int races) {
+        this(name, cardId, type, cost, attack, health, mechanics, races, false);
+    }
+
+    private CardDefinition(String name, String cardId, String type, int cost, int attack, int health,
+                           long mechanics, int races, boolean placeholder) {
+        this.name = name;
+        this.cardId = cardId;
+        this.type = type;
+        this.cost = cost;
+        this.attack = attack;
+        this.health = health;
+        this.mechanics = mechanics;
+        this.races = races;
+        this.placeholder = placeholder;
+    }
+
+    // A stand-in for a card whose data is still being fetched. It has no stats.
+    public static CardDefinition placeholder(String cardId) {
+        return new CardDefinition("Unknown card " + cardId, cardId, "Unknown", 0, 0, 0, 0, 0, true);
+    }
+
+    public boolean isPlaceholder() {
+        return placeholder;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCardId() {
+        return cardId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getAttack() {
+        return attack;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    public long getMechanics() {
+        return mechanics;
+    }
+
+    public boolean hasMechanic(Mechanic mechanic) {
+        return (mechanics & mechanic.bit()) != 0;
+    }
+
+    public int getRaces() {
+        return races;
+    }
+
+    public boolean isRace(Race race) {
+        return (races & race.bit()) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Card: " + name + ", Type: " + type + ", Cost: " + cost
+                + ", Attack: " + attack + ", Health: " + health + ", Mechanics: " + Mechanic.namesOf(mechanics)
+                + ", Races: " + Race.namesOf(races);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof CardDefinition) {
+            return cardId.equals(((CardDefinition) o).getCardId());
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return cardId.hashCode();
+    }
+}
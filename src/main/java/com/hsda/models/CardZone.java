@@ -0,0 +1,20 @@
+package com.hsda.models;
+
+// The zones GameState keeps track of. Cards anywhere else (decks, graveyards, the opponent's hand) aren't stored.
+public enum CardZone {
+    FRIENDLY_HAND(10),
+    FRIENDLY_PLAY(7),
+    FRIENDLY_SECRET(5),
+    OPPOSING_PLAY(7);
+
+    // The most cards the game allows in the zone, used as the initial capacity of its slots.
+    private final int limit;
+
+    CardZone(int limit) {
+        this.limit = limit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
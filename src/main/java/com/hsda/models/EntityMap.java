@@ -0,0 +1,98 @@
+package com.hsda.models;
+
+import java.util.Arrays;
+
+// Open-addressing hash map from Zone.log entity id to card. Ids are dense small ints, so they are stored unboxed in
+// one array and probed linearly, and removals shift the following entries back instead of leaving tombstones.
+class EntityMap {
+    private static final int INITIAL_CAPACITY = 128;
+
+    private int[] keys;
+    private Card[] values;
+    private int size;
+    private int mask;
+
+    EntityMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Card[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    // Ids are handed out sequentially, so the mix keeps neighbouring ids from clustering.
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    Card get(int key) {
+        for (int i = slotOf(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(int key, Card value) {
+        int i = slotOf(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) >> 1) {
+            resize();
+        }
+    }
+
+    Card remove(int key) {
+        int i = slotOf(key);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        Card removed = values[i];
+        if (removed == null) {
+            return null;
+        }
+        size--;
+        //Pull back any entry further along the probe run that can no longer be reached past the gap.
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slotOf(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Card[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Card[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hsda.models;
+
+// The kinds of change GameHistory records, each with up to three int arguments and a card id as noted.
+// Every write to GameState's fields is one of these, so applying them in order rebuilds the state.
+public enum GameEvent {
+    // A card went into a zone, moving out of the one it was in: entity id, CardZone ordinal, zonePos, card id.
+    CARD_PUT,
+    // A card left the zones we track: entity id.
+    CARD_REMOVED,
+    MANA,
+    // 1 if the bow is equipped, 0 if not.
+    BOW,
+    OPPONENT_LIFE,
+    OPPONENT_HAND,
+    // 1 if it is our turn, 0 if it is the opponent's.
+    PLAYERS_TURN,
+    TURN_COUNT,
+    // Mulligan markers seen so far, 1 if we are mulliganing.
+    MULLIGAN,
+    // Draws to wait for before planning the rest of the turn, the mana to plan it with.
+    WAITING_FOR_DRAWS,
+    // Every zone was emptied; the other fields are reset by the events after it.
+    GAME_ENDED,
+    // The analyzer was asked for mulligan advice. Changes nothing, but marks a decision point.
+    MULLIGAN_ADVICE,
+    // The analyzer was asked to plan a turn: mana, 1 if we already attacked. A decision point like the above.
+    TURN_ADVICE
+}
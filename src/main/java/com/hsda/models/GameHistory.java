@@ -0,0 +1,154 @@
+package com.hsda.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Everything that happened to a GameState during one game, as an append-only log of GameEvents, with a snapshot
+// of the whole state at the start and whenever the turn passes. The state after any number of events is the
+// nearest snapshot before it with the events since applied again (see GameState.rewind()), so a turn at most
+// has to be replayed, and nothing has to be read from Zone.log twice.
+// The events are kept column by column in arrays that grow as needed, so recording one allocates nothing.
+// Written by the thread feeding the state; read it there, or from anywhere once the game it records is over.
+public final class GameHistory {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private GameEvent[] events;
+    private int[] first;
+    private int[] second;
+    private int[] third;
+    private String[] cardIds;
+    private int size;
+    // In order of position, the first one at position 0.
+    private final List<Snapshot> snapshots;
+
+    GameHistory(Snapshot start) {
+        events = new GameEvent[INITIAL_CAPACITY];
+        first = new int[INITIAL_CAPACITY];
+        second = new int[INITIAL_CAPACITY];
+        third = new int[INITIAL_CAPACITY];
+        cardIds = new String[INITIAL_CAPACITY];
+        snapshots = new ArrayList<>();
+        snapshots.add(start);
+    }
+
+    void record(GameEvent event, int a, int b, int c, String cardId) {
+        if (size == events.length) {
+            int capacity = size * 2;
+            events = Arrays.copyOf(events, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            third = Arrays.copyOf(third, capacity);
+            cardIds = Arrays.copyOf(cardIds, capacity);
+        }
+        events[size] = event;
+        first[size] = a;
+        second[size] = b;
+        third[size] = c;
+        cardIds[size] = cardId;
+        size++;
+    }
+
+    // Adds a snapshot of the state as it is after every event so far.
+    void snapshot(Snapshot snapshot) {
+        snapshots.add(snapshot);
+    }
+
+    // The last snapshot taken at or before the position.
+    Snapshot snapshotAt(int position) {
+        int low = 0;
+        int high = snapshots.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (snapshots.get(mid).position <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return snapshots.get(low);
+    }
+
+    // The number of events recorded, which is also the position after the last of them.
+    public int size() {
+        return size;
+    }
+
+    public GameEvent getEvent(int position) {
+        checkPosition(position);
+        return events[position];
+    }
+
+    public int getFirst(int position) {
+        checkPosition(position);
+        return first[position];
+    }
+
+    public int getSecond(int position) {
+        checkPosition(position);
+        return second[position];
+    }
+
+    public int getThird(int position) {
+        checkPosition(position);
+        return third[position];
+    }
+
+    public String getCardId(int position) {
+        checkPosition(position);
+        return cardIds[position];
+    }
+
+    // How many events the arrays have room for before they grow again.
+    public int capacity() {
+        return events.length;
+    }
+
+    public int getSnapshotCount() {
+        return snapshots.size();
+    }
+
+    // The cards kept over all the snapshots, counting a card once per snapshot it is in.
+    public int getSnapshotCardCount() {
+        int cards = 0;
+        for (Snapshot snapshot : snapshots) {
+            cards += snapshot.entityIds.length;
+        }
+        return cards;
+    }
+
+    // The positions of every MULLIGAN_ADVICE and TURN_ADVICE event, in order.
+    public List<Integer> getDecisionPoints() {
+        List<Integer> decisions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (events[i] == GameEvent.MULLIGAN_ADVICE || events[i] == GameEvent.TURN_ADVICE) {
+                decisions.add(i);
+            }
+        }
+        return decisions;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + size);
+        }
+    }
+
+    // The whole state after `position` events. GameState decides what the scalars are; the cards are listed zone
+    // by zone in CardZone order and zonePos order within each zone.
+    static final class Snapshot {
+        final int position;
+        final int[] scalars;
+        final int[] zoneSizes;
+        final int[] entityIds;
+        final String[] cardIds;
+
+        Snapshot(int position, int[] scalars, int[] zoneSizes, int[] entityIds, String[] cardIds) {
+            this.position = position;
+            this.scalars = scalars;
+            this.zoneSizes = zoneSizes;
+            this.entityIds = entityIds;
+            this.cardIds = cardIds;
+        }
+    }
+}
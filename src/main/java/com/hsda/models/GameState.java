@@ -1,28 +1,41 @@
 package com.hsda.models;
 
 import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.log.ZoneEntity;
+import com.hsda.metrics.PipelineMetrics;
 import com.hsda.service.CardFetcherService;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class GameState {
-    Pattern cardIdRegex = Pattern.compile("(?<=cardId=).*?(?=player=)");
-    Pattern cardNameRegex = Pattern.compile("(?<=entityName=).*?(?=id=)");
+    private static final CardZone[] ZONES = CardZone.values();
+    private static final PipelineMetrics METRICS = PipelineMetrics.global();
 
     CardFetcherService service;
 
-    private Map<String, Card> cardIdMap;
+    // The definition of every card this state has seen, by card id. Card instances all point into this map.
+    private Map<String, CardDefinition> cardIdMap;
+    // Cards created from a placeholder, by card id, until a fetch of that id succeeds. A failed fetch leaves them
+    // here, so the next one, set off by the next sighting of the id, still fills them in.
+    private Map<String, List<Card>> waitingCards;
+    // Fetches that finished since the last event, handed over by the fetch threads. They are applied on the thread
+    // feeding this state (see applyFetchedCards()), so cards and the maps above only ever change on that thread.
+    private final Queue<FetchedCard> fetchedCards = new ConcurrentLinkedQueue<>();
+    // Set for replays, whose advice must not depend on how long a fetch takes: each card is then waited for.
+    private boolean waitForFetches;
 
-    private List<Card> friendlyHand;
-    private List<Card> friendlyBoard;
-    private List<Card> friendlySecrets;
-    private List<Card> opponentBoard;
+    // Our hand, board and secrets and the opponent's board.
+    private ZoneStore zones;
 
     private int mana;
     private int savedCurrentMana;
@@ -42,19 +55,31 @@ public class GameState {
 
     private boolean bowEquipped;
 
-    private GameStateAnalyzer analyzer;
+    // The Zobrist hash of everything but the zones, which keep their own (see getStateHash()).
+    private long hash;
 
-    private boolean wolpertingerBattlecry;
+    private GameStateAnalyzer analyzer;
+    private List<GameStateListener> listeners;
+    // Where status lines go, System.out unless set.
+    private volatile PrintStream output;
+    // Every change to this game so far, and the last game to end, so any point of either can be rebuilt.
+    private GameHistory history;
+    private volatile GameHistory lastGame;
+    // Set while rebuilding the state from a history, which is not recorded again.
+    private boolean rewinding;
 
     public GameState() throws IOException, InterruptedException {
-        cardIdMap = new HashMap<>();
-        service = new CardFetcherService();
+        this(new CardFetcherService());
+    }
 
-        friendlyHand = new ArrayList<>();
-        friendlyBoard = new ArrayList<>();
-        friendlySecrets = new ArrayList<>();
+    // For a state that looks its cards up somewhere other than the default store and catalog.
+    public GameState(CardFetcherService service) throws IOException, InterruptedException {
+        cardIdMap = new HashMap<>();
+        waitingCards = new HashMap<>();
+        this.service = service;
 
-        opponentBoard = new ArrayList<>();
+        zones = new ZoneStore();
+        listeners = new ArrayList<>();
         opponentHandSize = 0;
 
         opponentLifeTotal = 30;
@@ -73,21 +98,28 @@ public class GameState {
 
         bowEquipped = false;
 
-        wolpertingerBattlecry = false;
+        hash = Zobrist.value(Zobrist.MANA, mana) ^ Zobrist.value(Zobrist.OPPONENT_LIFE, opponentLifeTotal);
 
-        for (Card c : service.getDeckCards()) {
+        for (CardDefinition c : service.getDeckCards()) {
             cardIdMap.put(c.getCardId(), c);
         }
+
+        history = new GameHistory(snapshot(0));
     }
 
     // GETTER METHODS USED BY THE ANALYZER
 
+    // The analyzer shares our service, so the deck is only ever fetched once.
+    public CardFetcherService getCardService() {
+        return service;
+    }
+
     public List<Card> getFriendlyHand() {
-        return friendlyHand;
+        return zones.view(CardZone.FRIENDLY_HAND);
     }
 
     public List<Card> getFriendlyBoard() {
-        return friendlyBoard;
+        return zones.view(CardZone.FRIENDLY_PLAY);
     }
 
     public int getEnemyHandSize() {
@@ -95,26 +127,72 @@ public class GameState {
     }
 
     public List<Card> getEnemyBoard() {
-        return opponentBoard;
+        return zones.view(CardZone.OPPOSING_PLAY);
+    }
+
+    public int getOpponentLifeTotal() {
+        return opponentLifeTotal;
     }
 
     public boolean isBowEquipped() {
         return bowEquipped;
     }
 
+    public int getZoneSize(CardZone zone) {
+        return zones.size(zone);
+    }
+
+    // Card definitions known to this state, placeholders for cards still being fetched included.
+    public int getKnownCardCount() {
+        return cardIdMap.size();
+    }
+
+    // A Zobrist hash of what the analyzer looks at: our hand, board and secrets, the opponent's board, our mana,
+    // the bow and the opponent's life. Kept up to date by every change to them, so reading it is free.
+    public long getStateHash() {
+        return hash ^ zones.hash();
+    }
+
     // METHODS FOR SETUP AND COMMUNICATION WITH THE ANALYZER
 
     public void setAnalyzer(GameStateAnalyzer analyzer) {
         this.analyzer = analyzer;
     }
 
+    // Sends this state's status lines (turns starting, games ending, errors) somewhere other than System.out, so
+    // states replaying different games at the same time can each keep theirs apart.
+    public void setOutput(PrintStream output) {
+        this.output = output;
+    }
+
+    // Makes every card that has to be fetched hold up the event it came with until its data is in, or the fetch
+    // failed, instead of being filled in at some later event. Slower, but the same log always gets the same advice.
+    public void setWaitForFetches(boolean waitForFetches) {
+        this.waitForFetches = waitForFetches;
+    }
+
+    public PrintStream getOutput() {
+        PrintStream current = output;
+        return current != null ? current : System.out;
+    }
+
+    // Listeners hear about every change to the zones, mana, bow and opponent's life from here on.
+    public void addListener(GameStateListener listener) {
+        listeners.add(listener);
+        zones.addListener(listener);
+    }
+
     public void beginMulligan() {
-        mulliganMarkerCount++;
-        if (mulliganMarkerCount == 2) {
-            inMulligan = true;
-        } else if (mulliganMarkerCount == 3) {
+        int markers = mulliganMarkerCount + 1;
+        if (markers == 2) {
+            setMulligan(markers, true);
+        } else if (markers == 3) {
+            setMulligan(markers, inMulligan);
+            record(GameEvent.MULLIGAN_ADVICE, 0, 0, 0, null);
             analyzer.notifyMulliganBegins();
-            mulliganMarkerCount = 0;
+            setMulligan(0, inMulligan);
+        } else {
+            setMulligan(markers, inMulligan);
         }
     }
 
@@ -123,315 +201,540 @@ public class GameState {
     }
 
     public void beginGame() {
-        inMulligan = false;
+        setMulligan(mulliganMarkerCount, false);
         mulliganWaiting = false;
         if (opponentHandSize == 3) {
-            playersTurn = false;
+            setPlayersTurn(false);
         } else {
-            playersTurn = true;
-            mana = 1;
+            setPlayersTurn(true);
+            setMana(1);
         }
     }
 
     public void gameEnded() {
-        friendlyHand = new ArrayList<>();
-        friendlyBoard = new ArrayList<>();
-        friendlySecrets = new ArrayList<>();
-
-        opponentBoard = new ArrayList<>();
-        opponentHandSize = 0;
+        zones.clear();
+        //Cards still waiting for data are gone with the game.
+        waitingCards.clear();
+        record(GameEvent.GAME_ENDED, 0, 0, 0, null);
+        setOpponentHandSize(0);
 
-        opponentLifeTotal = 30;
+        setOpponentLifeTotal(30);
 
-        playersTurn = true;
+        setPlayersTurn(true);
 
-        mulliganMarkerCount = 0;
+        setMulligan(0, inMulligan);
         mulliganWaiting = false;
 
-        mana = 0;
-        turnCount = 0;
+        setMana(0);
+        setTurnCount(0);
 
-        savedCurrentMana = 0;
-        waitingForDraws = 0;
-        bowEquipped = false;
-        wolpertingerBattlecry = false;
+        setWaitingForDraws(0, 0);
+        setBowEquipped(false);
+
+        //The next game is recorded from here on its own.
+        lastGame = history;
+        history = new GameHistory(snapshot(0));
+
+        analyzer.notifyGameEnded();
     }
 
     public void notifyAfterNDraws(int drawCount, int currentMana) {
-        savedCurrentMana = currentMana;
-        waitingForDraws = drawCount;
+        setWaitingForDraws(drawCount, currentMana);
     }
 
     // METHODS FOR MANAGING USER'S GAMESTATE
 
-    public void addCardToHand(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding card to player hand.");
+    public void addCardToHand(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding card to player hand.");
             return;
         }
 
-        if (cardIdMap.containsKey(cardId)) {
-            friendlyHand.add(new Card(cardIdMap.get(cardId)));
-            if (cardIdMap.get(cardId).getName().equalsIgnoreCase("the coin")) {
-                //This means we're going second, so set this variable accordingly.
-                playersTurn = false;
-            }
-        } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            friendlyHand.add(new Card(fetchedCard));
-            if (fetchedCard.getName().equalsIgnoreCase("the coin")) {
-                //This means we're going second, so set this variable accordingly.
-                playersTurn = false;
-            }
+        Card card = newCard(cardId, entity.getId());
+        put(card, CardZone.FRIENDLY_HAND, entity.getZonePos());
+        if (card.getName().equalsIgnoreCase("the coin")) {
+            //This means we're going second, so set this variable accordingly.
+            setPlayersTurn(false);
         }
 
         if (inMulligan) {
             //Do nothing
         } else if (waitingForDraws > 0) {
-            waitingForDraws--;
+            setWaitingForDraws(waitingForDraws - 1, savedCurrentMana);
             if (waitingForDraws == 0) {
-                analyzer.notifyStart(savedCurrentMana, true);
+                askForAdvice(savedCurrentMana, true);
             }
         } else {
             if (!playersTurn) {
-                playersTurn = true;
+                setPlayersTurn(true);
                 if (mana < 10) {
-                    mana++;
+                    setMana(mana + 1);
                 }
             }
-            turnCount++;
-            System.out.println("\n--- BEGIN TURN " + turnCount + " ---");
-            analyzer.notifyStart(mana, false);
+            setTurnCount(turnCount + 1);
+            getOutput().println("\n--- BEGIN TURN " + turnCount + " ---");
+            askForAdvice(mana, false);
         }
     }
 
-    public void addCardToFriendlyBoard(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding card to player board.");
+    public void addCardToFriendlyBoard(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding card to player board.");
             return;
         }
 
-        if (cardIdMap.containsKey(cardId)) {
-            Card playedCard = cardIdMap.get(cardId);
-            if (friendlyHand.contains(playedCard)) {
-                if (playedCard.getName().equalsIgnoreCase("wolpertinger")
-                    && !wolpertingerBattlecry) {
-                    wolpertingerBattlecry = true;
-                    friendlyHand.remove(playedCard);
-                } else if (playedCard.getName().equalsIgnoreCase("wolpertinger")
-                        && wolpertingerBattlecry) {
-                    wolpertingerBattlecry = false;
-                } else {
-                    friendlyHand.remove(playedCard);
-                }
-            }
-
-            if (playedCard.getName().equalsIgnoreCase("Eaglehorn Bow")) {
-                bowEquipped = true;
-            } else {
-                friendlyBoard.add(playedCard);
-            }
+        Card playedCard = cardFor(entity);
+        if (playedCard.getName().equalsIgnoreCase("Eaglehorn Bow")) {
+            setBowEquipped(true);
+            remove(entity.getId());
         } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            if (friendlyHand.contains(fetchedCard)) {
-                friendlyHand.remove(fetchedCard);
-            }
-
-            if (fetchedCard.getName().equalsIgnoreCase("Eaglehorn Bow")) {
-                bowEquipped = true;
-            } else {
-                friendlyBoard.add(fetchedCard);
-            }
+            put(playedCard, CardZone.FRIENDLY_PLAY, entity.getZonePos());
         }
     }
 
-    public void addFriendlySecret(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding secret to player board.");
+    public void addFriendlySecret(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding secret to player board.");
             return;
         }
 
-        if (cardIdMap.containsKey(cardId)) {
-            Card playedCard = cardIdMap.get(cardId);
-            if (friendlyHand.contains(playedCard)) {
-                friendlyHand.remove(playedCard);
-            }
-            friendlySecrets.add(cardIdMap.get(cardId));
-        } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            if (friendlyHand.contains(fetchedCard)) {
-                friendlyHand.remove(fetchedCard);
-            }
-            friendlySecrets.add(fetchedCard);
-        }
+        put(cardFor(entity), CardZone.FRIENDLY_SECRET, entity.getZonePos());
     }
 
-    public void cardToFriendlyGraveyard(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding card to player graveyard.");
+    public void cardToFriendlyGraveyard(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding card to player graveyard.");
             return;
         }
 
-        if (cardIdMap.containsKey(cardId)) {
-            Card playedCard = cardIdMap.get(cardId);
-            if (playedCard.getType().equalsIgnoreCase("minion")) {
-                friendlyBoard.remove(playedCard);
-            } else if (playedCard.getName().equalsIgnoreCase("Freezing Trap")) {
-                friendlySecrets.remove(playedCard);
-            } else if (playedCard.getName().equalsIgnoreCase("Eaglehorn Bow")) {
-                bowEquipped = false;
-            } else if (!playedCard.getName().equalsIgnoreCase("Master's Call")) {
-                friendlyHand.remove(playedCard);
-            }
-        } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            if (fetchedCard.getType().equalsIgnoreCase("minion")) {
-                friendlyBoard.remove(fetchedCard);
-            } else if (fetchedCard.getName().equalsIgnoreCase("Freezing Trap")) {
-                friendlySecrets.remove(fetchedCard);
-            } else if (fetchedCard.getName().equalsIgnoreCase("Eaglehorn Bow")) {
-                bowEquipped = false;
-            } else if (!fetchedCard.getName().equalsIgnoreCase("Master's Call")) {
-                friendlyHand.remove(fetchedCard);
-            }
+        remove(entity.getId());
+        if (definitionOf(cardId).getName().equalsIgnoreCase("Eaglehorn Bow")) {
+            setBowEquipped(false);
         }
     }
 
-    public void mulliganCard(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardNameRegex.matcher(logLine);
-        String cardName;
-        if (matcher.find()) {
-            cardName = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error occurred during mulligan.");
+    public void mulliganCard(ZoneEntity entity) {
+        if (entity.getEntityName() == null) {
+            getOutput().println("Error occurred during mulligan.");
             return;
         }
-        Card toRemove = null;
-        for (Card c : friendlyHand) {
-            if (c.getName().equals(cardName)) {
-                toRemove = c;
-            }
-        }
-        friendlyHand.remove(toRemove);
+        remove(entity.getId());
     }
 
     public void burnedCard() {
         if (inMulligan) {
             //Do nothing
         } else if (waitingForDraws > 0) {
-            waitingForDraws--;
+            setWaitingForDraws(waitingForDraws - 1, savedCurrentMana);
             if (waitingForDraws == 0) {
-                analyzer.notifyStart(savedCurrentMana, true);
+                askForAdvice(savedCurrentMana, true);
             }
         } else {
             if (!playersTurn) {
-                playersTurn = true;
+                setPlayersTurn(true);
                 if (mana < 10) {
-                    mana++;
-                    System.out.println("Mana increased to " + mana);
+                    setMana(mana + 1);
+                    getOutput().println("Mana increased to " + mana);
                 }
             }
-            analyzer.notifyStart(mana, false);
+            askForAdvice(mana, false);
         }
     }
 
     // METHODS FOR MANAGING OPPONENT'S GAMESTATE
 
     public void addCardToOpposingHand() {
-        opponentHandSize++;
+        setOpponentHandSize(opponentHandSize + 1);
 
         if (playersTurn) {
-            playersTurn = false;
+            setPlayersTurn(false);
         }
     }
 
-    public void addCardToOpposingBoard(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding card to player graveyard.");
+    public void addCardToOpposingBoard(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding card to player graveyard.");
             return;
         }
 
-        if (cardIdMap.containsKey(cardId)) {
-            opponentHandSize--;
-            if (cardIdMap.get(cardId).getType().equalsIgnoreCase("minion")) {
-                opponentBoard.add(cardIdMap.get(cardId));
-            }
+        Card playedCard = newCard(cardId, entity.getId());
+        setOpponentHandSize(opponentHandSize - 1);
+        //Until its data arrives we assume an unknown card is a minion, it leaves the board again if it isn't.
+        if (!playedCard.isResolved() || playedCard.getType().equalsIgnoreCase("minion")) {
+            put(playedCard, CardZone.OPPOSING_PLAY, entity.getZonePos());
+        }
+    }
+
+    public void cardToOpposingGraveyard(ZoneEntity entity) {
+        String cardId = entity.getCardId();
+        if (cardId == null) {
+            getOutput().println("Error while adding card to player graveyard.");
+            return;
+        }
+
+        //Anything that wasn't on their board went to the graveyard straight from their hand.
+        if (remove(entity.getId()) == null
+                && !definitionOf(cardId).getType().equalsIgnoreCase("minion")) {
+            setOpponentHandSize(opponentHandSize - 1);
+        }
+    }
+
+    // Returns the definition of the given card id. Cards we don't know yet are fetched in the background, and a
+    // placeholder is returned straight away so log handling never waits on the network (see Card.isResolved()).
+    private CardDefinition definitionOf(String cardId) {
+        CardDefinition definition = cardIdMap.get(cardId);
+        if (definition != null) {
+            METRICS.increment(PipelineMetrics.Counter.CARD_CACHE_HITS);
         } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            opponentHandSize--;
-            if (fetchedCard.getType().equalsIgnoreCase("minion")) {
-                opponentBoard.add(fetchedCard);
+            METRICS.increment(PipelineMetrics.Counter.CARD_CACHE_MISSES);
+            //With a catalog imported, every card the opponent could play is known up front.
+            definition = service.getLocalCardInfo(cardId);
+            if (definition != null) {
+                cardIdMap.put(cardId, definition);
+                resolveWaiting(cardId, definition);
+                return definition;
+            }
+            CardDefinition placeholder = CardDefinition.placeholder(cardId);
+            cardIdMap.put(cardId, placeholder);
+            CompletableFuture<?> queued = service.getCardInfoAsync(cardId).whenComplete((fetched, error) ->
+                    fetchedCards.add(new FetchedCard(placeholder, error == null ? fetched : null)));
+            if (waitForFetches) {
+                queued.handle((fetched, error) -> null).join();
+                applyFetchedCards();
+                //Still the placeholder if the fetch failed.
+                return cardIdMap.getOrDefault(cardId, placeholder);
             }
+            definition = placeholder;
         }
+        return definition;
     }
 
-    public void cardToOpposingGraveyard(String logLine) throws IOException, InterruptedException {
-        Matcher matcher = cardIdRegex.matcher(logLine);
-        String cardId;
-        if (matcher.find()) {
-            cardId = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error while adding card to player graveyard.");
-            return;
+    // Creates the instance for a card entering the game, which is filled in later if we don't know the card yet.
+    private Card newCard(String cardId, int entityId) {
+        Card card = new Card(definitionOf(cardId), entityId);
+        if (!card.isResolved()) {
+            waitingCards.computeIfAbsent(cardId, id -> new ArrayList<>()).add(card);
         }
+        return card;
+    }
 
-        if (cardIdMap.containsKey(cardId)) {
-            Card playedCard = cardIdMap.get(cardId);
-            if (playedCard.getType().equalsIgnoreCase("minion")) {
-                opponentBoard.remove(playedCard);
+    // Applies the card fetches that finished since the last call: fills in the cards waiting for them, or, for a
+    // fetch that failed, forgets the placeholder so the next sighting of the card tries again. Called before each
+    // event by ZoneLogDispatcher, on the thread feeding this state.
+    public void applyFetchedCards() {
+        FetchedCard fetched;
+        while ((fetched = fetchedCards.poll()) != null) {
+            String cardId = fetched.placeholder.getCardId();
+            if (fetched.definition == null) {
+                cardIdMap.remove(cardId, fetched.placeholder);
+                getOutput().println("Error while fetching card data for " + cardId + "." + describeWaiting(cardId));
             } else {
-                opponentHandSize--;
+                cardIdMap.replace(cardId, fetched.placeholder, fetched.definition);
+                resolveWaiting(cardId, fetched.definition);
             }
-        } else {
-            Card fetchedCard = service.getCardInfo(cardId);
-            cardIdMap.put(cardId, fetchedCard);
-            if (fetchedCard.getType().equalsIgnoreCase("minion")) {
-                opponentBoard.remove(fetchedCard);
-            } else {
-                opponentHandSize--;
+        }
+    }
+
+    // Fills in every card that was waiting for this definition, the ones left over from failed fetches included.
+    private void resolveWaiting(String cardId, CardDefinition definition) {
+        List<Card> waiting = waitingCards.remove(cardId);
+        if (waiting != null) {
+            for (Card card : waiting) {
+                card.resolveFrom(definition);
             }
         }
     }
 
+    // The entities still waiting for the card's data, for the message about a fetch that failed.
+    private String describeWaiting(String cardId) {
+        List<Card> waiting = waitingCards.getOrDefault(cardId, Collections.emptyList());
+        if (waiting.isEmpty()) {
+            return "";
+        }
+        StringJoiner entities = new StringJoiner(", ");
+        for (Card card : waiting) {
+            entities.add(String.valueOf(card.getEntityId()));
+        }
+        return (waiting.size() == 1 ? " Entity " + entities + " stays" : " Entities " + entities + " stay")
+                + " unknown until the card is fetched on its next sighting.";
+    }
+
+    // A fetch as it finished, with a null definition if it failed.
+    private static final class FetchedCard {
+        final CardDefinition placeholder;
+        final CardDefinition definition;
+
+        FetchedCard(CardDefinition placeholder, CardDefinition definition) {
+            this.placeholder = placeholder;
+            this.definition = definition;
+        }
+    }
+
+    // The card we already track for this entity, or a new one for cards that weren't in one of our zones yet,
+    // like those summoned by other cards (e.g. Wolpertinger's copy).
+    private Card cardFor(ZoneEntity entity) {
+        return cardFor(entity.getId(), entity.getCardId());
+    }
+
+    private Card cardFor(int entityId, String cardId) {
+        Card card = zones.get(entityId);
+        if (card == null) {
+            card = newCard(cardId, entityId);
+        } else if (!card.isResolved() && !cardIdMap.containsKey(cardId)) {
+            //Its fetch failed, so seeing it again is worth another try.
+            definitionOf(cardId);
+        }
+        return card;
+    }
+
+    // Takes a card out of our hand, for the analyzer's plans. Cards that aren't in it any more are left alone.
+    public void removeFromHand(Card card) {
+        if (card.getZone() == CardZone.FRIENDLY_HAND) {
+            remove(card.getEntityId());
+        }
+    }
+
     public void damageOpponent(int damage) {
-        opponentLifeTotal -= damage;
+        setOpponentLifeTotal(opponentLifeTotal - damage);
     }
 
-    public void opponentMinionBounced(String logLine) {
-        Matcher matcher = cardNameRegex.matcher(logLine);
-        String cardName;
-        if (matcher.find()) {
-            cardName = matcher.group(0).substring(0,matcher.group(0).length() - 1);
-        } else {
-            System.out.println("Error occurred during bounce.");
+    // Setters for the fields in the state hash, which swap the old value's key for the new one's and tell the
+    // listeners.
+
+    private void setMana(int mana) {
+        hash ^= Zobrist.value(Zobrist.MANA, this.mana) ^ Zobrist.value(Zobrist.MANA, mana);
+        this.mana = mana;
+        record(GameEvent.MANA, mana, 0, 0, null);
+        for (GameStateListener listener : listeners) {
+            listener.manaChanged(mana);
+        }
+    }
+
+    private void setBowEquipped(boolean bowEquipped) {
+        if (this.bowEquipped == bowEquipped) {
+            return;
+        }
+        hash ^= Zobrist.value(Zobrist.BOW, 1);
+        this.bowEquipped = bowEquipped;
+        record(GameEvent.BOW, bowEquipped ? 1 : 0, 0, 0, null);
+        for (GameStateListener listener : listeners) {
+            listener.bowChanged(bowEquipped);
+        }
+    }
+
+    private void setOpponentLifeTotal(int opponentLifeTotal) {
+        hash ^= Zobrist.value(Zobrist.OPPONENT_LIFE, this.opponentLifeTotal)
+                ^ Zobrist.value(Zobrist.OPPONENT_LIFE, opponentLifeTotal);
+        this.opponentLifeTotal = opponentLifeTotal;
+        record(GameEvent.OPPONENT_LIFE, opponentLifeTotal, 0, 0, null);
+        for (GameStateListener listener : listeners) {
+            listener.opponentLifeChanged(opponentLifeTotal);
+        }
+    }
+
+    // Setters for the rest of the fields, which only record the change.
+
+    private void setOpponentHandSize(int opponentHandSize) {
+        this.opponentHandSize = opponentHandSize;
+        record(GameEvent.OPPONENT_HAND, opponentHandSize, 0, 0, null);
+    }
+
+    private void setPlayersTurn(boolean playersTurn) {
+        if (this.playersTurn == playersTurn) {
             return;
         }
-        Card bounced = Card.getCardFromListByName(cardName, opponentBoard);
-        opponentBoard.remove(bounced);
+        this.playersTurn = playersTurn;
+        record(GameEvent.PLAYERS_TURN, playersTurn ? 1 : 0, 0, 0, null);
+        //Snapshots are taken as the turn passes, so rebuilding any point of a game replays at most one turn.
+        if (!rewinding) {
+            history.snapshot(snapshot(history.size()));
+        }
+    }
+
+    private void setTurnCount(int turnCount) {
+        this.turnCount = turnCount;
+        record(GameEvent.TURN_COUNT, turnCount, 0, 0, null);
+    }
+
+    private void setMulligan(int markerCount, boolean inMulligan) {
+        this.mulliganMarkerCount = markerCount;
+        this.inMulligan = inMulligan;
+        record(GameEvent.MULLIGAN, markerCount, inMulligan ? 1 : 0, 0, null);
+    }
+
+    private void setWaitingForDraws(int drawCount, int currentMana) {
+        this.waitingForDraws = drawCount;
+        this.savedCurrentMana = currentMana;
+        record(GameEvent.WAITING_FOR_DRAWS, drawCount, currentMana, 0, null);
+    }
+
+    private void put(Card card, CardZone zone, int zonePos) {
+        zones.put(card, zone, zonePos);
+        record(GameEvent.CARD_PUT, card.getEntityId(), zone.ordinal(), zonePos, card.getCardId());
+    }
+
+    private Card remove(int entityId) {
+        Card card = zones.remove(entityId);
+        if (card != null) {
+            record(GameEvent.CARD_REMOVED, entityId, 0, 0, null);
+        }
+        return card;
+    }
+
+    private void askForAdvice(int currentMana, boolean alreadyAttacked) {
+        record(GameEvent.TURN_ADVICE, currentMana, alreadyAttacked ? 1 : 0, 0, null);
+        analyzer.notifyStart(currentMana, alreadyAttacked);
+    }
+
+    private void record(GameEvent event, int a, int b, int c, String cardId) {
+        if (!rewinding) {
+            history.record(event, a, b, c, cardId);
+        }
+    }
+
+    public void opponentMinionBounced(ZoneEntity entity) {
+        if (entity.getEntityName() == null) {
+            getOutput().println("Error occurred during bounce.");
+            return;
+        }
+        remove(entity.getId());
+    }
+
+    // METHODS FOR REVISITING EARLIER POINTS OF A GAME
+
+    // This game's history so far. Only read it on the thread feeding this state.
+    public GameHistory getHistory() {
+        return history;
+    }
+
+    // The history of the last game to end, or null before any has.
+    public GameHistory getLastGame() {
+        return lastGame;
+    }
+
+    // Puts this state back to how the game in the history was after its first `position` events: the nearest
+    // snapshot at or before that, and the events after it applied again. Listeners hear about it like any other
+    // change, but the analyzer isn't asked for advice. This state's own history starts over from there.
+    public void rewind(GameHistory from, int position) {
+        if (position < 0 || position > from.size()) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + from.size());
+        }
+        GameHistory.Snapshot snapshot = from.snapshotAt(position);
+        rewinding = true;
+        try {
+            restore(snapshot);
+            for (int i = snapshot.position; i < position; i++) {
+                apply(from, i);
+            }
+        } finally {
+            rewinding = false;
+        }
+        history = new GameHistory(snapshot(0));
+    }
+
+    // Rewinds to the MULLIGAN_ADVICE or TURN_ADVICE event at the position, and asks the analyzer again.
+    public void replayDecision(GameHistory from, int position) {
+        GameEvent event = from.getEvent(position);
+        if (event == GameEvent.MULLIGAN_ADVICE) {
+            rewind(from, position);
+            record(GameEvent.MULLIGAN_ADVICE, 0, 0, 0, null);
+            analyzer.notifyMulliganBegins();
+        } else if (event == GameEvent.TURN_ADVICE) {
+            rewind(from, position);
+            askForAdvice(from.getFirst(position), from.getSecond(position) != 0);
+        } else {
+            throw new IllegalArgumentException("No decision at position " + position + ": " + event);
+        }
+    }
+
+    // The whole state, with the scalars in the order restore() reads them back in.
+    private GameHistory.Snapshot snapshot(int position) {
+        int[] scalars = {mana, savedCurrentMana, turnCount, opponentHandSize, opponentLifeTotal, playersTurn ? 1 : 0,
+                inMulligan ? 1 : 0, mulliganMarkerCount, waitingForDraws, bowEquipped ? 1 : 0};
+        int[] zoneSizes = new int[ZONES.length];
+        int cards = 0;
+        for (CardZone zone : ZONES) {
+            zoneSizes[zone.ordinal()] = zones.size(zone);
+            cards += zoneSizes[zone.ordinal()];
+        }
+        int[] entityIds = new int[cards];
+        String[] cardIds = new String[cards];
+        int index = 0;
+        for (CardZone zone : ZONES) {
+            for (Card card : zones.view(zone)) {
+                entityIds[index] = card.getEntityId();
+                cardIds[index] = card.getCardId();
+                index++;
+            }
+        }
+        return new GameHistory.Snapshot(position, scalars, zoneSizes, entityIds, cardIds);
+    }
+
+    private void restore(GameHistory.Snapshot snapshot) {
+        int[] scalars = snapshot.scalars;
+        zones.clear();
+        setMana(scalars[0]);
+        setTurnCount(scalars[2]);
+        setOpponentHandSize(scalars[3]);
+        setOpponentLifeTotal(scalars[4]);
+        setPlayersTurn(scalars[5] != 0);
+        setMulligan(scalars[7], scalars[6] != 0);
+        setWaitingForDraws(scalars[8], scalars[1]);
+        setBowEquipped(scalars[9] != 0);
+        int index = 0;
+        for (CardZone zone : ZONES) {
+            for (int i = 0; i < snapshot.zoneSizes[zone.ordinal()]; i++) {
+                put(newCard(snapshot.cardIds[index], snapshot.entityIds[index]), zone, 0);
+                index++;
+            }
+        }
+    }
+
+    private void apply(GameHistory from, int position) {
+        int a = from.getFirst(position);
+        int b = from.getSecond(position);
+        switch (from.getEvent(position)) {
+            case CARD_PUT:
+                put(cardFor(a, from.getCardId(position)), ZONES[b], from.getThird(position));
+                break;
+            case CARD_REMOVED:
+                remove(a);
+                break;
+            case MANA:
+                setMana(a);
+                break;
+            case BOW:
+                setBowEquipped(a != 0);
+                break;
+            case OPPONENT_LIFE:
+                setOpponentLifeTotal(a);
+                break;
+            case OPPONENT_HAND:
+                setOpponentHandSize(a);
+                break;
+            case PLAYERS_TURN:
+                setPlayersTurn(a != 0);
+                break;
+            case TURN_COUNT:
+                setTurnCount(a);
+                break;
+            case MULLIGAN:
+                setMulligan(a, b != 0);
+                break;
+            case WAITING_FOR_DRAWS:
+                setWaitingForDraws(a, b);
+                break;
+            case GAME_ENDED:
+                zones.clear();
+                break;
+            default:
+                //Decisions change nothing.
+                break;
+        }
     }
 }
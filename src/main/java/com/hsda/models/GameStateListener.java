@@ -0,0 +1,19 @@
+package com.hsda.models;
+
+// Told about each change to the game state as it happens, on the thread that made it, so derived values can be
+// kept up to date instead of worked out again from the whole state.
+public interface GameStateListener {
+    // A card went into one of the zones GameState tracks. Moving between zones is leaving one and entering another.
+    void cardEntered(Card card, CardZone zone);
+
+    void cardLeft(Card card, CardZone zone);
+
+    default void manaChanged(int mana) {
+    }
+
+    default void bowChanged(boolean equipped) {
+    }
+
+    default void opponentLifeChanged(int lifeTotal) {
+    }
+}
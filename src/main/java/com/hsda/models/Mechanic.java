@@ -0,0 +1,88 @@
+package com.hsda.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Card mechanics (keywords). A card's mechanics are stored as a bitmask of these, see CardDefinition.
+public enum Mechanic {
+    ADAPT("Adapt"),
+    AURA("Aura"),
+    BATTLECRY("Battlecry"),
+    CHARGE("Charge"),
+    CHOOSE_ONE("Choose One"),
+    COMBO("Combo"),
+    CORRUPT("Corrupt"),
+    DEATHRATTLE("Deathrattle"),
+    DISCOVER("Discover"),
+    DIVINE_SHIELD("Divine Shield"),
+    DORMANT("Dormant"),
+    ECHO("Echo"),
+    ENRAGED("Enrage"),
+    FREEZE("Freeze"),
+    FRENZY("Frenzy"),
+    IMMUNE("Immune"),
+    INSPIRE("Inspire"),
+    LIFESTEAL("Lifesteal"),
+    MAGNETIC("Magnetic"),
+    OUTCAST("Outcast"),
+    OVERKILL("Overkill"),
+    OVERLOAD("Overload"),
+    POISONOUS("Poisonous"),
+    QUEST("Quest"),
+    REBORN("Reborn"),
+    RUSH("Rush"),
+    SECRET("Secret"),
+    SILENCE("Silence"),
+    SPELLBURST("Spellburst"),
+    SPELLPOWER("Spell Damage"),
+    STEALTH("Stealth"),
+    TAUNT("Taunt"),
+    TRADEABLE("Tradeable"),
+    WINDFURY("Windfury");
+
+    private static final Map<String, Mechanic> BY_KEY = new HashMap<>();
+
+    static {
+        for (Mechanic m : values()) {
+            BY_KEY.put(m.name(), m);
+            BY_KEY.put(key(m.displayName), m);
+        }
+    }
+
+    private final String displayName;
+
+    Mechanic(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+
+    // Accepts both the API's names ("Divine Shield") and HearthstoneJSON's ("DIVINE_SHIELD").
+    // Returns null for mechanics we don't know about.
+    public static Mechanic fromName(String name) {
+        return BY_KEY.get(key(name));
+    }
+
+    public static List<String> namesOf(long mechanics) {
+        List<String> names = new ArrayList<>();
+        for (Mechanic m : values()) {
+            if ((mechanics & m.bit()) != 0) {
+                names.add(m.displayName);
+            }
+        }
+        return names;
+    }
+
+    private static String key(String name) {
+        return name.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+    }
+}
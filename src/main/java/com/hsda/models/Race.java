@@ -0,0 +1,66 @@
+package com.hsda.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Minion types (tribes). A card's races are stored as a bitmask of these, see CardDefinition.
+public enum Race {
+    BEAST("Beast"),
+    DEMON("Demon"),
+    DRAGON("Dragon"),
+    ELEMENTAL("Elemental"),
+    MECHANICAL("Mech"),
+    MURLOC("Murloc"),
+    NAGA("Naga"),
+    PIRATE("Pirate"),
+    QUILBOAR("Quilboar"),
+    TOTEM("Totem"),
+    UNDEAD("Undead");
+
+    private static final Map<String, Race> BY_KEY = new HashMap<>();
+
+    static {
+        for (Race r : values()) {
+            BY_KEY.put(r.name(), r);
+            BY_KEY.put(r.displayName.toUpperCase(Locale.ROOT), r);
+        }
+    }
+
+    private final String displayName;
+
+    Race(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    // Accepts both the API's names ("Mech") and HearthstoneJSON's ("MECHANICAL").
+    // "All" counts as every race. Returns 0 for races we don't know about.
+    public static int bitsOf(String name) {
+        String key = name.trim().toUpperCase(Locale.ROOT);
+        if (key.equals("ALL")) {
+            return (1 << values().length) - 1;
+        }
+        Race race = BY_KEY.get(key);
+        return race == null ? 0 : race.bit();
+    }
+
+    public static List<String> namesOf(int races) {
+        List<String> names = new ArrayList<>();
+        for (Race r : values()) {
+            if ((races & r.bit()) != 0) {
+                names.add(r.displayName);
+            }
+        }
+        return names;
+    }
+}
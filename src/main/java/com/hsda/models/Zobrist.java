@@ -0,0 +1,57 @@
+package com.hsda.models;
+
+import java.util.List;
+
+// Zobrist keys for hashing game states. A state's hash is the XOR of the keys of everything in it, so adding or
+// removing one thing from a state updates its hash with a single XOR instead of hashing the whole state again.
+// Entity ids aren't bounded, so instead of a table of random numbers each key is a strong mix of what it stands for,
+// which is just as random and the same in every run.
+public final class Zobrist {
+    // What a value key stands for, so equal numbers of different things get different keys.
+    public static final int MANA = 1;
+    public static final int BOW = 2;
+    public static final int OPPONENT_LIFE = 3;
+    public static final int UNRESOLVED = 4;
+    // Kinds for the analyzer's own keys, which mix its arguments into a state's hash.
+    public static final int TURN_MANA = 5;
+    public static final int ALREADY_ATTACKED = 6;
+    public static final int BOARD_SUMMARY = 7;
+
+    private static final long CARD_SEED = 0x5DEECE66DL;
+    private static final long VALUE_SEED = 0x2545F4914F6CDD1DL;
+
+    private Zobrist() {
+    }
+
+    // The key for the card with this entity id being at this slot of a zone.
+    public static long card(CardZone zone, int slot, int entityId) {
+        return mix(CARD_SEED + (((long) entityId << 16 | slot << 4 | zone.ordinal()) * 0x9E3779B97F4A7C15L));
+    }
+
+    // Like card(zone, slot, entityId), but a card whose data hasn't arrived yet has a different key from the same
+    // card once it has, since its stats change when it does.
+    public static long card(CardZone zone, int slot, Card card) {
+        long key = card(zone, slot, card.getEntityId());
+        return card.isResolved() ? key : key ^ value(UNRESOLVED, card.getEntityId());
+    }
+
+    // The XOR of card() for cards whose order doesn't matter, like a hand being searched for the best plays.
+    public static long cards(CardZone zone, List<Card> cards) {
+        long hash = 0;
+        for (Card c : cards) {
+            hash ^= card(zone, 0, c);
+        }
+        return hash;
+    }
+
+    public static long value(int kind, int value) {
+        return mix(VALUE_SEED + (((long) value << 8 | kind) * 0x9E3779B97F4A7C15L));
+    }
+
+    // SplitMix64's finalizer.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,166 @@
+package com.hsda.models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Every card GameState tracks, indexed by its Zone.log entity id, and the order of the cards within each zone.
+// Finding a card is a single hash lookup, and each zone is a small array kept in zonePos order, so moving a
+// card only ever shifts the handful of cards after it in the zones it leaves and enters.
+// The store also keeps a Zobrist hash of where every card is, updated as cards move, and tells its listeners
+// about every card that enters or leaves a zone.
+public class ZoneStore {
+    private final EntityMap entities;
+    private final Map<CardZone, Slots> zones;
+    private final List<GameStateListener> listeners;
+    private long hash;
+
+    public ZoneStore() {
+        entities = new EntityMap();
+        zones = new EnumMap<>(CardZone.class);
+        listeners = new ArrayList<>();
+        for (CardZone zone : CardZone.values()) {
+            zones.put(zone, new Slots(zone));
+        }
+    }
+
+    public void addListener(GameStateListener listener) {
+        listeners.add(listener);
+    }
+
+    public Card get(int entityId) {
+        return entities.get(entityId);
+    }
+
+    // Puts the card into the zone at the position the log gave for it, moving it out of the zone it was in.
+    // zonePos is 1-based like in the log; 0 or a position past the end appends the card.
+    public void put(Card card, CardZone zone, int zonePos) {
+        Card existing = entities.get(card.getEntityId());
+        if (existing != null) {
+            zones.get(existing.getZone()).remove(existing);
+        }
+        entities.put(card.getEntityId(), card);
+        zones.get(zone).insert(card, zonePos);
+    }
+
+    // Removes the card with this entity id from whichever zone it is in, returning it or null if we didn't have it.
+    public Card remove(int entityId) {
+        Card card = entities.remove(entityId);
+        if (card != null) {
+            zones.get(card.getZone()).remove(card);
+        }
+        return card;
+    }
+
+    // A live view of the zone in zonePos order. Removing from the view removes the card from the store.
+    public List<Card> view(CardZone zone) {
+        return zones.get(zone).view;
+    }
+
+    public int size(CardZone zone) {
+        return zones.get(zone).size;
+    }
+
+    public void clear() {
+        entities.clear();
+        for (Slots slots : zones.values()) {
+            slots.clear();
+        }
+    }
+
+    // The XOR of Zobrist.card() for every card at its zone and slot. Equal for stores holding the same cards in the
+    // same places, whatever order they got there in.
+    public long hash() {
+        return hash;
+    }
+
+    private void move(Card card, CardZone zone, int slot) {
+        CardZone from = card.getZone();
+        if (from != null) {
+            hash ^= Zobrist.card(from, card.getSlot(), card.getEntityId());
+        }
+        if (zone != null) {
+            hash ^= Zobrist.card(zone, slot, card.getEntityId());
+        }
+        card.moveTo(zone, slot);
+        // Cards shifting along within a zone aren't news.
+        if (from != zone) {
+            for (GameStateListener listener : listeners) {
+                if (from != null) {
+                    listener.cardLeft(card, from);
+                }
+                if (zone != null) {
+                    listener.cardEntered(card, zone);
+                }
+            }
+        }
+    }
+
+    private final class Slots {
+        private final CardZone zone;
+        private Card[] cards;
+        private int size;
+        private final List<Card> view;
+
+        Slots(CardZone zone) {
+            this.zone = zone;
+            this.cards = new Card[zone.getLimit()];
+            this.view = new AbstractList<Card>() {
+                @Override
+                public Card get(int index) {
+                    if (index >= size) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                    }
+                    return cards[index];
+                }
+
+                @Override
+                public Card remove(int index) {
+                    return ZoneStore.this.remove(get(index).getEntityId());
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        void insert(Card card, int zonePos) {
+            if (size == cards.length) {
+                cards = Arrays.copyOf(cards, size * 2);
+            }
+            int index = zonePos > 0 && zonePos <= size ? zonePos - 1 : size;
+            System.arraycopy(cards, index, cards, index + 1, size - index);
+            cards[index] = card;
+            size++;
+            move(card, zone, index);
+            renumber(index + 1);
+        }
+
+        void remove(Card card) {
+            int index = card.getSlot();
+            System.arraycopy(cards, index + 1, cards, index, size - index - 1);
+            cards[--size] = null;
+            move(card, null, -1);
+            renumber(index);
+        }
+
+        private void renumber(int from) {
+            for (int i = from; i < size; i++) {
+                move(cards[i], zone, i);
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                move(cards[i], null, -1);
+                cards[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.hsda.server;
+
+import com.hsda.analyzer.GameStateAnalyzer;
+import com.hsda.analyzer.TranspositionTable;
+import com.hsda.log.ZoneLogDispatcher;
+import com.hsda.models.CardZone;
+import com.hsda.models.GameHistory;
+import com.hsda.models.GameState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One player's Zone.log stream with its own GameState and analyzer. run() reads and dispatches lines until the
+// stream ends, while a second task prints advice as soon as it's published, as Main's printer thread does.
+// Keeps how long each line took to handle, analysis included, and reports what the session holds on to: its game
+// histories, caches, waiting advice and tracked cards. On platform threads it also counts what handling its lines
+// allocated; virtual threads, which sessions run on where the JVM has them, don't report that.
+public final class Session implements Runnable {
+    // Where a session's lines come from. nextLine() blocks until there is one and returns null at the end.
+    public interface LineSource extends Closeable {
+        String nextLine() throws IOException, InterruptedException;
+    }
+
+    // How long the printer waits for advice before checking whether the session has ended.
+    private static final long PRINTER_POLL_MS = 100;
+    // How often, in lines, a session takes stock of what it holds while a game goes on.
+    private static final int STOCK_LINES = 1000;
+    // Bytes per slot of the arrays a session keeps, with compressed references: a history event is a reference, three
+    // ints and another reference, a snapshot card an int and a reference, a cache slot a long key and a reference.
+    private static final int HISTORY_EVENT_BYTES = 20;
+    private static final int SNAPSHOT_CARD_BYTES = 8;
+    private static final int CACHE_SLOT_BYTES = 12;
+    private static final int MESSAGE_SLOT_BYTES = 4;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final SessionServer server;
+    private final String name;
+    private final GameState state;
+    private final GameStateAnalyzer analyzer;
+    private final LineSource source;
+    private final PrintStream out;
+    private final ExecutorService executor;
+    private final long opened;
+    private final CountDownLatch printerDone = new CountDownLatch(1);
+    private volatile boolean stopping;
+
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong recommendations = new AtomicLong();
+    private final AtomicLong lineNanos = new AtomicLong();
+    private final AtomicLong maxLineNanos = new AtomicLong();
+    // -1 once a thread turns out not to report its allocations, as virtual threads never do.
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    // What takeStock() found last. It runs on the session's thread, which is the only one that may look at its game
+    // histories: every STOCK_LINES lines, when a game ends and when the session closes.
+    private volatile String held;
+    private volatile long heldBytes;
+
+    Session(SessionServer server, String name, GameState state, LineSource source, PrintStream out,
+            ExecutorService executor) throws IOException, InterruptedException {
+        this.server = server;
+        this.name = name;
+        this.state = state;
+        this.analyzer = new GameStateAnalyzer(state);
+        this.source = source;
+        this.out = out;
+        this.executor = executor;
+        this.opened = System.nanoTime();
+        state.setOutput(out);
+        takeStock();
+    }
+
+    @Override
+    public void run() {
+        executor.execute(this::printAdvice);
+        ZoneLogDispatcher dispatcher = new ZoneLogDispatcher(state);
+        try {
+            GameHistory game = state.getHistory();
+            String line;
+            while ((line = source.nextLine()) != null) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                dispatcher.dispatch(line);
+                long nanos = System.nanoTime() - start;
+                long allocatedAfter = allocatedBytes();
+                lines.incrementAndGet();
+                lineNanos.addAndGet(nanos);
+                maxLineNanos.accumulateAndGet(nanos, Math::max);
+                if (allocatedBefore < 0 || allocatedAfter < 0) {
+                    allocatedBytes.set(-1);
+                } else if (allocatedBytes.get() >= 0) {
+                    allocatedBytes.addAndGet(allocatedAfter - allocatedBefore);
+                }
+                // A new history means a game just ended, and what it built up is all still held.
+                if (state.getHistory() != game || lines.get() % STOCK_LINES == 0) {
+                    game = state.getHistory();
+                    takeStock();
+                }
+            }
+        } catch (IOException e) {
+            server.log(name + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // One session going wrong must not take the others down.
+            server.log(name + " failed: " + e);
+        } finally {
+            takeStock();
+            state.gameEnded();
+            stopping = true;
+            try {
+                printerDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                source.close();
+            } catch (IOException e) {
+                //Nothing left to read from it either way.
+            }
+            out.flush();
+            server.closed(this);
+        }
+    }
+
+    // Prints until the session has stopped and everything it published is out.
+    private void printAdvice() {
+        try {
+            while (true) {
+                String message = analyzer.pollMessage(PRINTER_POLL_MS, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    out.println(message);
+                    recommendations.incrementAndGet();
+                } else if (stopping) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            printerDone.countDown();
+        }
+    }
+
+    // What this thread has allocated so far, or -1 if the JVM can't say (virtual threads, some JVMs).
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    // Ends the session as if its stream had ended.
+    void close() {
+        try {
+            source.close();
+        } catch (IOException e) {
+            //Closing is all we wanted.
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLines() {
+        return lines.get();
+    }
+
+    public long getRecommendations() {
+        return recommendations.get();
+    }
+
+    public double getMeanLineMillis() {
+        long n = lines.get();
+        return n == 0 ? 0 : lineNanos.get() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxLineMillis() {
+        return maxLineNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Bytes allocated handling this session's lines, or -1 if that can't be measured on this thread. This is
+    // allocation, most of it garbage by now; getHeld() and getHeldBytes() are what the session keeps.
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    // What the session holds on to, by the size of each thing that grows with it: the game histories, the
+    // analyzer's caches and waiting advice, and the cards it tracks. As of at most STOCK_LINES lines ago.
+    public String getHeld() {
+        return held;
+    }
+
+    // About how many bytes the arrays behind getHeld() take up. Works on any thread, virtual ones included.
+    public long getHeldBytes() {
+        return heldBytes;
+    }
+
+    private void takeStock() {
+        StringBuilder text = new StringBuilder();
+        long bytes = describe(text, "history", state.getHistory());
+        GameHistory lastGame = state.getLastGame();
+        if (lastGame != null) {
+            bytes += describe(text.append(", "), "last game", lastGame);
+        }
+        text.append(String.format(", cards %d in hand, %d in play, %d secrets, %d opposing, %d definitions",
+                state.getZoneSize(CardZone.FRIENDLY_HAND), state.getZoneSize(CardZone.FRIENDLY_PLAY),
+                state.getZoneSize(CardZone.FRIENDLY_SECRET), state.getZoneSize(CardZone.OPPOSING_PLAY),
+                state.getKnownCardCount()));
+        bytes += describe(text.append(", "), "plans", analyzer.getPlanCache());
+        bytes += describe(text.append(", "), "burst plans", analyzer.getBurstCache());
+        bytes += describe(text.append(", "), "taunt plans", analyzer.getTauntCache());
+        text.append(String.format(", messages %d/%d", analyzer.getWaitingMessages(), analyzer.getMessageCapacity()));
+        bytes += (long) analyzer.getMessageCapacity() * MESSAGE_SLOT_BYTES;
+        heldBytes = bytes;
+        held = text.toString();
+    }
+
+    private static long describe(StringBuilder text, String what, GameHistory history) {
+        text.append(String.format("%s %d/%d events, %d snapshots of %d cards", what, history.size(),
+                history.capacity(), history.getSnapshotCount(), history.getSnapshotCardCount()));
+        return (long) history.capacity() * HISTORY_EVENT_BYTES
+                + (long) history.getSnapshotCardCount() * SNAPSHOT_CARD_BYTES;
+    }
+
+    private static long describe(StringBuilder text, String what, TranspositionTable<?> table) {
+        text.append(String.format("%s %d/%d", what, table.size(), table.capacity()));
+        return (long) table.capacity() * CACHE_SLOT_BYTES;
+    }
+
+    public GameStateAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    @Override
+    public String toString() {
+        long allocated = getAllocatedBytes();
+        return String.format("%s: open %d s, %d lines, %d recommendations, %.3f ms per line (max %.2f ms)%s; "
+                        + "holds about %d KB: %s; analysis %s",
+                name, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - opened), getLines(), getRecommendations(),
+                getMeanLineMillis(), getMaxLineMillis(), allocated < 0 ? "" : ", " + allocated / 1024 + " KB allocated",
+                getHeldBytes() / 1024, getHeld(), analyzer.getMetrics());
+    }
+}
@@ -0,0 +1,281 @@
+package com.hsda.server;
+
+import com.hsda.log.ZoneLogTailer;
+import com.hsda.models.GameState;
+import com.hsda.service.CardFetcherService;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a Session for every Zone.log stream it is given, so one process can advise a whole team.
+// Streams come from connections to a local port, where a client sends its log lines (e.g. tail -f Zone.log | nc)
+// and gets advice back on the same connection, or from watched directories, where every *.log file is followed
+// and its advice written to advice/<name>.txt next to it.
+// Each session reads on its own virtual thread where the JVM has them (21 and up), and a platform thread otherwise.
+// Sessions share the card service, so every card definition is loaded once for all of them.
+public final class SessionServer implements Closeable {
+    private static final String LOG_SUFFIX = ".log";
+    // How long a followed log waits for the directory watcher before checking the file anyway.
+    private static final long MAX_WAIT_MS = 500;
+
+    private final CardFetcherService service;
+    private final PrintStream console;
+    private final ExecutorService executor;
+    private final Set<Session> sessions;
+    private final Map<Path, Semaphore> followed;
+    private final AtomicInteger connections;
+    private final Collection<Closeable> listeners;
+    private volatile boolean closed;
+    private ScheduledExecutorService reporter;
+
+    public SessionServer(CardFetcherService service, PrintStream console) {
+        this.service = service;
+        this.console = console;
+        this.executor = newSessionExecutor();
+        this.sessions = ConcurrentHashMap.newKeySet();
+        this.followed = new ConcurrentHashMap<>();
+        this.connections = new AtomicInteger();
+        this.listeners = new ArrayList<>();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up at run time, as we still build for older JVMs.
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Accepts connections on this port of the loopback interface, on a thread of its own.
+    public synchronized void listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        listeners.add(socket);
+        Thread acceptor = new Thread(() -> {
+            while (!closed) {
+                try {
+                    accept(socket.accept());
+                } catch (IOException e) {
+                    if (!closed) {
+                        log("Could not accept a connection: " + e.getMessage());
+                    }
+                }
+            }
+        }, "session-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log("Listening on " + socket.getLocalSocketAddress());
+    }
+
+    private void accept(Socket socket) throws IOException {
+        String name = "connection-" + connections.incrementAndGet() + " (" + socket.getRemoteSocketAddress() + ")";
+        BufferedReader reader;
+        PrintStream out;
+        try {
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        open(name, new Session.LineSource() {
+            @Override
+            public String nextLine() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        }, out);
+    }
+
+    // Follows every *.log file in the directory, now and as they appear, with one watch service for all of them.
+    public synchronized void watch(Path directory) throws IOException {
+        Path advice = directory.resolve("advice");
+        Files.createDirectories(advice);
+        WatchService watchService = directory.getFileSystem().newWatchService();
+        listeners.add(watchService);
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+            for (Path log : logs) {
+                changed(log, advice);
+            }
+        }
+        Thread watcher = new Thread(() -> {
+            try {
+                while (!closed) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (context instanceof Path && context.toString().endsWith(LOG_SUFFIX)) {
+                            changed(directory.resolve((Path) context), advice);
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                //Shutting down.
+            }
+        }, "session-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        log("Watching " + directory.toAbsolutePath());
+    }
+
+    // Starts following a log the first time it's seen, and wakes up its session after that.
+    private void changed(Path log, Path advice) {
+        Semaphore signal = followed.get(log);
+        if (signal != null) {
+            signal.release();
+            return;
+        }
+        Semaphore created = new Semaphore(0);
+        if (followed.putIfAbsent(log, created) != null) {
+            return;
+        }
+        String fileName = log.getFileName().toString();
+        String name = fileName.substring(0, fileName.length() - LOG_SUFFIX.length());
+        ZoneLogTailer tailer = null;
+        try {
+            tailer = new ZoneLogTailer(log, false);
+            ZoneLogTailer following = tailer;
+            PrintStream out = new PrintStream(Files.newOutputStream(advice.resolve(name + ".txt"),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), true, StandardCharsets.UTF_8);
+            open(name, new Session.LineSource() {
+                @Override
+                public String nextLine() throws IOException, InterruptedException {
+                    while (!closed) {
+                        String line = following.readLine();
+                        if (line != null) {
+                            return line;
+                        }
+                        created.tryAcquire(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+                        created.drainPermits();
+                    }
+                    return null;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    following.close();
+                    followed.remove(log, created);
+                }
+            }, out);
+        } catch (IOException e) {
+            if (tailer != null) {
+                try {
+                    tailer.close();
+                } catch (IOException closing) {
+                    e.addSuppressed(closing);
+                }
+            }
+            followed.remove(log, created);
+            log("Could not follow " + log + ": " + e.getMessage());
+        }
+    }
+
+    // Starts a session on the source and output, which are closed again if it can't be started.
+    private void open(String name, Session.LineSource source, PrintStream out) throws IOException {
+        Session session;
+        try {
+            session = new Session(this, name, new GameState(service), source, out, executor);
+        } catch (IOException | RuntimeException e) {
+            abandon(source, out, e);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(source, out, e);
+            return;
+        }
+        sessions.add(session);
+        log("Opened " + name + ", " + sessions.size() + " sessions open");
+        executor.execute(session);
+    }
+
+    private static void abandon(Session.LineSource source, PrintStream out, Exception cause) {
+        out.close();
+        try {
+            source.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    // Logs every open session, with what it holds, every period until the server closes.
+    public synchronized void startReporting(long period, TimeUnit unit) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            for (Session session : getSessions()) {
+                log("Open " + session);
+            }
+        }, period, period, unit);
+    }
+
+    void closed(Session session) {
+        sessions.remove(session);
+        log("Closed " + session);
+    }
+
+    void log(String message) {
+        console.println(message);
+    }
+
+    public Collection<Session> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (reporter != null) {
+            reporter.shutdown();
+        }
+        for (Closeable listener : listeners) {
+            listener.close();
+        }
+        for (Session session : sessions) {
+            session.close();
+        }
+        executor.shutdown();
+    }
+}
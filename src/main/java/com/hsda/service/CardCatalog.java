@@ -0,0 +1,149 @@
+package com.hsda.service;
+
+import com.hsda.models.CardDefinition;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Every card in the game, imported in bulk from a local card collection dump.
+// The dump is streamed one card object at a time rather than parsed into one giant JSON tree, each object being
+// turned into a CardDefinition and dropped straight away. The cards are then indexed by card id and by lower cased name in
+// parallel. Lookups are plain hash map hits.
+public class CardCatalog {
+    private static CardCatalog defaultCatalog;
+    private static boolean defaultLoaded;
+
+    private final Map<String, CardDefinition> byCardId;
+    private final Map<String, CardDefinition> byName;
+
+    private CardCatalog(Map<String, CardDefinition> byCardId, Map<String, CardDefinition> byName) {
+        this.byCardId = byCardId;
+        this.byName = byName;
+    }
+
+    // The catalog at -Dhsda.cardCatalog=<file>, or ~/.hsda/cards.json. Null if there is no dump to load.
+    public static synchronized CardCatalog getDefault() throws IOException {
+        if (!defaultLoaded) {
+            String configured = System.getProperty("hsda.cardCatalog");
+            Path path = configured != null
+                    ? Paths.get(configured)
+                    : Paths.get(System.getProperty("user.home"), ".hsda", "cards.json");
+            if (Files.exists(path)) {
+                defaultCatalog = load(path);
+            }
+            defaultLoaded = true;
+        }
+        return defaultCatalog;
+    }
+
+    public static CardCatalog load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    // Accepts either a JSON array of cards, or an object mapping set names to arrays of cards.
+    public static CardCatalog load(Reader reader) {
+        List<CardDefinition> cards = new ArrayList<>();
+        JSONTokener tokener = new JSONTokener(reader);
+        char c = tokener.nextClean();
+        if (c == '[') {
+            readArray(tokener, cards);
+        } else if (c == '{') {
+            readSets(tokener, cards);
+        } else {
+            throw tokener.syntaxError("A card collection must be a JSON array or object");
+        }
+
+        //Reprints share a name, the card with the lowest id wins so the index doesn't depend on thread timing.
+        ConcurrentMap<String, CardDefinition> byCardId = cards.parallelStream()
+                .collect(Collectors.toConcurrentMap(CardDefinition::getCardId, Function.identity(), CardCatalog::lowestId));
+        ConcurrentMap<String, CardDefinition> byName = cards.parallelStream()
+                .collect(Collectors.toConcurrentMap(card -> card.getName().toLowerCase(Locale.ROOT),
+                        Function.identity(), CardCatalog::lowestId));
+        return new CardCatalog(byCardId, byName);
+    }
+
+    private static CardDefinition lowestId(CardDefinition a, CardDefinition b) {
+        return a.getCardId().compareTo(b.getCardId()) <= 0 ? a : b;
+    }
+
+    private static void readSets(JSONTokener tokener, List<CardDefinition> cards) {
+        if (tokener.nextClean() == '}') {
+            return;
+        }
+        tokener.back();
+        while (true) {
+            tokener.nextValue(); // set name
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected ':' after set name");
+            }
+            if (tokener.nextClean() == '[') {
+                readArray(tokener, cards);
+            } else {
+                tokener.back();
+                tokener.nextValue();
+            }
+            char c = tokener.nextClean();
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected ',' or '}' between sets");
+            }
+        }
+    }
+
+    private static void readArray(JSONTokener tokener, List<CardDefinition> cards) {
+        if (tokener.nextClean() == ']') {
+            return;
+        }
+        tokener.back();
+        while (true) {
+            Object value = tokener.nextValue();
+            if (value instanceof JSONObject) {
+                CardDefinition card = CardJson.parse((JSONObject) value);
+                if (card != null) {
+                    cards.add(card);
+                }
+            }
+            char c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected ',' or ']' between cards");
+            }
+        }
+    }
+
+    public CardDefinition getByCardId(String cardId) {
+        return byCardId.get(cardId);
+    }
+
+    public CardDefinition getByName(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return byCardId.size();
+    }
+
+    public Collection<CardDefinition> getAll() {
+        return Collections.unmodifiableCollection(byCardId.values());
+    }
+}
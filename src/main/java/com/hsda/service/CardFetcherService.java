@@ -1,73 +1,182 @@
 package com.hsda.service;
 
-import com.hsda.models.Card;
-import org.json.JSONArray;
-import org.json.JSONException;
+import com.hsda.metrics.PipelineMetrics;
+import com.hsda.models.CardDefinition;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CardFetcherService {
     final String CARD_GET_BASE_URL = "https://omgvamp-hearthstone-v1.p.rapidapi.com/cards/";
 
-    public CardFetcherService() {
+    private static final List<String> DECK_CARD_IDS = Arrays.asList("CFM_315","LOOT_258","OG_179","BAR_031","DS1_175",
+            "SCH_133","DRG_071","EX1_611","BAR_745","CORE_BRM_013","CORE_EX1_531",
+            "CS2_237","EX1_536","EX1_539","TRL_339","DS1_178");
 
+    // How many cards we fetch from the API at the same time.
+    private static final int MAX_PARALLEL_FETCHES = 4;
+    private static final PipelineMetrics METRICS = PipelineMetrics.global();
+
+    // One client for every request and a small pool of daemon threads to run them on, created on first use so
+    // that offline runs never start either.
+    private static final class Http {
+        static final HttpClient CLIENT = HttpClient.newHttpClient();
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_PARALLEL_FETCHES, runnable -> {
+            Thread thread = new Thread(runnable, "card-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final CardStore store;
+    private final CardCatalog catalog;
+    // Fetches that haven't completed yet, by card id.
+    private final Map<String, CompletableFuture<CardDefinition>> inFlight = new ConcurrentHashMap<>();
+    private CompletableFuture<List<CardDefinition>> deckCards;
+
+    public CardFetcherService() throws IOException {
+        this(CardStore.open(CardStore.defaultPath()), CardCatalog.getDefault());
+    }
+
+    // The catalog is optional and may be null.
+    public CardFetcherService(CardStore store, CardCatalog catalog) {
+        this.store = store;
+        this.catalog = catalog;
+    }
+
+    // Looks the card up in the imported catalog and the local store, and only asks the API for cards
+    // we have never seen before.
+    public CardDefinition getCardInfo(String cardId) throws IOException, InterruptedException {
+        CardDefinition known = getLocalCardInfo(cardId);
+        if (known != null) {
+            return known;
+        }
+        return await(getCardInfoAsync(cardId));
+    }
+
+    // Like getCardInfo(), but never blocks the caller: cards we have locally come back as a completed future,
+    // anything else is fetched in the background. Concurrent requests for the same card share one fetch.
+    public CompletableFuture<CardDefinition> getCardInfoAsync(String cardId) {
+        CardDefinition known = getLocalCardInfo(cardId);
+        if (known != null) {
+            return CompletableFuture.completedFuture(known);
+        }
+        CompletableFuture<CardDefinition> fetch = inFlight.computeIfAbsent(cardId, id ->
+                CompletableFuture.supplyAsync(() -> fetchCardInfo(id), Http.EXECUTOR));
+        fetch.whenComplete((card, error) -> inFlight.remove(cardId, fetch));
+        return fetch;
+    }
+
+    // The cards of our deck, fetched once per service and all at the same time. Every caller gets the same list.
+    public List<CardDefinition> getDeckCards() throws IOException, InterruptedException {
+        return await(getDeckCardsAsync());
+    }
+
+    public synchronized CompletableFuture<List<CardDefinition>> getDeckCardsAsync() {
+        if (deckCards == null || deckCards.isCompletedExceptionally()) {
+            List<CompletableFuture<CardDefinition>> fetches = new ArrayList<>(DECK_CARD_IDS.size());
+            for (String id : DECK_CARD_IDS) {
+                fetches.add(getCardInfoAsync(id));
+            }
+            deckCards = CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> {
+                        List<CardDefinition> deck = new ArrayList<>(fetches.size());
+                        for (CompletableFuture<CardDefinition> fetch : fetches) {
+                            deck.add(fetch.join());
+                        }
+                        return Collections.unmodifiableList(deck);
+                    });
+        }
+        return deckCards;
     }
 
-    public Card getCardInfo(String cardId) throws IOException, InterruptedException {
+    // Waits for a fetch, turning its failure back into the exception the synchronous methods have always thrown.
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to fetch card data", cause);
+        }
+    }
+
+    // The card from the imported catalog or the local store, or null if it would have to be fetched. Never blocks
+    // on the network, and safe to call from any number of threads.
+    public CardDefinition getLocalCardInfo(String cardId) {
+        if (catalog != null) {
+            CardDefinition known = catalog.getByCardId(cardId);
+            if (known != null) {
+                return known;
+            }
+        }
+        return store.get(cardId);
+    }
+
+    private HttpRequest buildRequest(String cardId) {
         String formattedName = cardId.replaceAll(" ", "%20");
-        HttpRequest request = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
                 .uri(URI.create(CARD_GET_BASE_URL + formattedName))
                 .header("x-rapidapi-key", "d3fdde6f41msh444a83fc6f2568ap1074ecjsnd405d2063274")
                 .header("x-rapidapi-host", "omgvamp-hearthstone-v1.p.rapidapi.com")
                 .method("GET", HttpRequest.BodyPublishers.noBody())
                 .build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
 
-        JSONObject jsonObject = new JSONObject(response.body().substring(1, response.body().length() - 1));
-        String cardName = jsonObject.getString("name");
-        String cardType = jsonObject.getString("type");
-        if (cardType.equalsIgnoreCase("hero")) {
-            return new Card(cardName, cardId, cardType, 0, 0, 0, new ArrayList<>());
+    // Runs on one of the fetch threads.
+    private CardDefinition fetchCardInfo(String cardId) {
+        long start = METRICS.start();
+        METRICS.increment(PipelineMetrics.Counter.FETCHES);
+        try {
+            HttpResponse<String> response = Http.CLIENT.send(buildRequest(cardId), HttpResponse.BodyHandlers.ofString());
+            return storeResponse(cardId, response);
+        } catch (IOException e) {
+            METRICS.increment(PipelineMetrics.Counter.FETCH_FAILURES);
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            METRICS.increment(PipelineMetrics.Counter.FETCH_FAILURES);
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            //Bodies that aren't the JSON we expect.
+            METRICS.increment(PipelineMetrics.Counter.FETCH_FAILURES);
+            throw e;
+        } finally {
+            METRICS.record(PipelineMetrics.Stage.FETCH, start);
         }
-        int cardCost = jsonObject.getInt("cost");
-        int cardAttack = 0;
-        int cardHealth = 0;
-        List<String> mechanics = new ArrayList<String>();
-
-        if (cardType.equalsIgnoreCase("minion")) {
-            cardAttack = jsonObject.getInt("attack");
-            cardHealth = jsonObject.getInt("health");
-            try {
-                JSONArray mechanicsArray = jsonObject.getJSONArray("mechanics");
-                for (int i = 0; i < mechanicsArray.length(); i++) {
-                    JSONObject mechanicObject = mechanicsArray.getJSONObject(i);
-                    mechanics.add(mechanicObject.getString("name"));
-                }
-            } catch (JSONException e) {
-                //If we reached this point, the given card's API response does not contain any mechanics
-                //as such, we'll just use the empty list.
-            }
-        }
-
-        return new Card(cardName, cardId, cardType, cardCost, cardAttack, cardHealth, mechanics);
     }
 
-    public List<Card> getDeckCards() throws IOException, InterruptedException {
-        List<Card> deck = new ArrayList<>();
-        List<String> cardIds = Arrays.asList("CFM_315","LOOT_258","OG_179","BAR_031","DS1_175",
-                "SCH_133","DRG_071","EX1_611","BAR_745","CORE_BRM_013","CORE_EX1_531",
-                "CS2_237","EX1_536","EX1_539","TRL_339","DS1_178");
-        for (String id : cardIds) {
-            deck.add(getCardInfo(id));
+    private CardDefinition storeResponse(String cardId, HttpResponse<String> response) throws IOException {
+        JSONObject jsonObject = new JSONObject(response.body().substring(1, response.body().length() - 1));
+        CardDefinition card = CardJson.parse(jsonObject);
+        if (card == null) {
+            throw new IOException("Unexpected card data returned for " + cardId);
         }
-        return deck;
+        store.put(card);
+        return card;
     }
 }
@@ -0,0 +1,88 @@
+package com.hsda.service;
+
+import com.hsda.models.CardDefinition;
+import com.hsda.models.Mechanic;
+import com.hsda.models.Race;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+// Turns card JSON into Cards. Understands both the RapidAPI format we fetch single cards in
+// ("cardId", "type": "Minion", "race": "Beast", "mechanics": [{"name": "Taunt"}]) and the HearthstoneJSON
+// collection dumps ("id", "type": "MINION", "races": ["BEAST"], "mechanics": ["TAUNT"]), normalizing the
+// latter's type to the former's spelling. Mechanics and races end up as bitmasks either way.
+final class CardJson {
+
+    private CardJson() {
+    }
+
+    // Returns null for entries that aren't usable cards.
+    static CardDefinition parse(JSONObject json) {
+        String cardId = json.optString("cardId", json.optString("id", null));
+        String cardName = json.optString("name", null);
+        String cardType = json.optString("type", null);
+        if (cardId == null || cardName == null || cardType == null) {
+            return null;
+        }
+        cardType = normalize(cardType);
+        if (cardType.equalsIgnoreCase("hero")) {
+            return new CardDefinition(cardName, cardId, cardType, 0, 0, 0, 0, 0);
+        }
+
+        int cardCost = json.optInt("cost", 0);
+        int cardAttack = 0;
+        int cardHealth = 0;
+        if (cardType.equalsIgnoreCase("minion")) {
+            cardAttack = json.optInt("attack", 0);
+            cardHealth = json.optInt("health", 0);
+        }
+
+        //Mechanics we have no Mechanic for are dropped, nothing in the analyzer could act on them anyway.
+        long mechanics = 0;
+        JSONArray mechanicsArray = json.optJSONArray("mechanics");
+        if (mechanicsArray != null) {
+            for (int i = 0; i < mechanicsArray.length(); i++) {
+                JSONObject mechanicObject = mechanicsArray.optJSONObject(i);
+                Mechanic mechanic = Mechanic.fromName(mechanicObject != null
+                        ? mechanicObject.getString("name") : mechanicsArray.getString(i));
+                if (mechanic != null) {
+                    mechanics |= mechanic.bit();
+                }
+            }
+        }
+
+        int races = 0;
+        String race = json.optString("race", null);
+        if (race != null) {
+            races |= Race.bitsOf(race);
+        }
+        JSONArray racesArray = json.optJSONArray("races");
+        if (racesArray != null) {
+            for (int i = 0; i < racesArray.length(); i++) {
+                races |= Race.bitsOf(racesArray.getString(i));
+            }
+        }
+
+        return new CardDefinition(cardName, cardId, cardType, cardCost, cardAttack, cardHealth, mechanics, races);
+    }
+
+    // "DIVINE_SHIELD" -> "Divine Shield". Values already in that form are returned unchanged.
+    static String normalize(String value) {
+        if (!value.equals(value.toUpperCase(Locale.ROOT))) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        boolean startOfWord = true;
+        for (char c : value.toCharArray()) {
+            if (c == '_') {
+                builder.append(' ');
+                startOfWord = true;
+            } else {
+                builder.append(startOfWord ? c : Character.toLowerCase(c));
+                startOfWord = false;
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.hsda.service;
+
+import com.hsda.models.CardDefinition;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Local, persistent copy of every card we have ever fetched from the API.
+// The file starts with a magic number and a format version, followed by one length-prefixed record per card with
+// varint encoded numbers and UTF-8 strings. It is read with a single bulk read and decoded in one go when opened,
+// and cards fetched later are appended to the end, so the remote API only ever sees a card id once.
+// A file with another version is discarded and rebuilt, and a record cut short by a crash is dropped. The file is
+// deliberately not memory mapped, as Windows refuses to truncate a mapped file and those repairs need to.
+public class CardStore {
+    private static final int MAGIC = 0x48534443; // "HSDC"
+    // 2: mechanics and races stored as bitmasks.
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final Map<Path, CardStore> OPEN_STORES = new HashMap<>();
+
+    private final Path path;
+    private final Map<String, CardDefinition> cards;
+    private FileChannel channel;
+
+    private CardStore(Path path) {
+        this.path = path;
+        this.cards = new HashMap<>();
+    }
+
+    // The store used when none is given explicitly: -Dhsda.cardStore=<file>, or ~/.hsda/cards.db by default.
+    public static Path defaultPath() {
+        String configured = System.getProperty("hsda.cardStore");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".hsda", "cards.db");
+    }
+
+    // Opens the store at the given path, sharing one instance per file within the process.
+    public static synchronized CardStore open(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        CardStore store = OPEN_STORES.get(key);
+        if (store == null) {
+            store = new CardStore(key);
+            store.load();
+            OPEN_STORES.put(key, store);
+        }
+        return store;
+    }
+
+    public synchronized CardDefinition get(String cardId) {
+        return cards.get(cardId);
+    }
+
+    public synchronized boolean contains(String cardId) {
+        return cards.containsKey(cardId);
+    }
+
+    public synchronized int size() {
+        return cards.size();
+    }
+
+    public synchronized Collection<CardDefinition> getAll() {
+        return new ArrayList<>(cards.values());
+    }
+
+    // Adds the card to the store and appends it to the file.
+    public synchronized void put(CardDefinition card) throws IOException {
+        if (cards.containsKey(card.getCardId())) {
+            return;
+        }
+        cards.put(card.getCardId(), card);
+
+        ByteBuffer payload = encode(card);
+        ByteBuffer record = ByteBuffer.allocate(5 + payload.remaining());
+        writeVarInt(record, payload.remaining());
+        record.put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = channel.size();
+        long validEnd = HEADER_SIZE;
+        if (size >= HEADER_SIZE) {
+            ByteBuffer contents = ByteBuffer.allocate((int) size);
+            while (contents.hasRemaining() && channel.read(contents, contents.position()) > 0) {
+                //Keep reading until the whole file is in memory.
+            }
+            contents.flip();
+            if (contents.getInt() == MAGIC && contents.getInt() == VERSION) {
+                validEnd = decodeRecords(contents);
+            } else {
+                //Written by another version of the assistant, start over with an empty store.
+                validEnd = HEADER_SIZE;
+                writeHeader();
+            }
+        } else {
+            writeHeader();
+        }
+
+        if (channel.size() > validEnd) {
+            //Drop whatever partial record an interrupted write left behind.
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+    }
+
+    private void writeHeader() throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    // Decodes records until the end of the buffer, returning the offset just after the last complete one.
+    private long decodeRecords(ByteBuffer buffer) {
+        long validEnd = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                int length = readVarInt(buffer);
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                buffer.position(buffer.position() + length);
+                CardDefinition card = decode(payload);
+                cards.put(card.getCardId(), card);
+                validEnd = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            //A truncated record at the end of the file, everything before it is still good.
+        }
+        return validEnd;
+    }
+
+    private static ByteBuffer encode(CardDefinition card) {
+        byte[] cardId = card.getCardId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = card.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] type = card.getType().getBytes(StandardCharsets.UTF_8);
+        int size = 3 * 5 + cardId.length + name.length + type.length + 4 * 5 + 10;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        writeString(buffer, cardId);
+        writeString(buffer, name);
+        writeString(buffer, type);
+        writeVarInt(buffer, card.getCost());
+        writeVarInt(buffer, card.getAttack());
+        writeVarInt(buffer, card.getHealth());
+        writeVarLong(buffer, card.getMechanics());
+        writeVarInt(buffer, card.getRaces());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static CardDefinition decode(ByteBuffer buffer) {
+        String cardId = readString(buffer);
+        String name = readString(buffer);
+        String type = readString(buffer);
+        int cost = readVarInt(buffer);
+        int attack = readVarInt(buffer);
+        int health = readVarInt(buffer);
+        long mechanics = readVarLong(buffer);
+        int races = readVarInt(buffer);
+        return new CardDefinition(name, cardId, type, cost, attack, health, mechanics, races);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,156 @@
+package com.hsda.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// What RecordingWriter writes, RecordingReader must read back event for event.
+public class RecordingRoundTripTest {
+    @TempDir
+    Path dir;
+
+    private static final class Event {
+        final long line;
+        final LogLineType type;
+        final ZoneEntity entity = new ZoneEntity();
+
+        Event(long line, LogLineType type) {
+            this.line = line;
+            this.type = type;
+        }
+
+        Event(long line, LogLineType type, String name, int id, String zone, int zonePos, String cardId, int player) {
+            this(line, type);
+            entity.set(name, id, zone, zonePos, cardId, player);
+        }
+    }
+
+    private static List<Event> game() {
+        return Arrays.asList(
+                new Event(3, LogLineType.MULLIGAN_MARKER),
+                new Event(10, LogLineType.TO_FRIENDLY_HAND, "Leper Gnome", 12, "HAND", 1, "EX1_029", 1),
+                new Event(10, LogLineType.TO_FRIENDLY_HAND, "Quick Shot", 13, "HAND", 2, "BRM_013", 1),
+                // The opponent's hand reveals no card, so the name and card id are null.
+                new Event(11, LogLineType.TO_OPPOSING_HAND),
+                new Event(40, LogLineType.OPPONENT_MINION_BOUNCED, null, 70, "HAND", 0, null, 2),
+                new Event(41, LogLineType.TO_FRIENDLY_PLAY, "Leper Gnome", 12, "PLAY", 1, "EX1_029", 1),
+                new Event(42, LogLineType.TO_OPPOSING_PLAY, "Ragnaros, l'Élémentaire de feu", 71, "PLAY", -1,
+                        "EX1_298", -2),
+                new Event(1L << 40, LogLineType.TO_FRIENDLY_GRAVEYARD, "Leper Gnome", Integer.MAX_VALUE, "GRAVEYARD",
+                        Integer.MIN_VALUE, "EX1_029", 1),
+                new Event((1L << 40) + 1, LogLineType.VICTORY));
+    }
+
+    private Path write(String name, List<Event> events) throws IOException {
+        Path path = dir.resolve(name);
+        try (RecordingWriter writer = new RecordingWriter(path)) {
+            for (Event event : events) {
+                writer.record(event.line, event.type, event.entity);
+            }
+            assertEquals(events.size(), writer.getEvents());
+        }
+        return path;
+    }
+
+    @Test
+    public void readsBackEveryEvent() throws IOException {
+        List<Event> events = game();
+        Path path = write("game.hsdr", events);
+        assertTrue(RecordingReader.isRecording(path));
+
+        ZoneEntity read = new ZoneEntity();
+        try (RecordingReader reader = new RecordingReader(path)) {
+            for (Event event : events) {
+                assertEquals(event.type, reader.next(read));
+                assertEquals(event.entity, read);
+                assertEquals(event.line, reader.getLineNumber());
+            }
+            assertNull(reader.next(read));
+        }
+    }
+
+    @Test
+    public void writesNegativeNumbersAsTenByteVarints() throws IOException {
+        long zero = Files.size(write("zero.hsdr", Arrays.asList(
+                new Event(1, LogLineType.TO_FRIENDLY_PLAY, "Leper Gnome", 12, "PLAY", 0, "EX1_029", 0))));
+        long negative = Files.size(write("negative.hsdr", Arrays.asList(
+                new Event(1, LogLineType.TO_FRIENDLY_PLAY, "Leper Gnome", 12, "PLAY", -1, "EX1_029", -7))));
+        assertEquals(zero + 2 * 9, negative);
+    }
+
+    @Test
+    public void readsWhatPrecedesACutAndEndsWithEofInsideAnEvent() throws IOException {
+        List<Event> events = game();
+        byte[] whole = Files.readAllBytes(write("game.hsdr", events));
+        // Where each event ends, from recordings of the events before it and it.
+        long[] ends = new long[events.size() + 1];
+        ends[0] = RecordingWriter.MAGIC.length + 1;
+        for (int k = 1; k <= events.size(); k++) {
+            ends[k] = Files.size(write("prefix.hsdr", events.subList(0, k)));
+        }
+        assertEquals(whole.length, ends[events.size()]);
+
+        Path cut = dir.resolve("cut.hsdr");
+        for (int length = (int) ends[0]; length < whole.length; length++) {
+            Files.write(cut, Arrays.copyOf(whole, length));
+            int complete = 0;
+            while (ends[complete + 1] <= length) {
+                complete++;
+            }
+            List<LogLineType> read = new ArrayList<>();
+            boolean clean;
+            try (RecordingReader reader = new RecordingReader(cut)) {
+                clean = readAll(reader, new ZoneEntity(), read);
+            }
+            assertEquals(complete, read.size(), "cut at " + length);
+            for (int i = 0; i < complete; i++) {
+                assertEquals(events.get(i).type, read.get(i));
+            }
+            // An event's last byte is always its own, never a string it adds to the table.
+            if (length == ends[complete]) {
+                assertTrue(clean, "cut at " + length);
+            } else if (length == ends[complete + 1] - 1) {
+                assertFalse(clean, "cut at " + length);
+            }
+        }
+    }
+
+    @Test
+    public void throwsEofForAnEntityCutShort() throws IOException {
+        Path path = write("one.hsdr", Arrays.asList(
+                new Event(1, LogLineType.TO_OPPOSING_PLAY, "Leper Gnome", 12, "PLAY", -1, "EX1_029", 2)));
+        byte[] whole = Files.readAllBytes(path);
+        // Stops inside the ten bytes of the negative zonePos.
+        Files.write(path, Arrays.copyOf(whole, whole.length - 8));
+        try (RecordingReader reader = new RecordingReader(path)) {
+            assertThrows(EOFException.class, () -> reader.next(new ZoneEntity()));
+        }
+    }
+
+    // Reads events until the end, returning false if the recording stopped in the middle of one.
+    private static boolean readAll(RecordingReader reader, ZoneEntity entity, List<LogLineType> read)
+            throws IOException {
+        try {
+            LogLineType type;
+            while ((type = reader.next(entity)) != null) {
+                read.add(type);
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+}